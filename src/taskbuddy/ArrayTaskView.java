@@ -0,0 +1,79 @@
+package taskbuddy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * A SortedTaskView over an array that is already sorted and is never modified,
+ * so it can be shared between threads.
+ */
+final class ArrayTaskView implements SortedTaskView {
+
+    private final Task[] tasks;
+    private final Comparator<Task> order;
+
+    ArrayTaskView(Task[] tasks, Comparator<Task> order) {
+        this.tasks = tasks;
+        this.order = order;
+    }
+
+    @Override
+    public int size() {
+        return tasks.length;
+    }
+
+    @Override
+    public Task first() {
+        return tasks.length == 0 ? null : tasks[0];
+    }
+
+    @Override
+    public Iterator<Task> iterator() {
+        return Collections.unmodifiableList(Arrays.asList(tasks)).iterator();
+    }
+
+    @Override
+    public List<Task> page(int offset, int limit) {
+        List<Task> page = new ArrayList<>();
+        if (offset < 0 || limit <= 0) {
+            return page;
+        }
+        for (int i = offset; i < tasks.length && page.size() < limit; i++) {
+            page.add(tasks[i]);
+        }
+        return page;
+    }
+
+    /**
+     * Binary-searches for the position after the given task, which need not be in the view.
+     */
+    @Override
+    public List<Task> pageAfter(Task last, int limit) {
+        int low = 0;
+        if (last != null) {
+            int high = tasks.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (order.compare(tasks[mid], last) <= 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+        }
+        List<Task> page = new ArrayList<>();
+        for (int i = low; i < tasks.length && page.size() < limit; i++) {
+            page.add(tasks[i]);
+        }
+        return page;
+    }
+
+    @Override
+    public List<Task> toList() {
+        return new ArrayList<>(Arrays.asList(tasks));
+    }
+}
@@ -0,0 +1,274 @@
+package taskbuddy;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * An asynchronous facade over a ConcurrentTaskManager: every operation returns a
+ * CompletableFuture and runs on its own virtual thread, so front ends can start many queries
+ * and changes at once without tying up the Swing event thread or a platform thread each.
+ * <p>
+ * At most maxInFlight operations are outstanding at a time. When that many are running, the
+ * next call blocks its caller until one finishes; this is the backpressure that keeps a fast
+ * producer from queueing unbounded work. Callers that must never block (such as the Swing
+ * event thread) should keep their own bursts below the limit.
+ * <p>
+ * Futures complete on the virtual thread that ran the operation, so dependent stages must not
+ * touch Swing components directly; hop to the event thread with SwingUtilities.invokeLater.
+ * Failures (such as an IOException from attachJournal) complete the future exceptionally.
+ */
+public class AsyncTaskManager implements AutoCloseable {
+
+    public static final int DEFAULT_MAX_IN_FLIGHT = 256;
+
+    private final ConcurrentTaskManager tasks;
+    private final ExecutorService executor;
+    private final Semaphore inFlight;
+    private final int maxInFlight;
+
+    public AsyncTaskManager(ConcurrentTaskManager tasks) {
+        this(tasks, DEFAULT_MAX_IN_FLIGHT);
+    }
+
+    /**
+     * @param maxInFlight the most operations that may be running or queued at once.
+     */
+    public AsyncTaskManager(ConcurrentTaskManager tasks, int maxInFlight) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("maxInFlight must be at least 1");
+        }
+        this.tasks = tasks;
+        this.maxInFlight = maxInFlight;
+        this.inFlight = new Semaphore(maxInFlight);
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    /**
+     * Gets the wrapped manager, for synchronous calls such as cheap counts.
+     */
+    public ConcurrentTaskManager getTaskManager() {
+        return tasks;
+    }
+
+    /**
+     * Gets the number of operations started but not yet finished.
+     */
+    public int getInFlightCount() {
+        return maxInFlight - inFlight.availablePermits();
+    }
+
+    // --- Writes -------------------------------------------------------------------------------
+
+    public CompletableFuture<TaskResult> addTask(String title, String description, LocalDate dueDate, Priority priority, Status status, Category category) {
+        return submit(() -> tasks.addTask(title, description, dueDate, priority, status, category));
+    }
+
+    public CompletableFuture<List<String>> addTasks(List<TaskDraft> drafts) {
+        return submit(() -> tasks.addTasks(drafts));
+    }
+
+    public CompletableFuture<BatchResult> applyBatch(List<TaskOperation> operations) {
+        return submit(() -> tasks.applyBatch(operations));
+    }
+
+    public CompletableFuture<TaskResult> removeTask(String taskId) {
+        return submit(() -> tasks.removeTask(taskId));
+    }
+
+    public CompletableFuture<TaskResult> removeTask(CompactId taskId) {
+        return submit(() -> tasks.removeTask(taskId));
+    }
+
+    public CompletableFuture<TaskResult> updateTask(String taskId, String title, String description, LocalDate dueDate, Priority priority, Status status, Category category) {
+        return submit(() -> tasks.updateTask(taskId, title, description, dueDate, priority, status, category));
+    }
+
+    public CompletableFuture<TaskResult> updateTask(CompactId taskId, String title, String description, LocalDate dueDate, Priority priority, Status status, Category category) {
+        return submit(() -> tasks.updateTask(taskId, title, description, dueDate, priority, status, category));
+    }
+
+    public CompletableFuture<TaskResult> updateTask(CompactId taskId, int expectedVersion, String title, String description, LocalDate dueDate, Priority priority, Status status, Category category) {
+        return submit(() -> tasks.updateTask(taskId, expectedVersion, title, description, dueDate, priority, status, category));
+    }
+
+    public CompletableFuture<TaskResult> patchTask(CompactId taskId, TaskPatch patch) {
+        return submit(() -> tasks.patchTask(taskId, patch));
+    }
+
+    public CompletableFuture<TaskResult> patchTask(CompactId taskId, int expectedVersion, TaskPatch patch) {
+        return submit(() -> tasks.patchTask(taskId, expectedVersion, patch));
+    }
+
+    public CompletableFuture<TaskResult> markTaskAsCompleted(String taskId) {
+        return submit(() -> tasks.markTaskAsCompleted(taskId));
+    }
+
+    public CompletableFuture<TaskResult> markTaskAsCompleted(CompactId taskId) {
+        return submit(() -> tasks.markTaskAsCompleted(taskId));
+    }
+
+    public CompletableFuture<TaskResult> markTaskAsCompleted(CompactId taskId, int expectedVersion) {
+        return submit(() -> tasks.markTaskAsCompleted(taskId, expectedVersion));
+    }
+
+    public CompletableFuture<Boolean> renameCategory(Category category, String newName) {
+        return submit(() -> tasks.renameCategory(category, newName));
+    }
+
+    /**
+     * Replays and attaches a journal; the future fails with the IOException if it cannot be read.
+     */
+    public CompletableFuture<Integer> attachJournal(TaskJournal journal) {
+        return submit(() -> tasks.attachJournal(journal));
+    }
+
+    public CompletableFuture<Void> closeJournal() {
+        return submit(() -> {
+            tasks.closeJournal();
+            return null;
+        });
+    }
+
+    // --- Reads --------------------------------------------------------------------------------
+
+    public CompletableFuture<Task> findTask(String taskId) {
+        return submit(() -> tasks.findTask(taskId));
+    }
+
+    public CompletableFuture<Task> findTask(CompactId taskId) {
+        return submit(() -> tasks.findTask(taskId));
+    }
+
+    public CompletableFuture<List<Task>> getAllTasks() {
+        return submit(tasks::getAllTasks);
+    }
+
+    public CompletableFuture<List<Task>> sortTasksByDueDate() {
+        return submit(tasks::sortTasksByDueDate);
+    }
+
+    public CompletableFuture<List<Task>> sortTasksByPriority() {
+        return submit(tasks::sortTasksByPriority);
+    }
+
+    public CompletableFuture<List<Task>> getTasksDueBefore(LocalDate date) {
+        return submit(() -> tasks.getTasksDueBefore(date));
+    }
+
+    public CompletableFuture<List<Task>> getTasksDueBetween(LocalDate from, LocalDate to) {
+        return submit(() -> tasks.getTasksDueBetween(from, to));
+    }
+
+    public CompletableFuture<List<Task>> getOverdueTasks(LocalDate asOf) {
+        return submit(() -> tasks.getOverdueTasks(asOf));
+    }
+
+    public CompletableFuture<List<Task>> getNextTasks(int k) {
+        return submit(() -> tasks.getNextTasks(k));
+    }
+
+    public CompletableFuture<SortedTaskView> getTasksByDueDateView() {
+        return submit(tasks::getTasksByDueDateView);
+    }
+
+    public CompletableFuture<SortedTaskView> getTasksByPriorityView() {
+        return submit(tasks::getTasksByPriorityView);
+    }
+
+    public CompletableFuture<SortedTaskView> getTasksByPriorityThenDueDateView() {
+        return submit(tasks::getTasksByPriorityThenDueDateView);
+    }
+
+    public CompletableFuture<List<Task>> filterTasksByCategory(Category category) {
+        return submit(() -> tasks.filterTasksByCategory(category));
+    }
+
+    public CompletableFuture<List<Task>> filterTasksByStatus(Status status) {
+        return submit(() -> tasks.filterTasksByStatus(status));
+    }
+
+    public CompletableFuture<List<Task>> getCompletedTasks() {
+        return submit(tasks::getCompletedTasks);
+    }
+
+    public CompletableFuture<List<Task>> getIncompleteTasks() {
+        return submit(tasks::getIncompleteTasks);
+    }
+
+    public CompletableFuture<List<Task>> search(String query, int limit) {
+        return submit(() -> tasks.search(query, limit));
+    }
+
+    public CompletableFuture<List<Task>> query(TaskQuery query) {
+        return submit(() -> tasks.query(query));
+    }
+
+    public CompletableFuture<TaskPage> queryPage(TaskQuery query, String cursor) {
+        return submit(() -> tasks.queryPage(query, cursor));
+    }
+
+    public CompletableFuture<TaskStatistics> getStatistics() {
+        return submit(tasks::getStatistics);
+    }
+
+    public CompletableFuture<Integer> getTaskCount() {
+        return submit(tasks::getTaskCount);
+    }
+
+    public CompletableFuture<Integer> countTasksByStatus(Status status) {
+        return submit(() -> tasks.countTasksByStatus(status));
+    }
+
+    public CompletableFuture<Integer> countTasksByCategory(Category category) {
+        return submit(() -> tasks.countTasksByCategory(category));
+    }
+
+    /**
+     * Waits for every started operation to finish, then stops accepting new ones.
+     * The wrapped manager and its journal stay open.
+     */
+    @Override
+    public void close() {
+        executor.close();
+    }
+
+    /**
+     * Runs an operation on a new virtual thread once an in-flight slot is free, blocking the
+     * caller until then. The slot is released before the future completes, so stages chained
+     * on the future can start new operations without waiting on their own slot.
+     */
+    private <T> CompletableFuture<T> submit(Callable<T> operation) {
+        try {
+            inFlight.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.failedFuture(e);
+        }
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                T result;
+                try {
+                    result = operation.call();
+                } catch (Throwable e) {
+                    inFlight.release();
+                    future.completeExceptionally(e);
+                    return;
+                }
+                inFlight.release();
+                future.complete(result);
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.release();
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+}
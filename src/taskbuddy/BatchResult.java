@@ -0,0 +1,44 @@
+package taskbuddy;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The outcome of TaskManager.applyBatch: either every operation was applied, or none was.
+ */
+public class BatchResult {
+    private final List<String> errors;
+    private final List<Task> addedTasks;
+
+    BatchResult(List<String> errors, List<Task> addedTasks) {
+        this.errors = Collections.unmodifiableList(errors);
+        this.addedTasks = Collections.unmodifiableList(addedTasks);
+    }
+
+    /**
+     * Checks whether the batch was applied.
+     */
+    public boolean isApplied() {
+        return errors.isEmpty();
+    }
+
+    /**
+     * Gets why the batch was rejected, one message per invalid operation (or the journal error
+     * if the batch could not be recorded); empty if it was applied.
+     */
+    public List<String> getErrors() {
+        return errors;
+    }
+
+    /**
+     * Gets the tasks created by the batch's add operations, in order.
+     */
+    public List<Task> getAddedTasks() {
+        return addedTasks;
+    }
+
+    @Override
+    public String toString() {
+        return "BatchResult{applied=" + isApplied() + ", added=" + addedTasks.size() + ", errors=" + errors.size() + "}";
+    }
+}
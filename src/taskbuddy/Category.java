@@ -1,22 +1,23 @@
 package taskbuddy;
 
-import java.util.Objects;
-
 /**
  * Represents a category for tasks.
+ * Categories are created and renamed through a CategoryRegistry, which keeps one
+ * instance per category and gives it a dense integer ID.
  */
 public class Category {
     
-    // Changed categoryId to a String to be compatible with the GUI
-    private final String categoryId;
-    private String categoryName;
+    // Dense ID assigned by CategoryRegistry (0, 1, 2, ...), usable as an array index
+    private final int categoryId;
+    // Volatile so a rename is seen by threads reading a ConcurrentTaskManager snapshot
+    private volatile String categoryName;
 
-    public Category(String categoryId, String categoryName) {
+    Category(int categoryId, String categoryName) {
         this.categoryId = categoryId;
         this.categoryName = categoryName;
     }
 
-    public String getCategoryId() {
+    public int getCategoryId() {
         return categoryId;
     }
 
@@ -24,14 +25,17 @@ public class Category {
         return categoryName;
     }
 
-    public void setCategoryName(String categoryName) {
+    /**
+     * Renames the category. Use CategoryRegistry.rename() so name lookups stay correct.
+     */
+    void setCategoryName(String categoryName) {
         this.categoryName = categoryName;
     }
 
     @Override
     public String toString() {
         return "Category{" +
-                "categoryId='" + categoryId + '\'' +
+                "categoryId=" + categoryId +
                 ", categoryName='" + categoryName + '\'' +
                 '}';
     }
@@ -42,11 +46,11 @@ public class Category {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Category category = (Category) o;
-        return Objects.equals(categoryId, category.categoryId);
+        return categoryId == category.categoryId;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(categoryId);
+        return Integer.hashCode(categoryId);
     }
 }
@@ -0,0 +1,108 @@
+package taskbuddy;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Owns every Category used by a TaskManager, so each category exists exactly once.
+ * Categories get dense integer IDs (0, 1, 2, ...) in creation order, which lets the task
+ * stores index them with plain arrays. Lookups by ID or by name are O(1); names are
+ * matched case-insensitively and stored interned, so tasks never carry their own copies.
+ * All methods are synchronized, so a registry can be shared with a ConcurrentTaskManager.
+ */
+public class CategoryRegistry {
+
+    // Index = category ID
+    private final List<Category> categoriesById = new ArrayList<>();
+    // Normalized name -> category
+    private final Map<String, Category> categoriesByName = new HashMap<>();
+
+    /**
+     * Gets the category with the given name, creating it if it does not exist yet.
+     * @param name the category name; surrounding whitespace is ignored.
+     * @return the category, or null if the name is empty.
+     */
+    public synchronized Category getOrCreate(String name) {
+        if (name == null || name.trim().isEmpty()) {
+            return null;
+        }
+        Category existing = categoriesByName.get(nameKey(name));
+        if (existing != null) {
+            return existing;
+        }
+        Category category = new Category(categoriesById.size(), name.trim().intern());
+        categoriesById.add(category);
+        categoriesByName.put(nameKey(name), category);
+        return category;
+    }
+
+    /**
+     * Finds a category by ID.
+     * @return the category, or null if no category has that ID.
+     */
+    public synchronized Category find(int categoryId) {
+        if (categoryId < 0 || categoryId >= categoriesById.size()) {
+            return null;
+        }
+        return categoriesById.get(categoryId);
+    }
+
+    /**
+     * Finds a category by name (case-insensitive).
+     * @return the category, or null if no category has that name.
+     */
+    public synchronized Category find(String name) {
+        if (name == null) {
+            return null;
+        }
+        return categoriesByName.get(nameKey(name));
+    }
+
+    /**
+     * Renames a category. Tasks pick the new name up immediately, since they share the instance.
+     * @return true if the category was renamed, false if the new name is empty or already taken.
+     */
+    public synchronized boolean rename(Category category, String newName) {
+        if (category == null || newName == null || newName.trim().isEmpty()) {
+            return false;
+        }
+        Category clash = categoriesByName.get(nameKey(newName));
+        if (clash != null && clash != category) {
+            return false;
+        }
+        categoriesByName.remove(nameKey(category.getCategoryName()));
+        category.setCategoryName(newName.trim().intern());
+        categoriesByName.put(nameKey(newName), category);
+        return true;
+    }
+
+    /**
+     * Gets a copy of every category, in ID order.
+     */
+    public synchronized List<Category> getAll() {
+        return Collections.unmodifiableList(new ArrayList<>(categoriesById));
+    }
+
+    /**
+     * Gets every category name, in ID order, for menus and combo boxes.
+     */
+    public synchronized String[] getNames() {
+        String[] names = new String[categoriesById.size()];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = categoriesById.get(i).getCategoryName();
+        }
+        return names;
+    }
+
+    public synchronized int size() {
+        return categoriesById.size();
+    }
+
+    private static String nameKey(String name) {
+        return name.trim().toLowerCase(Locale.ROOT);
+    }
+}
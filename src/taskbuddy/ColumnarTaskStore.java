@@ -0,0 +1,832 @@
+package taskbuddy;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.function.IntPredicate;
+
+/**
+ * A TaskStore that keeps tasks as parallel primitive arrays (struct-of-arrays) instead of one
+ * object per task. Due dates are int epoch days, priority and status are byte ordinals, the
+ * category is its int registry ID, and IDs live in two long columns with an
+ * open-addressing index, so no per-task objects are kept at all.
+ * <p>
+ * Task objects are only created when a query returns them; they are detached copies, and
+ * changes go through TaskManager as usual. Filters and sorts scan the primitive columns and
+ * sort packed long keys, so they cost O(n) or O(n log n) per call but touch very little memory.
+ * Sorted views are rebuilt lazily on first use after a change, rather than maintained per mutation.
+ * <p>
+ * When loaded from a TaskSnapshot, the fixed-width columns are copied straight out of the
+ * mapped file and titles and descriptions are left in it, decoded the first time each row is
+ * materialized, so startup does not pay for strings that are never shown.
+ * <p>
+ * Rows are appended in insertion order and removed rows are left as tombstones until more than
+ * half the rows are dead, when the arrays are compacted in order. Row order therefore always
+ * matches insertion sequence, which is what the sort keys use to break ties.
+ */
+public class ColumnarTaskStore implements TaskStore {
+
+    private static final byte DELETED = -1;
+    private static final int INITIAL_CAPACITY = 64;
+    private static final int MIN_COMPACTION_ROWS = 1024;
+
+    // Column data; row r describes one task while status[r] != DELETED
+    private long[] idHigh;
+    private long[] idLow;
+    private long[] sequence;
+    private int[] version;
+    private int[] dueDay;
+    private byte[] priority;
+    private byte[] status;
+    private int[] category;
+    private String[] title;
+    private String[] description;
+    // Snapshot record for rows whose strings are still in the mapped snapshot (title is null)
+    private int[] snapshotRecord;
+    private TaskSnapshot snapshot;
+    private int lazyRows;
+
+    private int rowCount;
+    private int liveCount;
+    // Bumped on every change so lazily built views know when to rebuild
+    private int modCount;
+
+    private final IdIndex rowsById = new IdIndex();
+    private final int[] statusCounts = new int[Status.values().length];
+
+    // Category ID -> the shared Category instance, and -> number of live tasks
+    private Category[] categories = new Category[8];
+    private int[] categoryCounts = new int[8];
+
+    private final Map<TaskOrder, RowView> views = new HashMap<>();
+
+    public ColumnarTaskStore() {
+        allocate(INITIAL_CAPACITY);
+    }
+
+    @Override
+    public int size() {
+        return liveCount;
+    }
+
+    @Override
+    public Task get(CompactId id) {
+        int row = rowsById.get(id.getHigh(), id.getLow());
+        return row < 0 ? null : materialize(row);
+    }
+
+    @Override
+    public void add(Task task) {
+        if (rowCount == idHigh.length) {
+            allocate(idHigh.length * 2);
+        }
+        int row = rowCount++;
+        CompactId id = task.getId();
+        idHigh[row] = id.getHigh();
+        idLow[row] = id.getLow();
+        sequence[row] = task.getSequence();
+        version[row] = task.getVersion();
+        writeFields(row, task.getTitle(), task.getDescription(), task.getDueDate(), task.getPriority(), task.getStatus(), task.getCategory());
+        rowsById.put(id.getHigh(), id.getLow(), row);
+        liveCount++;
+        modCount++;
+    }
+
+    @Override
+    public void load(TaskSnapshot snapshot, Category[] categories, long firstSequence) {
+        if (liveCount != 0 || rowCount != 0) {
+            TaskStore.super.load(snapshot, categories, firstSequence);
+            return;
+        }
+        int count = snapshot.size();
+        if (count > idHigh.length) {
+            allocate(count);
+        }
+        int[] categoryIds = new int[categories.length];
+        for (int i = 0; i < categories.length; i++) {
+            categoryIds[i] = registerCategory(categories[i]);
+        }
+        for (int row = 0; row < count; row++) {
+            idHigh[row] = snapshot.getIdHigh(row);
+            idLow[row] = snapshot.getIdLow(row);
+            sequence[row] = firstSequence + row;
+            version[row] = 1;
+            dueDay[row] = Math.toIntExact(snapshot.getDueDay(row));
+            priority[row] = snapshot.getPriorityCode(row);
+            status[row] = snapshot.getStatusCode(row);
+            category[row] = categoryIds[snapshot.getCategoryIndex(row)];
+            snapshotRecord[row] = row;
+            statusCounts[status[row]]++;
+            categoryCounts[category[row]]++;
+            rowsById.put(idHigh[row], idLow[row], row);
+        }
+        rowCount = count;
+        liveCount = count;
+        lazyRows = count;
+        this.snapshot = count > 0 ? snapshot : null;
+        modCount++;
+    }
+
+    @Override
+    public Task update(CompactId id, String title, String description, LocalDate dueDate, Priority priority, Status status, Category category) {
+        int row = rowsById.get(id.getHigh(), id.getLow());
+        if (row < 0) {
+            return null;
+        }
+        if (this.title[row] == null) {
+            releaseLazyRow();
+        }
+        statusCounts[this.status[row]]--;
+        categoryCounts[this.category[row]]--;
+        writeFields(row, title, description, dueDate, priority, status, category);
+        version[row]++;
+        modCount++;
+        return materialize(row);
+    }
+
+    @Override
+    public Task remove(CompactId id) {
+        int row = rowsById.get(id.getHigh(), id.getLow());
+        if (row < 0) {
+            return null;
+        }
+        Task removed = materialize(row);
+        rowsById.remove(id.getHigh(), id.getLow());
+        statusCounts[status[row]]--;
+        categoryCounts[category[row]]--;
+        status[row] = DELETED;
+        title[row] = null;
+        description[row] = null;
+        liveCount--;
+        modCount++;
+        int deadRows = rowCount - liveCount;
+        if (deadRows > MIN_COMPACTION_ROWS && deadRows > rowCount / 2) {
+            compact();
+        }
+        return removed;
+    }
+
+    @Override
+    public Iterator<Task> iterator() {
+        return new Iterator<>() {
+            private int next = nextLiveRow(0);
+
+            @Override
+            public boolean hasNext() {
+                return next < rowCount;
+            }
+
+            @Override
+            public Task next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Task task = materialize(next);
+                next = nextLiveRow(next + 1);
+                return task;
+            }
+        };
+    }
+
+    @Override
+    public List<Task> findByStatus(Status status) {
+        byte code = (byte) status.ordinal();
+        List<Task> result = new ArrayList<>(statusCounts[code]);
+        for (int row = 0; row < rowCount; row++) {
+            if (this.status[row] == code) {
+                result.add(materialize(row));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public int countByStatus(Status status) {
+        return statusCounts[status.ordinal()];
+    }
+
+    @Override
+    public List<Task> findIncomplete() {
+        byte completed = (byte) Status.COMPLETED.ordinal();
+        List<Task> result = new ArrayList<>(liveCount - statusCounts[completed]);
+        for (int row = 0; row < rowCount; row++) {
+            if (status[row] != DELETED && status[row] != completed) {
+                result.add(materialize(row));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<Task> findByCategory(Category category) {
+        int code = category.getCategoryId();
+        List<Task> result = new ArrayList<>(countByCategory(category));
+        for (int row = 0; row < rowCount; row++) {
+            if (this.category[row] == code && status[row] != DELETED) {
+                result.add(materialize(row));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public int countByCategory(Category category) {
+        int code = category.getCategoryId();
+        return code < categoryCounts.length ? categoryCounts[code] : 0;
+    }
+
+    /**
+     * Binary-searches the sequence column for the first row to read, since rows are in insertion order.
+     */
+    @Override
+    public Iterable<Task> scanAfter(long afterSequence) {
+        return () -> new RowScan(firstRowAfter(afterSequence), row -> status[row] != DELETED);
+    }
+
+    /**
+     * Scans the status column, materializing only the rows that match and only as they are read.
+     */
+    @Override
+    public Iterable<Task> scanByStatus(Status status, long afterSequence) {
+        byte code = (byte) status.ordinal();
+        return () -> new RowScan(firstRowAfter(afterSequence), row -> this.status[row] == code);
+    }
+
+    @Override
+    public Iterable<Task> scanByCategory(Category category, long afterSequence) {
+        int code = category.getCategoryId();
+        return () -> new RowScan(firstRowAfter(afterSequence), row -> this.category[row] == code && status[row] != DELETED);
+    }
+
+    private int firstRowAfter(long afterSequence) {
+        int low = 0;
+        int high = rowCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sequence[mid] <= afterSequence) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Sorts the matching rows' date keys up front, but materializes tasks only as they are read.
+     */
+    @Override
+    public Iterable<Task> scanDueBetween(long fromDay, long toDay) {
+        if (fromDay > toDay) {
+            return new ArrayList<>();
+        }
+        long[] keys = new long[liveCount];
+        int matches = 0;
+        for (int row = 0; row < rowCount; row++) {
+            int day = dueDay[row];
+            if (status[row] != DELETED && day >= fromDay && day <= toDay) {
+                keys[matches++] = dateKey(row);
+            }
+        }
+        Arrays.sort(keys, 0, matches);
+        int count = matches;
+        return () -> new Iterator<Task>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < count;
+            }
+
+            @Override
+            public Task next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return materialize(rowOf(keys[next++]));
+            }
+        };
+    }
+
+    /**
+     * Counts by scanning the due day column, which is far cheaper than materializing the rows.
+     */
+    @Override
+    public long estimateDueBetween(long fromDay, long toDay) {
+        long count = 0;
+        for (int row = 0; row < rowCount; row++) {
+            int day = dueDay[row];
+            if (status[row] != DELETED && day >= fromDay && day <= toDay) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public List<Task> findDueBetween(long fromDay, long toDay) {
+        if (fromDay > toDay) {
+            return new ArrayList<>();
+        }
+        long[] keys = new long[liveCount];
+        int matches = 0;
+        for (int row = 0; row < rowCount; row++) {
+            int day = dueDay[row];
+            if (status[row] != DELETED && day >= fromDay && day <= toDay) {
+                keys[matches++] = dateKey(row);
+            }
+        }
+        return materializeSorted(keys, matches);
+    }
+
+    @Override
+    public List<Task> findOverdue(long asOfDay) {
+        byte completed = (byte) Status.COMPLETED.ordinal();
+        long[] keys = new long[liveCount];
+        int matches = 0;
+        for (int row = 0; row < rowCount; row++) {
+            if (status[row] != DELETED && status[row] != completed && dueDay[row] < asOfDay) {
+                keys[matches++] = dateKey(row);
+            }
+        }
+        return materializeSorted(keys, matches);
+    }
+
+    @Override
+    public SortedTaskView view(TaskOrder order) {
+        return views.computeIfAbsent(order, RowView::new);
+    }
+
+    /**
+     * A view is only ready if no write has happened since it was last sorted.
+     */
+    @Override
+    public boolean isViewReady(TaskOrder order) {
+        RowView view = views.get(order);
+        return view != null && view.builtAt == modCount;
+    }
+
+    /**
+     * Collects incomplete rows into one bucket per priority, then sorts only as many
+     * buckets as are needed to fill k results.
+     */
+    @Override
+    public List<Task> findMostUrgent(int k) {
+        List<Task> result = new ArrayList<>();
+        if (k <= 0) {
+            return result;
+        }
+        byte completed = (byte) Status.COMPLETED.ordinal();
+        int levels = Priority.values().length;
+        long[][] buckets = new long[levels][];
+        int[] sizes = new int[levels];
+        for (int row = 0; row < rowCount; row++) {
+            if (status[row] != DELETED && status[row] != completed) {
+                int level = priority[row];
+                if (buckets[level] == null) {
+                    buckets[level] = new long[16];
+                } else if (sizes[level] == buckets[level].length) {
+                    buckets[level] = Arrays.copyOf(buckets[level], sizes[level] * 2);
+                }
+                buckets[level][sizes[level]++] = dateKey(row);
+            }
+        }
+        for (int level = 0; level < levels && result.size() < k; level++) {
+            if (sizes[level] > 0) {
+                Arrays.sort(buckets[level], 0, sizes[level]);
+                for (int i = 0; i < sizes[level] && result.size() < k; i++) {
+                    result.add(materialize(rowOf(buckets[level][i])));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Writes every mutable column of a row and updates the status and category counts.
+     */
+    private void writeFields(int row, String title, String description, LocalDate dueDate, Priority priority, Status status, Category category) {
+        this.title[row] = title;
+        this.description[row] = description;
+        this.dueDay[row] = Math.toIntExact(dueDate.toEpochDay());
+        this.priority[row] = (byte) priority.ordinal();
+        this.status[row] = (byte) status.ordinal();
+        this.category[row] = registerCategory(category);
+        statusCounts[this.status[row]]++;
+        categoryCounts[this.category[row]]++;
+    }
+
+    /**
+     * Remembers the instance for a category ID, growing the per-category arrays if needed.
+     * @return the category ID, for the category column.
+     */
+    private int registerCategory(Category category) {
+        int code = category.getCategoryId();
+        if (code >= categories.length) {
+            int capacity = Math.max(code + 1, categories.length * 2);
+            categories = Arrays.copyOf(categories, capacity);
+            categoryCounts = Arrays.copyOf(categoryCounts, capacity);
+        }
+        categories[code] = category;
+        return code;
+    }
+
+    /**
+     * Creates a detached Task object from one row.
+     */
+    private Task materialize(int row) {
+        if (title[row] == null) {
+            int record = snapshotRecord[row];
+            title[row] = snapshot.getTitle(record);
+            description[row] = snapshot.getDescription(record);
+            releaseLazyRow();
+        }
+        return new Task(new CompactId(idHigh[row], idLow[row]), title[row], description[row],
+            LocalDate.ofEpochDay(dueDay[row]), Priority.fromCode(priority[row]), Status.fromCode(status[row]),
+            categories[category[row]], sequence[row], version[row]);
+    }
+
+    /**
+     * Notes that one more row no longer needs the snapshot, letting go of it after the last one.
+     */
+    private void releaseLazyRow() {
+        if (--lazyRows == 0) {
+            snapshot = null;
+        }
+    }
+
+    /**
+     * Sorts packed row keys and materializes the rows in that order.
+     */
+    private List<Task> materializeSorted(long[] keys, int count) {
+        Arrays.sort(keys, 0, count);
+        List<Task> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(materialize(rowOf(keys[i])));
+        }
+        return result;
+    }
+
+    /**
+     * Packs a row's due date and row number into one long that sorts by date, then insertion order.
+     */
+    private long dateKey(int row) {
+        return ((long) dueDay[row] << 32) | row;
+    }
+
+    private static int rowOf(long key) {
+        return (int) key;
+    }
+
+    private int nextLiveRow(int from) {
+        int row = from;
+        while (row < rowCount && status[row] == DELETED) {
+            row++;
+        }
+        return row;
+    }
+
+    /**
+     * Drops tombstoned rows, keeping the live rows in their original order.
+     */
+    private void compact() {
+        int target = 0;
+        rowsById.clear();
+        for (int row = 0; row < rowCount; row++) {
+            if (status[row] == DELETED) {
+                continue;
+            }
+            if (target != row) {
+                idHigh[target] = idHigh[row];
+                idLow[target] = idLow[row];
+                sequence[target] = sequence[row];
+                version[target] = version[row];
+                dueDay[target] = dueDay[row];
+                priority[target] = priority[row];
+                status[target] = status[row];
+                category[target] = category[row];
+                title[target] = title[row];
+                description[target] = description[row];
+                snapshotRecord[target] = snapshotRecord[row];
+            }
+            rowsById.put(idHigh[target], idLow[target], target);
+            target++;
+        }
+        Arrays.fill(title, target, rowCount, null);
+        Arrays.fill(description, target, rowCount, null);
+        rowCount = target;
+    }
+
+    private void allocate(int capacity) {
+        if (idHigh == null) {
+            idHigh = new long[capacity];
+            idLow = new long[capacity];
+            sequence = new long[capacity];
+            version = new int[capacity];
+            dueDay = new int[capacity];
+            priority = new byte[capacity];
+            status = new byte[capacity];
+            category = new int[capacity];
+            title = new String[capacity];
+            description = new String[capacity];
+            snapshotRecord = new int[capacity];
+        } else {
+            idHigh = Arrays.copyOf(idHigh, capacity);
+            idLow = Arrays.copyOf(idLow, capacity);
+            sequence = Arrays.copyOf(sequence, capacity);
+            version = Arrays.copyOf(version, capacity);
+            dueDay = Arrays.copyOf(dueDay, capacity);
+            priority = Arrays.copyOf(priority, capacity);
+            status = Arrays.copyOf(status, capacity);
+            category = Arrays.copyOf(category, capacity);
+            title = Arrays.copyOf(title, capacity);
+            description = Arrays.copyOf(description, capacity);
+            snapshotRecord = Arrays.copyOf(snapshotRecord, capacity);
+        }
+    }
+
+    /**
+     * Iterates the rows passing a test, in row (insertion) order, materializing each as it is read.
+     */
+    private final class RowScan implements Iterator<Task> {
+
+        private final IntPredicate test;
+        private int next;
+
+        RowScan(int start, IntPredicate test) {
+            this.test = test;
+            this.next = advance(start);
+        }
+
+        private int advance(int from) {
+            int row = from;
+            while (row < rowCount && !test.test(row)) {
+                row++;
+            }
+            return row;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < rowCount;
+        }
+
+        @Override
+        public Task next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Task task = materialize(next);
+            next = advance(next + 1);
+            return task;
+        }
+    }
+
+    /**
+     * A sorted view over row numbers. The row order is rebuilt from the columns the first time
+     * the view is used after the store changes.
+     */
+    private final class RowView implements SortedTaskView {
+
+        private final TaskOrder order;
+        private int[] rows = new int[0];
+        private int builtAt = -1;
+
+        RowView(TaskOrder order) {
+            this.order = order;
+        }
+
+        @Override
+        public int size() {
+            return liveCount;
+        }
+
+        @Override
+        public Task first() {
+            int[] sorted = sortedRows();
+            return sorted.length == 0 ? null : materialize(sorted[0]);
+        }
+
+        @Override
+        public Iterator<Task> iterator() {
+            int[] sorted = sortedRows();
+            return new Iterator<>() {
+                private int next;
+
+                @Override
+                public boolean hasNext() {
+                    return next < sorted.length;
+                }
+
+                @Override
+                public Task next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    return materialize(sorted[next++]);
+                }
+            };
+        }
+
+        @Override
+        public List<Task> page(int offset, int limit) {
+            int[] sorted = sortedRows();
+            List<Task> page = new ArrayList<>();
+            if (offset < 0 || limit <= 0) {
+                return page;
+            }
+            for (int i = offset; i < sorted.length && page.size() < limit; i++) {
+                page.add(materialize(sorted[i]));
+            }
+            return page;
+        }
+
+        /**
+         * Binary-searches for the position after the given task, which need not still be in the store.
+         */
+        @Override
+        public List<Task> pageAfter(Task last, int limit) {
+            int[] sorted = sortedRows();
+            int low = 0;
+            if (last != null) {
+                int high = sorted.length;
+                while (low < high) {
+                    int mid = (low + high) >>> 1;
+                    if (compareRowTo(sorted[mid], last) <= 0) {
+                        low = mid + 1;
+                    } else {
+                        high = mid;
+                    }
+                }
+            }
+            List<Task> page = new ArrayList<>();
+            for (int i = low; i < sorted.length && page.size() < limit; i++) {
+                page.add(materialize(sorted[i]));
+            }
+            return page;
+        }
+
+        @Override
+        public List<Task> toList() {
+            return page(0, Integer.MAX_VALUE);
+        }
+
+        private int[] sortedRows() {
+            if (builtAt == modCount) {
+                return rows;
+            }
+            long[] keys = new long[liveCount];
+            int count = 0;
+            for (int row = 0; row < rowCount; row++) {
+                if (status[row] != DELETED) {
+                    keys[count++] = order == TaskOrder.PRIORITY ? ((long) priority[row] << 32) | row : dateKey(row);
+                }
+            }
+            Arrays.sort(keys, 0, count);
+            int[] sorted = new int[count];
+            if (order == TaskOrder.PRIORITY_THEN_DUE_DATE) {
+                // Stable counting pass by priority over rows already in date order
+                int[] starts = new int[Priority.values().length + 1];
+                for (int i = 0; i < count; i++) {
+                    starts[priority[rowOf(keys[i])] + 1]++;
+                }
+                for (int level = 1; level < starts.length; level++) {
+                    starts[level] += starts[level - 1];
+                }
+                for (int i = 0; i < count; i++) {
+                    int row = rowOf(keys[i]);
+                    sorted[starts[priority[row]]++] = row;
+                }
+            } else {
+                for (int i = 0; i < count; i++) {
+                    sorted[i] = rowOf(keys[i]);
+                }
+            }
+            rows = sorted;
+            builtAt = modCount;
+            return rows;
+        }
+
+        /**
+         * Compares a row with a task using this view's order, reading the row's columns directly.
+         */
+        private int compareRowTo(int row, Task task) {
+            int result = 0;
+            if (order != TaskOrder.DUE_DATE) {
+                result = Integer.compare(priority[row], task.getPriorityRank());
+            }
+            if (result == 0 && order != TaskOrder.PRIORITY) {
+                result = Long.compare(dueDay[row], task.getDueDate().toEpochDay());
+            }
+            return result != 0 ? result : Long.compare(sequence[row], task.getSequence());
+        }
+    }
+
+    /**
+     * An open-addressing hash index from a 128-bit ID to a row number, using linear probing
+     * and backward-shift deletion so no key objects or tombstones are needed.
+     */
+    private static final class IdIndex {
+
+        private long[] highs;
+        private long[] lows;
+        private int[] rows;
+        private int size;
+
+        IdIndex() {
+            resize(INITIAL_CAPACITY);
+        }
+
+        int get(long high, long low) {
+            int mask = rows.length - 1;
+            for (int slot = home(high, low, mask); rows[slot] >= 0; slot = (slot + 1) & mask) {
+                if (highs[slot] == high && lows[slot] == low) {
+                    return rows[slot];
+                }
+            }
+            return -1;
+        }
+
+        void put(long high, long low, int row) {
+            if ((size + 1) * 2 > rows.length) {
+                resize(rows.length * 2);
+            }
+            int mask = rows.length - 1;
+            int slot = home(high, low, mask);
+            while (rows[slot] >= 0) {
+                if (highs[slot] == high && lows[slot] == low) {
+                    rows[slot] = row;
+                    return;
+                }
+                slot = (slot + 1) & mask;
+            }
+            highs[slot] = high;
+            lows[slot] = low;
+            rows[slot] = row;
+            size++;
+        }
+
+        void remove(long high, long low) {
+            int mask = rows.length - 1;
+            int slot = home(high, low, mask);
+            while (rows[slot] >= 0 && !(highs[slot] == high && lows[slot] == low)) {
+                slot = (slot + 1) & mask;
+            }
+            if (rows[slot] < 0) {
+                return;
+            }
+            rows[slot] = -1;
+            size--;
+            // Shift later entries of the probe run back so lookups never stop at the gap
+            int gap = slot;
+            for (int next = (gap + 1) & mask; rows[next] >= 0; next = (next + 1) & mask) {
+                int wanted = home(highs[next], lows[next], mask);
+                boolean stays = gap <= next ? (gap < wanted && wanted <= next) : (gap < wanted || wanted <= next);
+                if (!stays) {
+                    highs[gap] = highs[next];
+                    lows[gap] = lows[next];
+                    rows[gap] = rows[next];
+                    rows[next] = -1;
+                    gap = next;
+                }
+            }
+        }
+
+        void clear() {
+            Arrays.fill(rows, -1);
+            size = 0;
+        }
+
+        private void resize(int capacity) {
+            long[] oldHighs = highs;
+            long[] oldLows = lows;
+            int[] oldRows = rows;
+            highs = new long[capacity];
+            lows = new long[capacity];
+            rows = new int[capacity];
+            Arrays.fill(rows, -1);
+            size = 0;
+            if (oldRows != null) {
+                for (int i = 0; i < oldRows.length; i++) {
+                    if (oldRows[i] >= 0) {
+                        put(oldHighs[i], oldLows[i], oldRows[i]);
+                    }
+                }
+            }
+        }
+
+        private static int home(long high, long low, int mask) {
+            // Murmur3 finalizer, so sequential IDs spread across the table
+            long h = high * 31 + low;
+            h ^= h >>> 33;
+            h *= 0xff51afd7ed558ccdL;
+            h ^= h >>> 33;
+            return (int) h & mask;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package taskbuddy;
+
+import java.util.UUID;
+
+/**
+ * An immutable identifier for tasks and categories, held as two primitive longs.
+ * IDs from the default sequential generator only use the low 64 bits and render as
+ * short decimal numbers; 128-bit IDs (time-ordered IDs and imported UUIDs) render in
+ * the usual UUID form. IDs are only turned into strings at the UI/CLI boundary.
+ */
+public final class CompactId implements Comparable<CompactId> {
+
+    private final long high;
+    private final long low;
+
+    public CompactId(long high, long low) {
+        this.high = high;
+        this.low = low;
+    }
+
+    /**
+     * Creates a 64-bit ID.
+     */
+    public static CompactId of(long value) {
+        return new CompactId(0L, value);
+    }
+
+    /**
+     * Parses an ID from either its short decimal form or a UUID string.
+     * @param text the text to parse.
+     * @return the parsed ID, or null if the text is not a valid ID.
+     */
+    public static CompactId parse(String text) {
+        if (text == null) {
+            return null;
+        }
+        String trimmed = text.trim();
+        try {
+            if (trimmed.indexOf('-') > 0) {
+                UUID uuid = UUID.fromString(trimmed);
+                return new CompactId(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+            }
+            long value = Long.parseLong(trimmed);
+            return value < 0 ? null : of(value);
+        } catch (IllegalArgumentException e) {
+            // NumberFormatException is an IllegalArgumentException too
+            return null;
+        }
+    }
+
+    public long getHigh() {
+        return high;
+    }
+
+    public long getLow() {
+        return low;
+    }
+
+    /**
+     * Checks whether this ID fits in 64 bits (and so renders in the short form).
+     */
+    public boolean isCompact() {
+        return high == 0L;
+    }
+
+    @Override
+    public int compareTo(CompactId other) {
+        int result = Long.compareUnsigned(high, other.high);
+        return result != 0 ? result : Long.compareUnsigned(low, other.low);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        CompactId other = (CompactId) o;
+        return high == other.high && low == other.low;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Long.hashCode(high) + Long.hashCode(low);
+    }
+
+    @Override
+    public String toString() {
+        return isCompact() ? Long.toString(low) : new UUID(high, low).toString();
+    }
+}
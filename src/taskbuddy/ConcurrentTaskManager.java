@@ -0,0 +1,587 @@
+package taskbuddy;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+import java.util.function.IntSupplier;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * A thread-safe TaskManager, for sharing tasks between a background loader, an API thread
+ * and the Swing event thread. It wraps a plain TaskManager, which must not be used directly
+ * once wrapped.
+ * <p>
+ * <b>Writers</b> (every add, update, remove, complete, batch and journal call) are serialized
+ * by the write lock of a StampedLock. Each one takes effect atomically at the moment the
+ * wrapped TaskManager publishes its next ImmutableTaskList, so all writes happen in one total order.
+ * <p>
+ * <b>Snapshot reads</b> (getAllTasks, findTask, getSnapshot and the views) read the latest
+ * published ImmutableTaskList, which costs one volatile read and takes no lock. A read returns
+ * exactly the state after the write that published the version it read, so it is linearizable
+ * at that read. A view's order is filled in once per version, on first use: copied from the
+ * store's own view if no write is in progress, or sorted otherwise.
+ * <p>
+ * <b>Filters and sorts</b> (the filters, sorts, date queries and getNextTasks) never wait for
+ * a writer. If the read lock is free they run on the wrapped TaskManager's indexes, costing what
+ * they cost there; while a write is in progress they scan the latest published version instead,
+ * which gives the same answer a moment after the write took effect. A store that cannot be read
+ * by several threads at once (ColumnarTaskStore sorts and decodes as it reads) is only read with
+ * the write lock free, so concurrent readers of such a store scan too.
+ * <p>
+ * <b>Indexed reads</b> (text search, planned queries and statistics) run on the wrapped
+ * TaskManager's indexes under the read lock, so they never wait for each other, only for a
+ * write in progress. The first search or query with words builds the word index, and the first
+ * getStatistics the counters; those take the write lock, as does every read of a store that
+ * cannot be read by several threads at once.
+ * <p>
+ * <b>Counts</b> (getTaskCount, countTasksByStatus, countTasksByCategory) are O(1) optimistic
+ * reads: the count is read without locking and kept only if no writer ran meanwhile; otherwise
+ * it is read again under the read lock. Either way it matches some instant with no write in
+ * progress, so counts are linearizable too.
+ * <p>
+ * Tasks are immutable, so returned tasks never change. Events are delivered on the writing thread while
+ * it holds the lock, so the event sink must be thread-safe and quick.
+ */
+public class ConcurrentTaskManager {
+
+    private final TaskManager delegate;
+    private final StampedLock lock = new StampedLock();
+
+    // The sorted orders computed for the latest version read; replaced when a newer one is seen
+    private volatile Snapshot snapshot;
+
+    public ConcurrentTaskManager() {
+        this(new TaskManager());
+    }
+
+    /**
+     * Wraps an existing TaskManager. The TaskManager must only be used through this wrapper from now on.
+     */
+    public ConcurrentTaskManager(TaskManager delegate) {
+        this.delegate = delegate;
+        this.snapshot = new Snapshot(delegate.getSnapshot());
+    }
+
+    // --- Writes -------------------------------------------------------------------------------
+
+    public TaskResult addTask(String title, String description, LocalDate dueDate, Priority priority, Status status, Category category) {
+        long stamp = lock.writeLock();
+        try {
+            return delegate.addTask(title, description, dueDate, priority, status, category);
+        } finally {
+            publish(stamp);
+        }
+    }
+
+    /**
+     * @see TaskManager#addTasks(List)
+     */
+    public List<String> addTasks(List<TaskDraft> drafts) {
+        long stamp = lock.writeLock();
+        try {
+            return delegate.addTasks(drafts);
+        } finally {
+            publish(stamp);
+        }
+    }
+
+    /**
+     * @see TaskManager#applyBatch(List)
+     */
+    public BatchResult applyBatch(List<TaskOperation> operations) {
+        long stamp = lock.writeLock();
+        try {
+            return delegate.applyBatch(operations);
+        } finally {
+            publish(stamp);
+        }
+    }
+
+    public TaskResult removeTask(String taskId) {
+        long stamp = lock.writeLock();
+        try {
+            return delegate.removeTask(taskId);
+        } finally {
+            publish(stamp);
+        }
+    }
+
+    public TaskResult removeTask(CompactId taskId) {
+        long stamp = lock.writeLock();
+        try {
+            return delegate.removeTask(taskId);
+        } finally {
+            publish(stamp);
+        }
+    }
+
+    public TaskResult updateTask(String taskId, String title, String description, LocalDate dueDate, Priority priority, Status status, Category category) {
+        long stamp = lock.writeLock();
+        try {
+            return delegate.updateTask(taskId, title, description, dueDate, priority, status, category);
+        } finally {
+            publish(stamp);
+        }
+    }
+
+    public TaskResult updateTask(CompactId taskId, String title, String description, LocalDate dueDate, Priority priority, Status status, Category category) {
+        long stamp = lock.writeLock();
+        try {
+            return delegate.updateTask(taskId, title, description, dueDate, priority, status, category);
+        } finally {
+            publish(stamp);
+        }
+    }
+
+    /**
+     * Updates a task only if it is still at the expected version; the check and the write
+     * happen under one write lock, so this is a compare-and-set.
+     * @see TaskManager#updateTask(CompactId, int, String, String, LocalDate, Priority, Status, Category)
+     */
+    public TaskResult updateTask(CompactId taskId, int expectedVersion, String title, String description, LocalDate dueDate, Priority priority, Status status, Category category) {
+        long stamp = lock.writeLock();
+        try {
+            return delegate.updateTask(taskId, expectedVersion, title, description, dueDate, priority, status, category);
+        } finally {
+            publish(stamp);
+        }
+    }
+
+    public TaskResult patchTask(CompactId taskId, TaskPatch patch) {
+        long stamp = lock.writeLock();
+        try {
+            return delegate.patchTask(taskId, patch);
+        } finally {
+            publish(stamp);
+        }
+    }
+
+    /**
+     * @see TaskManager#patchTask(CompactId, int, TaskPatch)
+     */
+    public TaskResult patchTask(CompactId taskId, int expectedVersion, TaskPatch patch) {
+        long stamp = lock.writeLock();
+        try {
+            return delegate.patchTask(taskId, expectedVersion, patch);
+        } finally {
+            publish(stamp);
+        }
+    }
+
+    public TaskResult markTaskAsCompleted(String taskId) {
+        long stamp = lock.writeLock();
+        try {
+            return delegate.markTaskAsCompleted(taskId);
+        } finally {
+            publish(stamp);
+        }
+    }
+
+    public TaskResult markTaskAsCompleted(CompactId taskId) {
+        long stamp = lock.writeLock();
+        try {
+            return delegate.markTaskAsCompleted(taskId);
+        } finally {
+            publish(stamp);
+        }
+    }
+
+    public TaskResult markTaskAsCompleted(CompactId taskId, int expectedVersion) {
+        long stamp = lock.writeLock();
+        try {
+            return delegate.markTaskAsCompleted(taskId, expectedVersion);
+        } finally {
+            publish(stamp);
+        }
+    }
+
+    public boolean renameCategory(Category category, String newName) {
+        long stamp = lock.writeLock();
+        try {
+            return delegate.renameCategory(category, newName);
+        } finally {
+            publish(stamp);
+        }
+    }
+
+    /**
+     * Sets where events go. The sink is called by whichever thread makes a change, so it must be thread-safe.
+     */
+    public void setEventSink(TaskEventSink sink) {
+        long stamp = lock.writeLock();
+        try {
+            delegate.setEventSink(sink);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * @see TaskManager#attachJournal(TaskJournal)
+     */
+    public int attachJournal(TaskJournal journal) throws IOException {
+        long stamp = lock.writeLock();
+        try {
+            return delegate.attachJournal(journal);
+        } finally {
+            publish(stamp);
+        }
+    }
+
+    public void closeJournal() {
+        long stamp = lock.writeLock();
+        try {
+            delegate.closeJournal();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // --- Categories ---------------------------------------------------------------------------
+
+    /**
+     * Gets the category registry; it is synchronized, so it can be used from any thread.
+     */
+    public CategoryRegistry getCategoryRegistry() {
+        return delegate.getCategoryRegistry();
+    }
+
+    public Category findCategory(int categoryId) {
+        return delegate.findCategory(categoryId);
+    }
+
+    public Category findCategory(String categoryName) {
+        return delegate.findCategory(categoryName);
+    }
+
+    // --- Snapshot reads -----------------------------------------------------------------------
+
+    public Task findTask(String taskId) {
+        return findTask(CompactId.parse(taskId));
+    }
+
+    public Task findTask(CompactId taskId) {
+        return snapshot().list.find(taskId);
+    }
+
+    /**
+     * Gets the latest published version of every task, without locking or copying.
+     */
+    public ImmutableTaskList getSnapshot() {
+        return snapshot().list;
+    }
+
+    public List<Task> getAllTasks() {
+        return getSnapshot();
+    }
+
+    public List<Task> listAllTasks() {
+        return getAllTasks();
+    }
+
+    /**
+     * Gets an immutable view of all tasks ordered by due date. Unlike TaskManager's views it
+     * does not change, so it can be paged safely while other threads write.
+     */
+    public SortedTaskView getTasksByDueDateView() {
+        return snapshot().view(TaskOrder.DUE_DATE);
+    }
+
+    public SortedTaskView getTasksByPriorityView() {
+        return snapshot().view(TaskOrder.PRIORITY);
+    }
+
+    public SortedTaskView getTasksByPriorityThenDueDateView() {
+        return snapshot().view(TaskOrder.PRIORITY_THEN_DUE_DATE);
+    }
+
+    // --- Indexed reads ------------------------------------------------------------------------
+
+    public List<Task> sortTasksByDueDate() {
+        return readOrScan(delegate::sortTasksByDueDate, latest -> latest.select(TaskOrder.DUE_DATE, task -> true));
+    }
+
+    public List<Task> sortTasksByPriority() {
+        return readOrScan(delegate::sortTasksByPriority, latest -> latest.select(TaskOrder.PRIORITY, task -> true));
+    }
+
+    public List<Task> getTasksDueBefore(LocalDate date) {
+        if (date == null) {
+            return read(() -> delegate.getTasksDueBefore(date));
+        }
+        return readOrScan(() -> delegate.getTasksDueBefore(date),
+            latest -> latest.select(TaskOrder.DUE_DATE, task -> task.getDueDate().isBefore(date)));
+    }
+
+    public List<Task> getTasksDueBetween(LocalDate from, LocalDate to) {
+        if (from == null || to == null) {
+            return read(() -> delegate.getTasksDueBetween(from, to));
+        }
+        return readOrScan(() -> delegate.getTasksDueBetween(from, to), latest -> latest.select(TaskOrder.DUE_DATE,
+            task -> !task.getDueDate().isBefore(from) && !task.getDueDate().isAfter(to)));
+    }
+
+    public List<Task> getOverdueTasks(LocalDate asOf) {
+        if (asOf == null) {
+            return read(() -> delegate.getOverdueTasks(asOf));
+        }
+        return readOrScan(() -> delegate.getOverdueTasks(asOf),
+            latest -> latest.select(TaskOrder.DUE_DATE, task -> !task.isCompleted() && task.getDueDate().isBefore(asOf)));
+    }
+
+    public List<Task> getNextTasks(int k) {
+        return readOrScan(() -> delegate.getNextTasks(k), latest -> {
+            List<Task> next = latest.select(TaskOrder.PRIORITY_THEN_DUE_DATE, task -> !task.isCompleted());
+            return new ArrayList<>(next.subList(0, Math.max(0, Math.min(k, next.size()))));
+        });
+    }
+
+    public List<Task> filterTasksByCategory(Category category) {
+        if (category == null) {
+            return read(() -> delegate.filterTasksByCategory(category));
+        }
+        return readOrScan(() -> delegate.filterTasksByCategory(category), latest -> latest.select(task -> task.getCategory().equals(category)));
+    }
+
+    public List<Task> filterTasksByStatus(Status status) {
+        if (status == null) {
+            return read(() -> delegate.filterTasksByStatus(status));
+        }
+        return readOrScan(() -> delegate.filterTasksByStatus(status), latest -> latest.select(task -> task.getStatus() == status));
+    }
+
+    public List<Task> getCompletedTasks() {
+        return filterTasksByStatus(Status.COMPLETED);
+    }
+
+    public List<Task> getIncompleteTasks() {
+        return readOrScan(delegate::getIncompleteTasks, latest -> latest.select(task -> !task.isCompleted()));
+    }
+
+    /**
+     * The first search builds the word index, under the write lock.
+     * @see TaskManager#search(String, int)
+     */
+    public List<Task> search(String query, int limit) {
+        return read(delegate::isSearchIndexed, () -> delegate.search(query, limit));
+    }
+
+    /**
+     * A query with words builds the word index first if no search has, under the write lock.
+     * @see TaskManager#query(TaskQuery)
+     */
+    public List<Task> query(TaskQuery query) {
+        return read(() -> delegate.isSharedReadSafe() && delegate.isIndexedFor(query), () -> delegate.query(query));
+    }
+
+    /**
+     * @see TaskManager#queryPage(TaskQuery, String)
+     */
+    public TaskPage queryPage(TaskQuery query, String cursor) {
+        return read(() -> delegate.isSharedReadSafe() && delegate.isIndexedFor(query), () -> delegate.queryPage(query, cursor));
+    }
+
+    // --- Statistics ---------------------------------------------------------------------------
+
+    /**
+     * The first call builds the counters, under the write lock.
+     * @see TaskManager#getStatistics()
+     */
+    public TaskStatistics getStatistics() {
+        return read(delegate::isStatisticsTracked, delegate::getStatistics);
+    }
+
+    // --- Optimistic counts --------------------------------------------------------------------
+
+    public int getTaskCount() {
+        return readCount(delegate::getTaskCount);
+    }
+
+    public int countTasksByStatus(Status status) {
+        return readCount(() -> delegate.countTasksByStatus(status));
+    }
+
+    public int countTasksByCategory(Category category) {
+        return readCount(() -> delegate.countTasksByCategory(category));
+    }
+
+    /**
+     * Reads a count optimistically, falling back to the read lock if a writer ran meanwhile.
+     * The stores' counts are plain field and array reads, so a torn read can only give a wrong
+     * number or an exception, both of which are discarded.
+     */
+    private int readCount(IntSupplier count) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                int result = count.getAsInt();
+                if (lock.validate(stamp)) {
+                    return result;
+                }
+            } catch (RuntimeException e) {
+                // Raced with a writer; read again under the lock
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            return count.getAsInt();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    // --- Internals ----------------------------------------------------------------------------
+
+    private <T> T read(Supplier<T> read) {
+        return read(delegate::isSharedReadSafe, read);
+    }
+
+    /**
+     * Reads the wrapped TaskManager under the read lock, so readers share it and only wait for
+     * a write in progress. If ready says the read would change something (build an index, or
+     * read a store that caches as it reads), it runs under the write lock instead.
+     */
+    private <T> T read(BooleanSupplier ready, Supplier<T> read) {
+        long stamp = lock.readLock();
+        try {
+            if (ready.getAsBoolean()) {
+                return read.get();
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        stamp = lock.writeLock();
+        try {
+            return read.get();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Reads the wrapped TaskManager's indexes if the lock can be had without waiting; while a
+     * write is in progress, answers from the latest published version instead, in the same
+     * order. The scan costs O(n), plus a sort the first time an order is needed for a version.
+     * A store that cannot be read by several threads at once is read under the write lock, so
+     * a second reader scans too.
+     */
+    private List<Task> readOrScan(Supplier<List<Task>> indexed, Function<Snapshot, List<Task>> scan) {
+        long stamp = delegate.isSharedReadSafe() ? lock.tryReadLock() : lock.tryWriteLock();
+        if (stamp == 0) {
+            return scan.apply(snapshot());
+        }
+        try {
+            return indexed.get();
+        } finally {
+            lock.unlock(stamp);
+        }
+    }
+
+    /**
+     * Releases the write lock, first making sure the wrapped TaskManager has a published
+     * version (a journal replay discards it, and this rebuilds it before anyone can read).
+     */
+    private void publish(long stamp) {
+        try {
+            delegate.getSnapshot();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Gets the sorted-order cache for the latest published version, starting a new one if a
+     * write has happened since.
+     */
+    private Snapshot snapshot() {
+        ImmutableTaskList latest = delegate.publishedSnapshot();
+        Snapshot current = snapshot;
+        if (latest == null || current.list == latest) {
+            // null only while a journal replay is in progress; the last version is still consistent
+            return current;
+        }
+        current = new Snapshot(latest);
+        snapshot = current;
+        return current;
+    }
+
+    /**
+     * Copies a version's tasks in an order. While the version is still the latest and the read
+     * lock is free, this copies the store's view, which is already in order, in O(n); otherwise
+     * the version is sorted, so a view never waits for a writer.
+     */
+    private Task[] sortedCopy(ImmutableTaskList list, TaskOrder order) {
+        long stamp = delegate.isSharedReadSafe() ? lock.tryReadLock() : 0;
+        if (stamp != 0) {
+            try {
+                if (delegate.publishedSnapshot() == list) {
+                    return delegate.view(order).toList().toArray(new Task[0]);
+                }
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        Task[] copy = list.toArray(new Task[0]);
+        Arrays.sort(copy, order.comparator());
+        return copy;
+    }
+
+    /**
+     * One published version, with its sorted orders filled in on first use (racing readers
+     * just compute the same value twice).
+     */
+    private final class Snapshot {
+        final ImmutableTaskList list;
+        private final AtomicReferenceArray<Task[]> sorted = new AtomicReferenceArray<>(TaskOrder.values().length);
+
+        Snapshot(ImmutableTaskList list) {
+            this.list = list;
+        }
+
+        Task[] sorted(TaskOrder order) {
+            Task[] result = sorted.get(order.ordinal());
+            if (result == null) {
+                result = sortedCopy(list, order);
+                sorted.set(order.ordinal(), result);
+            }
+            return result;
+        }
+
+        SortedTaskView view(TaskOrder order) {
+            return new ArrayTaskView(sorted(order), order.comparator());
+        }
+
+        /**
+         * The tasks passing the test, in insertion order.
+         */
+        List<Task> select(Predicate<Task> test) {
+            List<Task> selected = new ArrayList<>();
+            for (Task task : list) {
+                if (test.test(task)) {
+                    selected.add(task);
+                }
+            }
+            return selected;
+        }
+
+        /**
+         * The tasks passing the test, in the given order.
+         */
+        List<Task> select(TaskOrder order, Predicate<Task> test) {
+            List<Task> selected = new ArrayList<>();
+            for (Task task : sorted(order)) {
+                if (test.test(task)) {
+                    selected.add(task);
+                }
+            }
+            return selected;
+        }
+    }
+}
@@ -0,0 +1,423 @@
+package taskbuddy;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * The default TaskStore: one Task object per task, with every query served from an index.
+ * All indexes are updated on add, update and remove, so point lookups, counts and filters
+ * cost O(1) or O(result size) and sorted views are maintained in O(log n).
+ * <p>
+ * Loading a snapshot into an empty store leaves titles and descriptions in the mapped file
+ * until each task's are first read, and builds every index from sorted runs in one pass.
+ */
+public class HeapTaskStore implements TaskStore {
+
+    // Index buckets keep insertion order, so filters return tasks in the same order as a full scan
+    private static final Comparator<Task> BY_SEQUENCE = Comparator.comparingLong(Task::getSequence);
+
+    // Primary index keyed by task ID; a LinkedHashMap keeps insertion order for iteration
+    private final Map<CompactId, Task> tasks;
+    
+    // Secondary indexes: status -> tasks, and category ID (list index) -> tasks.
+    // They are kept in step with the primary index by every mutation below; since tasks are
+    // immutable, an update swaps the old Task for the new one in every index.
+    private final Map<Status, NavigableSet<Task>> tasksByStatus;
+    private final List<NavigableSet<Task>> tasksByCategory;
+    
+    // Date-ordered index: due date as epoch day -> tasks due that day, for range queries
+    private final NavigableMap<Long, NavigableSet<Task>> tasksByDueDay;
+    
+    // Live sorted views, one per TaskOrder
+    private final Map<TaskOrder, TreeTaskView> views;
+    // Incomplete tasks only, most urgent first (priority, then due date); backs findMostUrgent()
+    private final TreeTaskView incompleteByUrgency;
+
+    public HeapTaskStore() {
+        this.tasks = new LinkedHashMap<>();
+        this.tasksByStatus = new EnumMap<>(Status.class);
+        this.tasksByCategory = new ArrayList<>();
+        this.tasksByDueDay = new TreeMap<>();
+        this.views = new EnumMap<>(TaskOrder.class);
+        for (TaskOrder order : TaskOrder.values()) {
+            views.put(order, new TreeTaskView(order.comparator()));
+        }
+        this.incompleteByUrgency = new TreeTaskView(TaskOrder.PRIORITY_THEN_DUE_DATE.comparator());
+    }
+
+    @Override
+    public int size() {
+        return tasks.size();
+    }
+
+    @Override
+    public Task get(CompactId id) {
+        return tasks.get(id);
+    }
+
+    @Override
+    public void add(Task task) {
+        tasks.put(task.getId(), task);
+        indexTask(task);
+    }
+
+    /**
+     * Loads a snapshot in O(n) plus one sort per view: tasks arrive in insertion order, which
+     * is already the order of every bucket, so each index is built in one pass rather than by
+     * n O(log n) inserts. Titles and descriptions are decoded from the snapshot on first read.
+     */
+    @Override
+    public void load(TaskSnapshot snapshot, Category[] categories, long firstSequence) {
+        if (!tasks.isEmpty()) {
+            TaskStore.super.load(snapshot, categories, firstSequence);
+            return;
+        }
+        int count = snapshot.size();
+        List<Task> loaded = new ArrayList<>(count);
+        Map<Status, List<Task>> byStatus = new EnumMap<>(Status.class);
+        Map<Integer, List<Task>> byCategory = new TreeMap<>();
+        Map<Long, List<Task>> byDueDay = new TreeMap<>();
+        for (int i = 0; i < count; i++) {
+            Task task = snapshot.getLazyTask(i, categories, firstSequence + i);
+            loaded.add(task);
+            tasks.put(task.getId(), task);
+            byStatus.computeIfAbsent(task.getStatus(), k -> new ArrayList<>()).add(task);
+            byCategory.computeIfAbsent(task.getCategory().getCategoryId(), k -> new ArrayList<>()).add(task);
+            byDueDay.computeIfAbsent(task.getDueDate().toEpochDay(), k -> new ArrayList<>()).add(task);
+        }
+        for (Map.Entry<Status, List<Task>> bucket : byStatus.entrySet()) {
+            tasksByStatus.put(bucket.getKey(), TreeTaskView.treeOf(bucket.getValue(), BY_SEQUENCE));
+        }
+        for (Map.Entry<Integer, List<Task>> bucket : byCategory.entrySet()) {
+            while (tasksByCategory.size() <= bucket.getKey()) {
+                tasksByCategory.add(null);
+            }
+            tasksByCategory.set(bucket.getKey(), TreeTaskView.treeOf(bucket.getValue(), BY_SEQUENCE));
+        }
+        for (Map.Entry<Long, List<Task>> bucket : byDueDay.entrySet()) {
+            tasksByDueDay.put(bucket.getKey(), TreeTaskView.treeOf(bucket.getValue(), BY_SEQUENCE));
+        }
+        for (Map.Entry<TaskOrder, TreeTaskView> view : views.entrySet()) {
+            List<Task> sorted = new ArrayList<>(loaded);
+            sorted.sort(view.getKey().comparator());
+            view.getValue().addAllSorted(sorted);
+            if (view.getKey() == TaskOrder.PRIORITY_THEN_DUE_DATE) {
+                // The urgency index uses the same order, restricted to incomplete tasks
+                sorted.removeIf(Task::isCompleted);
+                incompleteByUrgency.addAllSorted(sorted);
+            }
+        }
+    }
+
+    @Override
+    public Task update(CompactId id, String title, String description, LocalDate dueDate, Priority priority, Status status, Category category) {
+        Task old = tasks.get(id);
+        if (old == null) {
+            return null;
+        }
+        Task updated = new Task(id, title, description, dueDate, priority, status, category, old.getSequence(), old.getVersion() + 1);
+        unindexTask(old);
+        // put() on an existing key keeps the task's place in insertion order
+        tasks.put(id, updated);
+        indexTask(updated);
+        return updated;
+    }
+
+    @Override
+    public Task remove(CompactId id) {
+        Task removed = tasks.remove(id);
+        if (removed != null) {
+            unindexTask(removed);
+        }
+        return removed;
+    }
+
+    @Override
+    public Iterator<Task> iterator() {
+        return Collections.unmodifiableCollection(tasks.values()).iterator();
+    }
+
+    @Override
+    public List<Task> findByStatus(Status status) {
+        return new ArrayList<>(tasksByStatus.getOrDefault(status, Collections.emptyNavigableSet()));
+    }
+
+    @Override
+    public int countByStatus(Status status) {
+        return tasksByStatus.getOrDefault(status, Collections.emptyNavigableSet()).size();
+    }
+
+    /**
+     * Merges every status bucket except Completed back into insertion order.
+     */
+    @Override
+    public List<Task> findIncomplete() {
+        List<Iterator<Task>> buckets = new ArrayList<>();
+        for (Map.Entry<Status, NavigableSet<Task>> entry : tasksByStatus.entrySet()) {
+            if (entry.getKey() != Status.COMPLETED) {
+                buckets.add(entry.getValue().iterator());
+            }
+        }
+        List<Task> incomplete = new ArrayList<>(tasks.size() - countByStatus(Status.COMPLETED));
+        new SequenceMerge(buckets).forEachRemaining(incomplete::add);
+        return incomplete;
+    }
+
+    @Override
+    public List<Task> findByCategory(Category category) {
+        return new ArrayList<>(categoryBucket(category.getCategoryId()));
+    }
+
+    @Override
+    public int countByCategory(Category category) {
+        return categoryBucket(category.getCategoryId()).size();
+    }
+
+    @Override
+    public List<Task> findDueBetween(long fromDay, long toDay) {
+        List<Task> result = new ArrayList<>();
+        if (fromDay > toDay) {
+            return result;
+        }
+        for (NavigableSet<Task> bucket : tasksByDueDay.subMap(fromDay, true, toDay, true).values()) {
+            result.addAll(bucket);
+        }
+        return result;
+    }
+
+    @Override
+    public List<Task> findOverdue(long asOfDay) {
+        List<Task> overdue = new ArrayList<>();
+        for (NavigableSet<Task> bucket : tasksByDueDay.headMap(asOfDay, false).values()) {
+            for (Task task : bucket) {
+                if (!task.isCompleted()) {
+                    overdue.add(task);
+                }
+            }
+        }
+        return overdue;
+    }
+
+    @Override
+    public SortedTaskView view(TaskOrder order) {
+        return views.get(order);
+    }
+
+    /**
+     * Lookups only walk the maps and trees, so any number of threads can read at once.
+     */
+    @Override
+    public boolean isSharedReadSafe() {
+        return true;
+    }
+
+    /**
+     * Seeks into every status bucket in O(log n) and merges them back into insertion order.
+     */
+    @Override
+    public Iterable<Task> scanAfter(long afterSequence) {
+        if (afterSequence < 0) {
+            return this;
+        }
+        return () -> {
+            List<Iterator<Task>> buckets = new ArrayList<>();
+            for (NavigableSet<Task> bucket : tasksByStatus.values()) {
+                buckets.add(tailAfter(bucket, afterSequence).iterator());
+            }
+            return new SequenceMerge(buckets);
+        };
+    }
+
+    @Override
+    public Iterable<Task> scanByStatus(Status status, long afterSequence) {
+        return tailAfter(tasksByStatus.getOrDefault(status, Collections.emptyNavigableSet()), afterSequence);
+    }
+
+    @Override
+    public Iterable<Task> scanByCategory(Category category, long afterSequence) {
+        return tailAfter(categoryBucket(category.getCategoryId()), afterSequence);
+    }
+
+    private static Iterable<Task> tailAfter(NavigableSet<Task> bucket, long afterSequence) {
+        return Collections.unmodifiableNavigableSet(bucket.tailSet(Task.probe(0, 0, afterSequence), false));
+    }
+
+    /**
+     * Walks the due-day index lazily; each day's bucket is already in insertion order.
+     */
+    @Override
+    public Iterable<Task> scanDueBetween(long fromDay, long toDay) {
+        if (fromDay > toDay) {
+            return Collections.emptyList();
+        }
+        Iterable<NavigableSet<Task>> days = tasksByDueDay.subMap(fromDay, true, toDay, true).values();
+        return () -> new Iterator<Task>() {
+            private final Iterator<NavigableSet<Task>> dayIterator = days.iterator();
+            private Iterator<Task> current = Collections.emptyIterator();
+
+            @Override
+            public boolean hasNext() {
+                while (!current.hasNext() && dayIterator.hasNext()) {
+                    current = dayIterator.next().iterator();
+                }
+                return current.hasNext();
+            }
+
+            @Override
+            public Task next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return current.next();
+            }
+        };
+    }
+
+    /**
+     * Sums the day buckets in the range, in O(days with tasks due).
+     */
+    @Override
+    public long estimateDueBetween(long fromDay, long toDay) {
+        if (fromDay > toDay) {
+            return 0;
+        }
+        long count = 0;
+        for (NavigableSet<Task> bucket : tasksByDueDay.subMap(fromDay, true, toDay, true).values()) {
+            count += bucket.size();
+        }
+        return count;
+    }
+
+    /**
+     * Reads the head of a maintained urgency index in O(log n + k).
+     */
+    @Override
+    public List<Task> findMostUrgent(int k) {
+        return incompleteByUrgency.pageAfter(null, k);
+    }
+    
+    /**
+     * Adds a task to every secondary index.
+     */
+    private void indexTask(Task task) {
+        addToIndex(tasksByStatus, task.getStatus(), task);
+        addToCategoryIndex(task);
+        addToIndex(tasksByDueDay, task.getDueDate().toEpochDay(), task);
+        addToSortedViews(task);
+    }
+    
+    /**
+     * Removes a task from every secondary index.
+     */
+    private void unindexTask(Task task) {
+        removeFromIndex(tasksByStatus, task.getStatus(), task);
+        categoryBucket(task.getCategory().getCategoryId()).remove(task);
+        removeFromIndex(tasksByDueDay, task.getDueDate().toEpochDay(), task);
+        removeFromSortedViews(task);
+    }
+    
+    private void addToSortedViews(Task task) {
+        for (TreeTaskView view : views.values()) {
+            view.add(task);
+        }
+        if (!task.isCompleted()) {
+            incompleteByUrgency.add(task);
+        }
+    }
+    
+    private void removeFromSortedViews(Task task) {
+        for (TreeTaskView view : views.values()) {
+            view.remove(task);
+        }
+        incompleteByUrgency.remove(task);
+    }
+    
+    /**
+     * Gets the bucket for a category ID, or an empty set if none exists yet.
+     */
+    private NavigableSet<Task> categoryBucket(int categoryId) {
+        NavigableSet<Task> bucket = categoryId < tasksByCategory.size() ? tasksByCategory.get(categoryId) : null;
+        return bucket != null ? bucket : Collections.emptyNavigableSet();
+    }
+    
+    private void addToCategoryIndex(Task task) {
+        int categoryId = task.getCategory().getCategoryId();
+        while (tasksByCategory.size() <= categoryId) {
+            tasksByCategory.add(null);
+        }
+        if (tasksByCategory.get(categoryId) == null) {
+            tasksByCategory.set(categoryId, new TreeSet<>(BY_SEQUENCE));
+        }
+        tasksByCategory.get(categoryId).add(task);
+    }
+    
+    private static <K> void addToIndex(Map<K, NavigableSet<Task>> index, K key, Task task) {
+        index.computeIfAbsent(key, k -> new TreeSet<>(BY_SEQUENCE)).add(task);
+    }
+    
+    private static <K> void removeFromIndex(Map<K, NavigableSet<Task>> index, K key, Task task) {
+        NavigableSet<Task> bucket = index.get(key);
+        if (bucket != null) {
+            bucket.remove(task);
+            if (bucket.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Merges iterators that are each in insertion order into one, in insertion order.
+     */
+    private static final class SequenceMerge implements Iterator<Task> {
+
+        private final List<Iterator<Task>> sources;
+        private final Task[] heads;
+
+        SequenceMerge(List<Iterator<Task>> sources) {
+            this.sources = sources;
+            this.heads = new Task[sources.size()];
+            for (int i = 0; i < heads.length; i++) {
+                heads[i] = sources.get(i).hasNext() ? sources.get(i).next() : null;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            for (Task head : heads) {
+                if (head != null) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public Task next() {
+            int earliest = -1;
+            for (int i = 0; i < heads.length; i++) {
+                if (heads[i] != null && (earliest < 0 || heads[i].getSequence() < heads[earliest].getSequence())) {
+                    earliest = i;
+                }
+            }
+            if (earliest < 0) {
+                throw new NoSuchElementException();
+            }
+            Task task = heads[earliest];
+            Iterator<Task> source = sources.get(earliest);
+            heads[earliest] = source.hasNext() ? source.next() : null;
+            return task;
+        }
+    }
+}
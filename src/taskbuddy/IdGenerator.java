@@ -0,0 +1,20 @@
+package taskbuddy;
+
+/**
+ * Creates IDs for new tasks and categories. TaskManager takes one in its constructor,
+ * so the ID scheme can be swapped without touching the rest of the code.
+ */
+public interface IdGenerator {
+
+    /**
+     * Creates a new ID that has not been handed out by this generator before.
+     */
+    CompactId nextId();
+
+    /**
+     * Tells the generator about an ID that already exists (for example one loaded from
+     * storage), so it never hands the same ID out again. The default does nothing.
+     */
+    default void observe(CompactId existing) {
+    }
+}
@@ -0,0 +1,126 @@
+package taskbuddy;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+
+/**
+ * A point-in-time, read-only list of every task, in insertion order.
+ * <p>
+ * TaskManager publishes a new version after each change. Versions are persistent: each is two
+ * PersistentTrees (by insertion sequence and by ID) that share every unchanged node with the
+ * version before, so publishing costs O(log n) and handing a version to a reader costs nothing.
+ * Tasks are immutable, so a version never changes after it is published and can be read from
+ * any thread. Only category names are not captured, since categories are renamed in place.
+ * <p>
+ * get(int), find(CompactId) and positionOf(CompactId) are O(log n); iteration is O(1) per task.
+ */
+public final class ImmutableTaskList extends AbstractList<Task> {
+
+    private static final Comparator<Long> BY_SEQUENCE = Long::compare;
+
+    private final long version;
+    private final PersistentTree<Long, Task> bySequence;
+    private final PersistentTree<CompactId, Task> byId;
+
+    private ImmutableTaskList(long version, PersistentTree<Long, Task> bySequence, PersistentTree<CompactId, Task> byId) {
+        this.version = version;
+        this.bySequence = bySequence;
+        this.byId = byId;
+    }
+
+    /**
+     * Builds a version from tasks in insertion order, in O(n log n) for the ID sort.
+     * @param count the number of tasks the iterable will return.
+     */
+    static ImmutableTaskList of(Iterable<Task> tasks, int count, long version) {
+        Long[] sequences = new Long[count];
+        Task[] inOrder = new Task[count];
+        int i = 0;
+        for (Task task : tasks) {
+            sequences[i] = task.getSequence();
+            inOrder[i++] = task;
+        }
+        Task[] sortedById = inOrder.clone();
+        Arrays.sort(sortedById, (a, b) -> a.getId().compareTo(b.getId()));
+        CompactId[] ids = new CompactId[count];
+        for (i = 0; i < count; i++) {
+            ids[i] = sortedById[i].getId();
+        }
+        return new ImmutableTaskList(version,
+            PersistentTree.fromSorted(BY_SEQUENCE, sequences, inOrder, count),
+            PersistentTree.fromSorted(CompactId::compareTo, ids, sortedById, count));
+    }
+
+    /**
+     * Gets the version number; a higher number was published later.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Finds a task by ID in this version.
+     * @return the task, or null if it is not in this version.
+     */
+    public Task find(CompactId id) {
+        return id == null ? null : byId.get(id);
+    }
+
+    /**
+     * Gets the position of a task in this version by ID, in O(log n).
+     * @return the index, or -1 if the task is not in this version.
+     */
+    public int positionOf(CompactId id) {
+        Task task = find(id);
+        return task == null ? -1 : bySequence.indexOf(task.getSequence());
+    }
+
+    /**
+     * Finds a task by ID (tasks are equal when their IDs are), in O(log n).
+     */
+    @Override
+    public int indexOf(Object o) {
+        return o instanceof Task task ? positionOf(task.getId()) : -1;
+    }
+
+    @Override
+    public int lastIndexOf(Object o) {
+        return indexOf(o);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return indexOf(o) >= 0;
+    }
+
+    @Override
+    public Task get(int index) {
+        return bySequence.getAt(index);
+    }
+
+    @Override
+    public int size() {
+        return bySequence.size();
+    }
+
+    @Override
+    public Iterator<Task> iterator() {
+        return bySequence.values();
+    }
+
+    /**
+     * Returns the next version with a new task, or an existing task replaced by one with the same ID.
+     */
+    ImmutableTaskList withTask(Task task, long newVersion) {
+        return new ImmutableTaskList(newVersion, bySequence.put(task.getSequence(), task), byId.put(task.getId(), task));
+    }
+
+    /**
+     * Returns the next version without the given task.
+     */
+    ImmutableTaskList without(Task task, long newVersion) {
+        return new ImmutableTaskList(newVersion, bySequence.remove(task.getSequence()), byId.remove(task.getId()));
+    }
+}
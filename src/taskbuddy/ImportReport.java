@@ -0,0 +1,48 @@
+package taskbuddy;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The outcome of a bulk import: how many rows were added, and why the others were rejected.
+ * Only the first MAX_MESSAGES error messages are kept, so a bad file cannot use unbounded memory.
+ */
+public class ImportReport {
+    static final int MAX_MESSAGES = 100;
+
+    private int imported;
+    private int rejected;
+    private final List<String> errors = new ArrayList<>();
+
+    void addImported() {
+        imported++;
+    }
+
+    void addError(long line, String message) {
+        rejected++;
+        if (errors.size() < MAX_MESSAGES) {
+            errors.add("Line " + line + ": " + message);
+        }
+    }
+
+    public int getImported() {
+        return imported;
+    }
+
+    public int getRejected() {
+        return rejected;
+    }
+
+    /**
+     * Gets the first error messages, each prefixed with its line number.
+     */
+    public List<String> getErrors() {
+        return Collections.unmodifiableList(errors);
+    }
+
+    @Override
+    public String toString() {
+        return "ImportReport{imported=" + imported + ", rejected=" + rejected + "}";
+    }
+}
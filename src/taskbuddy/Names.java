@@ -0,0 +1,27 @@
+package taskbuddy;
+
+/**
+ * Lenient matching of names typed by users or found in imported files.
+ */
+final class Names {
+
+    private Names() {
+    }
+
+    /**
+     * Lower-cases text and drops everything but letters, so "To Do", "to-do" and "TO_DO" compare equal.
+     */
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        StringBuilder key = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetter(c)) {
+                key.append(Character.toLowerCase(c));
+            }
+        }
+        return key.toString();
+    }
+}
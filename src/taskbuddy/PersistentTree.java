@@ -0,0 +1,258 @@
+package taskbuddy;
+
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * An immutable sorted map, kept as an AVL tree whose nodes are never changed once built.
+ * put() and remove() return a new tree that shares every node off the changed path with the
+ * old one, so each costs O(log n) time and memory and old versions stay valid for readers.
+ * Each node also records its subtree size, so the i-th value can be found in O(log n).
+ */
+final class PersistentTree<K, V> {
+
+    private static final class Node<K, V> {
+        final K key;
+        final V value;
+        final Node<K, V> left;
+        final Node<K, V> right;
+        final int height;
+        final int size;
+
+        Node(K key, V value, Node<K, V> left, Node<K, V> right) {
+            this.key = key;
+            this.value = value;
+            this.left = left;
+            this.right = right;
+            this.height = Math.max(height(left), height(right)) + 1;
+            this.size = size(left) + size(right) + 1;
+        }
+    }
+
+    private final Comparator<? super K> comparator;
+    private final Node<K, V> root;
+
+    private PersistentTree(Comparator<? super K> comparator, Node<K, V> root) {
+        this.comparator = comparator;
+        this.root = root;
+    }
+
+    static <K, V> PersistentTree<K, V> empty(Comparator<? super K> comparator) {
+        return new PersistentTree<>(comparator, null);
+    }
+
+    /**
+     * Builds a balanced tree in O(n) from entries already sorted by key, with no duplicates.
+     */
+    static <K, V> PersistentTree<K, V> fromSorted(Comparator<? super K> comparator, K[] keys, V[] values, int count) {
+        return new PersistentTree<>(comparator, build(keys, values, 0, count));
+    }
+
+    private static <K, V> Node<K, V> build(K[] keys, V[] values, int from, int to) {
+        if (from >= to) {
+            return null;
+        }
+        int middle = (from + to) >>> 1;
+        return new Node<>(keys[middle], values[middle], build(keys, values, from, middle), build(keys, values, middle + 1, to));
+    }
+
+    int size() {
+        return size(root);
+    }
+
+    /**
+     * Gets the value for a key, or null if the key is not in the tree.
+     */
+    V get(K key) {
+        Node<K, V> node = root;
+        while (node != null) {
+            int c = comparator.compare(key, node.key);
+            if (c == 0) {
+                return node.value;
+            }
+            node = c < 0 ? node.left : node.right;
+        }
+        return null;
+    }
+
+    /**
+     * Gets the value at a position in key order.
+     */
+    V getAt(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Index " + index + " of " + size());
+        }
+        Node<K, V> node = root;
+        while (true) {
+            int leftSize = size(node.left);
+            if (index == leftSize) {
+                return node.value;
+            }
+            if (index < leftSize) {
+                node = node.left;
+            } else {
+                index -= leftSize + 1;
+                node = node.right;
+            }
+        }
+    }
+
+    /**
+     * Gets the position of a key in key order, or -1 if the key is not in the tree.
+     */
+    int indexOf(K key) {
+        Node<K, V> node = root;
+        int index = 0;
+        while (node != null) {
+            int c = comparator.compare(key, node.key);
+            if (c == 0) {
+                return index + size(node.left);
+            }
+            if (c < 0) {
+                node = node.left;
+            } else {
+                index += size(node.left) + 1;
+                node = node.right;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns a tree with the key mapped to the value, adding or replacing it.
+     */
+    PersistentTree<K, V> put(K key, V value) {
+        return new PersistentTree<>(comparator, put(root, key, value));
+    }
+
+    private Node<K, V> put(Node<K, V> node, K key, V value) {
+        if (node == null) {
+            return new Node<>(key, value, null, null);
+        }
+        int c = comparator.compare(key, node.key);
+        if (c == 0) {
+            return new Node<>(key, value, node.left, node.right);
+        }
+        if (c < 0) {
+            return balance(node.key, node.value, put(node.left, key, value), node.right);
+        }
+        return balance(node.key, node.value, node.left, put(node.right, key, value));
+    }
+
+    /**
+     * Returns a tree without the key; this tree itself if the key is not in it.
+     */
+    PersistentTree<K, V> remove(K key) {
+        Node<K, V> newRoot = remove(root, key);
+        return newRoot == root ? this : new PersistentTree<>(comparator, newRoot);
+    }
+
+    private Node<K, V> remove(Node<K, V> node, K key) {
+        if (node == null) {
+            return null;
+        }
+        int c = comparator.compare(key, node.key);
+        if (c < 0) {
+            Node<K, V> left = remove(node.left, key);
+            return left == node.left ? node : balance(node.key, node.value, left, node.right);
+        }
+        if (c > 0) {
+            Node<K, V> right = remove(node.right, key);
+            return right == node.right ? node : balance(node.key, node.value, node.left, right);
+        }
+        if (node.left == null) {
+            return node.right;
+        }
+        if (node.right == null) {
+            return node.left;
+        }
+        // Replace the node with its in-order successor
+        Node<K, V> successor = node.right;
+        while (successor.left != null) {
+            successor = successor.left;
+        }
+        return balance(successor.key, successor.value, node.left, removeFirst(node.right));
+    }
+
+    private Node<K, V> removeFirst(Node<K, V> node) {
+        if (node.left == null) {
+            return node.right;
+        }
+        return balance(node.key, node.value, removeFirst(node.left), node.right);
+    }
+
+    /**
+     * Iterates the values in key order.
+     */
+    Iterator<V> values() {
+        return new Iterator<V>() {
+            // The nodes whose values and right subtrees are still to be visited, innermost on top
+            private final Deque<Node<K, V>> stack = new ArrayDeque<>();
+
+            {
+                pushLeft(root);
+            }
+
+            private void pushLeft(Node<K, V> node) {
+                while (node != null) {
+                    stack.push(node);
+                    node = node.left;
+                }
+            }
+
+            @Override
+            public boolean hasNext() {
+                return !stack.isEmpty();
+            }
+
+            @Override
+            public V next() {
+                if (stack.isEmpty()) {
+                    throw new NoSuchElementException();
+                }
+                Node<K, V> node = stack.pop();
+                pushLeft(node.right);
+                return node.value;
+            }
+        };
+    }
+
+    /**
+     * Creates a node from two subtrees whose heights differ by at most two, rotating if needed.
+     */
+    private static <K, V> Node<K, V> balance(K key, V value, Node<K, V> left, Node<K, V> right) {
+        int difference = height(left) - height(right);
+        if (difference > 1) {
+            if (height(left.left) < height(left.right)) {
+                left = rotateLeft(left.left, left.right, left.key, left.value);
+            }
+            return new Node<>(left.key, left.value, left.left, new Node<>(key, value, left.right, right));
+        }
+        if (difference < -1) {
+            if (height(right.right) < height(right.left)) {
+                right = rotateRight(right.left, right.right, right.key, right.value);
+            }
+            return new Node<>(right.key, right.value, new Node<>(key, value, left, right.left), right.right);
+        }
+        return new Node<>(key, value, left, right);
+    }
+
+    private static <K, V> Node<K, V> rotateLeft(Node<K, V> left, Node<K, V> right, K key, V value) {
+        return new Node<>(right.key, right.value, new Node<>(key, value, left, right.left), right.right);
+    }
+
+    private static <K, V> Node<K, V> rotateRight(Node<K, V> left, Node<K, V> right, K key, V value) {
+        return new Node<>(left.key, left.value, left.left, new Node<>(key, value, left.right, right));
+    }
+
+    private static int height(Node<?, ?> node) {
+        return node == null ? 0 : node.height;
+    }
+
+    private static int size(Node<?, ?> node) {
+        return node == null ? 0 : node.size;
+    }
+}
@@ -0,0 +1,64 @@
+package taskbuddy;
+
+/**
+ * The priority of a task, from most to least urgent.
+ * The declaration order is the sort order used by TaskManager.
+ */
+public enum Priority {
+    HIGH("High"),
+    MEDIUM("Medium"),
+    LOW("Low");
+
+    // Cached copy of values(), which would otherwise clone the array on every call
+    private static final Priority[] VALUES = values();
+
+    private final String displayName;
+
+    Priority(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    /**
+     * Gets the priority stored under the given code (its ordinal).
+     */
+    static Priority fromCode(int code) {
+        return VALUES[code];
+    }
+
+    /**
+     * Gets the display names of all priorities, in order, for menus and combo boxes.
+     */
+    public static String[] displayNames() {
+        String[] names = new String[VALUES.length];
+        for (int i = 0; i < VALUES.length; i++) {
+            names[i] = VALUES[i].displayName;
+        }
+        return names;
+    }
+
+    /**
+     * Parses user input leniently: case, spaces, hyphens and underscores are ignored,
+     * and the first letter alone ("h", "m", "l") is accepted.
+     * @param text the text to parse.
+     * @return the matching priority, or null if the text is empty or not recognized.
+     */
+    public static Priority parse(String text) {
+        String key = Names.normalize(text);
+        for (Priority priority : VALUES) {
+            String name = Names.normalize(priority.displayName);
+            if (name.equals(key) || (key.length() == 1 && name.charAt(0) == key.charAt(0))) {
+                return priority;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return displayName;
+    }
+}
@@ -0,0 +1,95 @@
+package taskbuddy;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * A bounded, lock-free event sink. Any number of threads may publish; one thread at a time
+ * drains. Publishing never blocks: when the reader falls more than a buffer behind, the oldest
+ * events are overwritten and counted as dropped.
+ * <p>
+ * Each slot records the sequence number of the event in it. A writer claims a sequence with one
+ * atomic increment, marks the slot as being written, stores the event, then publishes the
+ * sequence; the reader only takes an event whose slot shows the sequence it expects both before
+ * and after reading it.
+ */
+public class RingBufferEventSink implements TaskEventSink {
+
+    private static final long WRITING = -1;
+
+    private final AtomicReferenceArray<TaskEvent> events;
+    private final AtomicLongArray published;
+    private final int mask;
+    private final AtomicLong nextWrite = new AtomicLong();
+    private long nextRead;
+    private long dropped;
+
+    /**
+     * @param capacity the number of events kept; rounded up to a power of two.
+     */
+    public RingBufferEventSink(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.events = new AtomicReferenceArray<>(size);
+        this.published = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            published.set(i, WRITING);
+        }
+        this.mask = size - 1;
+    }
+
+    @Override
+    public void accept(TaskEvent event) {
+        long sequence = nextWrite.getAndIncrement();
+        int slot = (int) sequence & mask;
+        published.set(slot, WRITING);
+        events.set(slot, event);
+        published.set(slot, sequence);
+    }
+
+    /**
+     * Passes every published event to the consumer, oldest first.
+     * @return the number of events delivered.
+     */
+    public synchronized int drainTo(Consumer<? super TaskEvent> consumer) {
+        int delivered = 0;
+        while (true) {
+            long written = nextWrite.get();
+            if (written - nextRead > events.length()) {
+                // Lapped by the writers: skip what was overwritten
+                long oldest = written - events.length();
+                dropped += oldest - nextRead;
+                nextRead = oldest;
+            }
+            if (nextRead >= written) {
+                return delivered;
+            }
+            int slot = (int) nextRead & mask;
+            long before = published.get(slot);
+            if (before < nextRead) {
+                // Claimed but not yet published
+                return delivered;
+            }
+            TaskEvent event = events.get(slot);
+            if (before != nextRead || published.get(slot) != nextRead) {
+                // Overwritten while reading; the next pass skips ahead
+                continue;
+            }
+            nextRead++;
+            delivered++;
+            consumer.accept(event);
+        }
+    }
+
+    /**
+     * Gets the number of events overwritten before they could be drained.
+     */
+    public synchronized long getDroppedCount() {
+        return dropped;
+    }
+
+    public int getCapacity() {
+        return events.length();
+    }
+}
@@ -0,0 +1,35 @@
+package taskbuddy;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The default ID generator: a monotonic 64-bit counter.
+ * Creating an ID is a single atomic increment, with no SecureRandom and no string formatting.
+ */
+public class SequentialIdGenerator implements IdGenerator {
+
+    private final AtomicLong lastId;
+
+    public SequentialIdGenerator() {
+        this(0L);
+    }
+
+    /**
+     * @param lastId the last ID already in use; the first generated ID is lastId + 1.
+     */
+    public SequentialIdGenerator(long lastId) {
+        this.lastId = new AtomicLong(lastId);
+    }
+
+    @Override
+    public CompactId nextId() {
+        return CompactId.of(lastId.incrementAndGet());
+    }
+
+    @Override
+    public void observe(CompactId existing) {
+        if (existing.isCompact()) {
+            lastId.accumulateAndGet(existing.getLow(), Math::max);
+        }
+    }
+}
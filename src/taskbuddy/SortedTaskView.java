@@ -0,0 +1,72 @@
+package taskbuddy;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * A read-only view of tasks in a fixed sort order (see TaskOrder).
+ * Iterating or paging a view never re-sorts or copies the whole task list.
+ */
+public interface SortedTaskView extends Iterable<Task> {
+
+    int size();
+
+    default boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Gets the first task in sort order, or null if the view is empty.
+     */
+    Task first();
+
+    /**
+     * Gets one page of tasks by position.
+     * @param offset the number of tasks to skip.
+     * @param limit the maximum number of tasks to return.
+     */
+    List<Task> page(int offset, int limit);
+
+    /**
+     * Gets the page of tasks that follows the given task in sort order.
+     * @param last the last task of the previous page, or null for the first page.
+     * @param limit the maximum number of tasks to return.
+     */
+    List<Task> pageAfter(Task last, int limit);
+
+    /**
+     * Streams the tasks that follow the given task in sort order, without copying the view.
+     * The default reads pageAfter() a chunk at a time.
+     * @param last a task (which need not be in the view) to start after, or null for the first task.
+     */
+    default Iterable<Task> after(Task last) {
+        return () -> new Iterator<Task>() {
+            private static final int CHUNK = 256;
+            private List<Task> chunk = pageAfter(last, CHUNK);
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                if (next == chunk.size() && chunk.size() == CHUNK) {
+                    chunk = pageAfter(chunk.get(CHUNK - 1), CHUNK);
+                    next = 0;
+                }
+                return next < chunk.size();
+            }
+
+            @Override
+            public Task next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return chunk.get(next++);
+            }
+        };
+    }
+
+    /**
+     * Copies the whole view into a new list, in sort order.
+     */
+    List<Task> toList();
+}
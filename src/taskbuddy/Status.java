@@ -0,0 +1,65 @@
+package taskbuddy;
+
+/**
+ * The progress status of a task.
+ */
+public enum Status {
+    TO_DO("To Do"),
+    IN_PROGRESS("In Progress"),
+    COMPLETED("Completed");
+
+    // Cached copy of values(), which would otherwise clone the array on every call
+    private static final Status[] VALUES = values();
+
+    private final String displayName;
+
+    Status(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    /**
+     * Gets the status stored under the given code (its ordinal).
+     */
+    static Status fromCode(int code) {
+        return VALUES[code];
+    }
+
+    /**
+     * Gets the display names of all statuses, in order, for menus and combo boxes.
+     */
+    public static String[] displayNames() {
+        String[] names = new String[VALUES.length];
+        for (int i = 0; i < VALUES.length; i++) {
+            names[i] = VALUES[i].displayName;
+        }
+        return names;
+    }
+
+    /**
+     * Parses user input leniently: case, spaces, hyphens and underscores are ignored,
+     * and "done" / "complete" are accepted for Completed.
+     * @param text the text to parse.
+     * @return the matching status, or null if the text is empty or not recognized.
+     */
+    public static Status parse(String text) {
+        String key = Names.normalize(text);
+        for (Status status : VALUES) {
+            if (Names.normalize(status.displayName).equals(key)) {
+                return status;
+            }
+        }
+        return switch (key) {
+            case "done", "complete" -> COMPLETED;
+            default -> null;
+        };
+    }
+
+    @Override
+    public String toString() {
+        return displayName;
+    }
+}
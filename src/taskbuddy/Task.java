@@ -1,92 +1,167 @@
 package taskbuddy;
 
 import java.time.LocalDate;
-import java.util.Objects;
 
 /**
  * Represents a single task in the TaskBuddy application.
+ * Tasks are immutable: an update replaces the task with a new one carrying the same ID and
+ * insertion sequence, so a Task held by a reader (or by an ImmutableTaskList) never changes.
+ * Each replacement has a version one higher than the task it replaced, which callers can pass
+ * back to TaskManager to detect edits made by someone else in the meantime.
  */
 public class Task {
     
-    // Changed taskId to a String to be compatible with the GUI
-    private final String taskId;
+    // Held as a CompactId (two longs); only rendered as a String for the GUI and console
+    private final CompactId taskId;
+    // For a task loaded from a snapshot these start out null and are decoded from the mapped
+    // file on first read; as with String's hash, racing readers just decode the same value twice
     private String title;
     private String description;
-    private LocalDate dueDate;
-    private String priority;
-    private String status;
-    private Category category;
+    private final TaskSnapshot source;
+    private final int sourceRecord;
+    private final LocalDate dueDate;
+    // Priority and Status are stored as their ordinals to keep each task compact
+    private final byte priority;
+    private final byte status;
+    private final Category category;
+    
+    // Insertion order assigned by TaskManager; breaks ties in its sorted views
+    private final long sequence;
+    // 1 when the task is added; one more for each update since (counted from when it was loaded)
+    private final int version;
 
-    public Task(String taskId, String title, String description, LocalDate dueDate, String priority, String status, Category category) {
+    public Task(CompactId taskId, String title, String description, LocalDate dueDate, Priority priority, Status status, Category category) {
+        this(taskId, title, description, dueDate, priority, status, category, 0L);
+    }
+    
+    /**
+     * Creates a task with the insertion sequence TaskManager assigned to it.
+     */
+    Task(CompactId taskId, String title, String description, LocalDate dueDate, Priority priority, Status status, Category category, long sequence) {
+        this(taskId, title, description, dueDate, priority, status, category, sequence, 1);
+    }
+    
+    /**
+     * Creates a task with its insertion sequence and version.
+     */
+    Task(CompactId taskId, String title, String description, LocalDate dueDate, Priority priority, Status status, Category category, long sequence, int version) {
+        this.sequence = sequence;
+        this.version = version;
         this.taskId = taskId;
         this.title = title;
         this.description = description;
+        this.source = null;
+        this.sourceRecord = -1;
         this.dueDate = dueDate;
-        this.priority = priority;
-        this.status = status;
+        this.priority = (byte) priority.ordinal();
+        this.status = (byte) status.ordinal();
         this.category = category;
     }
 
-    public String getTaskId() {
-        return taskId;
+    /**
+     * Creates a task for a snapshot record, leaving its title and description in the snapshot
+     * until they are first read.
+     */
+    Task(TaskSnapshot source, int record, CompactId taskId, LocalDate dueDate, Priority priority, Status status, Category category, long sequence) {
+        this.sequence = sequence;
+        this.version = 1;
+        this.taskId = taskId;
+        this.source = source;
+        this.sourceRecord = record;
+        this.dueDate = dueDate;
+        this.priority = (byte) priority.ordinal();
+        this.status = (byte) status.ordinal();
+        this.category = category;
     }
 
-    public String getTitle() {
-        return title;
+    /**
+     * Creates a placeholder that sorts where a task with these keys would, for seeking in
+     * sorted sets and views. It has no ID, title or category and is never stored.
+     */
+    static Task probe(long dueDay, int priorityRank, long sequence) {
+        return new Task(CompactId.of(0), "", "", LocalDate.ofEpochDay(dueDay), Priority.fromCode(priorityRank),
+            Status.TO_DO, null, sequence);
     }
 
-    public void setTitle(String title) {
-        this.title = title;
+    /**
+     * Gets the task ID rendered as a String, for display and user input.
+     */
+    public String getTaskId() {
+        return taskId.toString();
     }
 
-    public String getDescription() {
-        return description;
+    public CompactId getId() {
+        return taskId;
     }
 
-    public void setDescription(String description) {
-        this.description = description;
+    public String getTitle() {
+        String value = title;
+        if (value == null) {
+            value = source.getTitle(sourceRecord);
+            title = value;
+        }
+        return value;
+    }
+
+    public String getDescription() {
+        String value = description;
+        if (value == null && source != null) {
+            value = source.getDescription(sourceRecord);
+            description = value;
+        }
+        return value;
     }
 
     public LocalDate getDueDate() {
         return dueDate;
     }
 
-    public void setDueDate(LocalDate dueDate) {
-        this.dueDate = dueDate;
+    public Priority getPriority() {
+        return Priority.fromCode(priority);
     }
 
-    public String getPriority() {
+    /**
+     * Gets the sort rank of this task's priority (0 for High), without an enum lookup.
+     */
+    int getPriorityRank() {
         return priority;
     }
-
-    public void setPriority(String priority) {
-        this.priority = priority;
+    
+    long getSequence() {
+        return sequence;
     }
-
-    public String getStatus() {
-        return status;
+    
+    /**
+     * Gets the version of this task: 1 when added, one more for every update.
+     * Versions are not journalled, so after a restart they count from the reloaded state.
+     */
+    public int getVersion() {
+        return version;
+    }
+    
+    public Status getStatus() {
+        return Status.fromCode(status);
     }
 
-    public void setStatus(String status) {
-        this.status = status;
+    /**
+     * Checks whether this task is completed, without an enum lookup.
+     */
+    boolean isCompleted() {
+        return status == Status.COMPLETED.ordinal();
     }
 
     public Category getCategory() {
         return category;
     }
 
-    public void setCategory(Category category) {
-        this.category = category;
-    }
-
     @Override
     public String toString() {
         return "Task{" +
                 "taskId='" + taskId + '\'' +
-                ", title='" + title + '\'' +
+                ", title='" + getTitle() + '\'' +
                 ", dueDate=" + dueDate +
-                ", priority='" + priority + '\'' +
-                ", status='" + status + '\'' +
+                ", priority='" + getPriority() + '\'' +
+                ", status='" + getStatus() + '\'' +
                 '}';
     }
     
@@ -96,11 +171,11 @@ public class Task {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Task task = (Task) o;
-        return Objects.equals(taskId, task.taskId);
+        return taskId.equals(task.taskId);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(taskId);
+        return taskId.hashCode();
     }
 }
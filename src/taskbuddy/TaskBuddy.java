@@ -5,21 +5,47 @@
 package taskbuddy;
 
 // Main.java (Console Application)
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.time.LocalDate;
 import java.time.format.DateTimeParseException;
 import java.util.InputMismatchException;
 import java.util.List;
 import java.util.Scanner;
+import java.util.StringJoiner;
 
 public class TaskBuddy {
+
+    // The most search results shown at once
+    private static final int SEARCH_RESULT_LIMIT = 20;
+    // Tasks shown per page by the listing commands
+    private static final int PAGE_SIZE = 30;
+    // Weeks ahead shown in the statistics' due date histogram
+    private static final int STATISTICS_WEEKS = 4;
+
     public static void main(String[] args) {
         try (Scanner scanner = new Scanner(System.in)) {
             TaskManager taskManager = new TaskManager();
+            // The console shows every change and error TaskManager reports
+            taskManager.setEventSink(event -> {
+                if (!event.isPartOfBatch()) {
+                    System.out.println(event.getMessage());
+                }
+            });
 
-            // Categories now use String IDs
-            Category workCategory = new Category(taskManager.generateCategoryId(), "Work");
-            Category personalCategory = new Category(taskManager.generateCategoryId(), "Personal");
-            Category studiesCategory = new Category(taskManager.generateCategoryId(), "Studies");
+            // Categories are owned by the TaskManager's registry
+            CategoryRegistry categories = taskManager.getCategoryRegistry();
+            Category workCategory = categories.getOrCreate("Work");
+            Category personalCategory = categories.getOrCreate("Personal");
+            Category studiesCategory = categories.getOrCreate("Studies");
+
+            // Reload saved tasks and keep recording changes
+            try {
+                taskManager.attachJournal(new TaskJournal(TaskJournal.defaultDirectory()));
+            } catch (IOException e) {
+                System.out.println("Error: Could not open task journal, changes will not be saved: " + e.getMessage());
+            }
 
             System.out.println("Welcome to the Interactive To-Do List Application!");
 
@@ -33,14 +59,18 @@ public class TaskBuddy {
 
                     switch (choice) {
                         case 1 -> addTask(scanner, taskManager, workCategory, personalCategory, studiesCategory);
-                        case 2 -> viewAllTasks(taskManager);
+                        case 2 -> viewAllTasks(scanner, taskManager);
                         case 3 -> updateTask(scanner, taskManager, workCategory, personalCategory, studiesCategory);
                         case 4 -> deleteTask(scanner, taskManager);
                         case 5 -> filterTasks(scanner, taskManager, workCategory, personalCategory, studiesCategory);
                         case 6 -> sortTasks(scanner, taskManager);
                         case 7 -> markTaskCompleted(scanner, taskManager);
-                        case 8 -> viewCompletedTasks(taskManager);
-                        case 9 -> viewIncompleteTasks(taskManager);
+                        case 8 -> viewCompletedTasks(scanner, taskManager);
+                        case 9 -> viewIncompleteTasks(scanner, taskManager);
+                        case 10 -> importTasks(scanner, taskManager);
+                        case 11 -> exportTasks(scanner, taskManager);
+                        case 12 -> searchTasks(scanner, taskManager);
+                        case 13 -> viewStatistics(taskManager);
                         case 0 -> System.out.println("Exiting application. Goodbye!");
                         default -> System.out.println("Invalid choice. Please try again.");
                     }
@@ -55,6 +85,7 @@ public class TaskBuddy {
                 }
                 System.out.println("\n-----------------------------------\n");
             } while (choice != 0);
+            taskManager.closeJournal();
         }
     }
 
@@ -70,6 +101,10 @@ public class TaskBuddy {
         System.out.println("7. Mark Task as Completed");
         System.out.println("8. View Completed Tasks");
         System.out.println("9. View Incomplete Tasks");
+        System.out.println("10. Import Tasks from File");
+        System.out.println("11. Export Tasks to File");
+        System.out.println("12. Search Tasks");
+        System.out.println("13. View Statistics");
         System.out.println("0. Exit");
     }
 
@@ -95,11 +130,23 @@ public class TaskBuddy {
             }
         }
 
-        System.out.print("Enter Priority (High, Medium, Low): ");
-        String priority = scanner.nextLine();
+        Priority priority = null;
+        while (priority == null) {
+            System.out.print("Enter Priority (High, Medium, Low): ");
+            priority = Priority.parse(scanner.nextLine());
+            if (priority == null) {
+                System.out.println("Invalid priority. Please enter High, Medium or Low.");
+            }
+        }
 
-        System.out.print("Enter Status (To Do, In Progress, Completed): ");
-        String status = scanner.nextLine();
+        Status status = null;
+        while (status == null) {
+            System.out.print("Enter Status (To Do, In Progress, Completed): ");
+            status = Status.parse(scanner.nextLine());
+            if (status == null) {
+                System.out.println("Invalid status. Please enter To Do, In Progress or Completed.");
+            }
+        }
 
         // Category selection logic
         Category selectedCategory = null;
@@ -130,14 +177,28 @@ public class TaskBuddy {
         taskManager.addTask(title, description, dueDate, priority, status, selectedCategory);
     }
 
-    // viewAllTasks method - now calls listAllTasks()
-    private static void viewAllTasks(TaskManager taskManager) {
+    // viewAllTasks method - lists every task, one page at a time
+    private static void viewAllTasks(Scanner scanner, TaskManager taskManager) {
         System.out.println("\n--- All Tasks ---");
-        List<Task> tasks = taskManager.listAllTasks(); // Changed to listAllTasks()
-        if (tasks.isEmpty()) {
-            System.out.println("No tasks to display.");
-        } else {
-            tasks.forEach(System.out::println);
+        printPages(scanner, taskManager, new TaskQuery(), "No tasks to display.");
+    }
+
+    // Prints the tasks matching a query a page at a time, asking before each further page.
+    private static void printPages(Scanner scanner, TaskManager taskManager, TaskQuery query, String emptyMessage) {
+        TaskQuery paged = query.withLimit(PAGE_SIZE);
+        TaskPage page = taskManager.queryPage(paged, null);
+        if (page.isEmpty()) {
+            System.out.println(emptyMessage);
+            return;
+        }
+        page.getTasks().forEach(System.out::println);
+        while (page.hasNext()) {
+            System.out.print("Press Enter for more tasks, or type q to stop: ");
+            if (scanner.nextLine().trim().equalsIgnoreCase("q")) {
+                return;
+            }
+            page = taskManager.queryPage(paged, page.getNextCursor());
+            page.getTasks().forEach(System.out::println);
         }
     }
 
@@ -148,27 +209,26 @@ public class TaskBuddy {
         try {
             String taskId = scanner.nextLine(); // Read taskId as String
 
-            // Use listAllTasks() and .equals() for comparison
-            Task existingTask = taskManager.listAllTasks().stream()
-                                     .filter(t -> t.getTaskId().equals(taskId))
-                                     .findFirst()
-                                     .orElse(null);
+            // Look the task up directly by its ID
+            Task existingTask = taskManager.findTask(taskId);
 
             if (existingTask == null) {
                 System.out.println("Task with ID " + taskId + " not found.");
                 return;
             }
 
+            // Only the fields the user changes are sent, and only if nobody else changed the task meanwhile
+            TaskPatch patch = new TaskPatch();
+
             System.out.println("Updating Task ID: " + taskId + " (Current Title: " + existingTask.getTitle() + ")");
             System.out.print("Enter New Task Title (or press Enter to keep '" + existingTask.getTitle() + "'): ");
             String title = scanner.nextLine();
-            if (title.isEmpty()) title = existingTask.getTitle();
+            if (!title.isEmpty()) patch = patch.withTitle(title);
 
             System.out.print("Enter New Task Description (or press Enter to keep '" + existingTask.getDescription() + "'): ");
             String description = scanner.nextLine();
-            if (description.isEmpty()) description = existingTask.getDescription();
+            if (!description.isEmpty()) patch = patch.withDescription(description);
 
-            LocalDate dueDate = existingTask.getDueDate();
             boolean validDate = false;
             while (!validDate) {
                 System.out.print("Enter New Due Date (YYYY-MM-DD, or press Enter to keep '" + existingTask.getDueDate() + "'): ");
@@ -177,7 +237,7 @@ public class TaskBuddy {
                     validDate = true;
                 } else {
                     try {
-                        dueDate = LocalDate.parse(dateString);
+                        patch = patch.withDueDate(LocalDate.parse(dateString));
                         validDate = true;
                     } catch (DateTimeParseException e) {
                         System.out.println("Invalid date format. Please use YYYY-MM-DD.");
@@ -185,16 +245,32 @@ public class TaskBuddy {
                 }
             }
 
-            System.out.print("Enter New Priority (High, Medium, Low, or press Enter to keep '" + existingTask.getPriority() + "'): ");
-            String priority = scanner.nextLine();
-            if (priority.isEmpty()) priority = existingTask.getPriority();
+            Priority priority = null;
+            while (priority == null) {
+                System.out.print("Enter New Priority (High, Medium, Low, or press Enter to keep '" + existingTask.getPriority() + "'): ");
+                String priorityString = scanner.nextLine();
+                priority = priorityString.isEmpty() ? existingTask.getPriority() : Priority.parse(priorityString);
+                if (priority == null) {
+                    System.out.println("Invalid priority. Please enter High, Medium or Low.");
+                } else if (!priorityString.isEmpty()) {
+                    patch = patch.withPriority(priority);
+                }
+            }
 
-            System.out.print("Enter New Status (To Do, In Progress, Completed, or press Enter to keep '" + existingTask.getStatus() + "'): ");
-            String status = scanner.nextLine();
-            if (status.isEmpty()) status = existingTask.getStatus();
+            Status status = null;
+            while (status == null) {
+                System.out.print("Enter New Status (To Do, In Progress, Completed, or press Enter to keep '" + existingTask.getStatus() + "'): ");
+                String statusString = scanner.nextLine();
+                status = statusString.isEmpty() ? existingTask.getStatus() : Status.parse(statusString);
+                if (status == null) {
+                    System.out.println("Invalid status. Please enter To Do, In Progress or Completed.");
+                } else if (!statusString.isEmpty()) {
+                    patch = patch.withStatus(status);
+                }
+            }
 
             // Category selection logic re-added
-            Category selectedCategory = existingTask.getCategory();
+            Category selectedCategory = null;
             boolean validCategory = false;
             while (!validCategory) {
                 System.out.println("Select New Category (1: Work, 2: Personal, 3: Studies, or 0 to keep current '" + (existingTask.getCategory() != null ? existingTask.getCategory().getCategoryName() : "None") + "'): ");
@@ -214,7 +290,9 @@ public class TaskBuddy {
                 }
             }
 
-            taskManager.updateTask(taskId, title, description, dueDate, priority, status, selectedCategory);
+            if (selectedCategory != null) patch = patch.withCategory(selectedCategory);
+
+            taskManager.patchTask(existingTask.getId(), existingTask.getVersion(), patch);
 
         } catch (InputMismatchException e) {
             System.out.println("Invalid input. Please enter a valid Task ID (String).");
@@ -245,7 +323,7 @@ public class TaskBuddy {
             int filterChoice = scanner.nextInt();
             scanner.nextLine(); // Consume newline
 
-            List<Task> filteredTasks = null;
+            TaskQuery filter;
             if (filterChoice == 1) {
                 Category selectedCategory = null;
                 boolean validCategory = false;
@@ -265,30 +343,73 @@ public class TaskBuddy {
                         scanner.nextLine(); // Consume the invalid input
                     }
                 }
-                if (selectedCategory != null) {
-                    filteredTasks = taskManager.filterTasksByCategory(selectedCategory);
-                }
+                filter = new TaskQuery().withCategory(selectedCategory);
             } else if (filterChoice == 2) {
                 System.out.print("Enter Status to filter by (e.g., To Do, In Progress, Completed): ");
-                String status = scanner.nextLine();
-                filteredTasks = taskManager.filterTasksByStatus(status);
+                Status status = Status.parse(scanner.nextLine());
+                if (status == null) {
+                    System.out.println("Invalid status.");
+                    return;
+                }
+                filter = new TaskQuery().withStatus(status);
             } else {
                 System.out.println("Invalid filter option.");
                 return;
             }
 
-            if (filteredTasks != null && !filteredTasks.isEmpty()) {
-                System.out.println("\nFiltered Tasks:");
-                filteredTasks.forEach(System.out::println);
-            } else {
-                System.out.println("No tasks found matching your filter criteria.");
-            }
+            System.out.println("\nFiltered Tasks:");
+            printPages(scanner, taskManager, filter, "No tasks found matching your filter criteria.");
         } catch (InputMismatchException e) {
             System.out.println("Invalid input. Please enter a number.");
             scanner.nextLine(); // Consume the invalid input
         }
     }
 
+    // Finds tasks by words in their title or description, best match first.
+    private static void searchTasks(Scanner scanner, TaskManager taskManager) {
+        System.out.println("\n--- Search Tasks ---");
+        System.out.print("Enter words to search for: ");
+        String query = scanner.nextLine();
+        List<Task> results = taskManager.search(query, SEARCH_RESULT_LIMIT);
+        if (results.isEmpty()) {
+            System.out.println("No tasks found matching \"" + query.trim() + "\".");
+        } else {
+            results.forEach(System.out::println);
+        }
+    }
+
+    // Shows task counts by status, priority and category, and what is overdue or due soon.
+    private static void viewStatistics(TaskManager taskManager) {
+        System.out.println("\n--- Task Statistics ---");
+        TaskStatistics stats = taskManager.getStatistics();
+        LocalDate today = LocalDate.now();
+        System.out.println("Total tasks: " + stats.getTotal());
+        System.out.printf("Completed: %d (%.0f%%)%n", stats.countByStatus(Status.COMPLETED), stats.getCompletionRate() * 100);
+        System.out.println("Overdue: " + stats.countOverdue(today));
+
+        StringJoiner byStatus = new StringJoiner(", ", "By status: ", "");
+        for (Status status : Status.values()) {
+            byStatus.add(status.getDisplayName() + " " + stats.countByStatus(status));
+        }
+        System.out.println(byStatus);
+        StringJoiner byPriority = new StringJoiner(", ", "By priority: ", "");
+        for (Priority priority : Priority.values()) {
+            byPriority.add(priority.getDisplayName() + " " + stats.countByPriority(priority));
+        }
+        System.out.println(byPriority);
+        StringJoiner byCategory = new StringJoiner(", ", "By category: ", "");
+        for (Category category : stats.getCategories()) {
+            byCategory.add(category.getCategoryName() + " " + stats.countByCategory(category));
+        }
+        System.out.println(byCategory);
+
+        System.out.println("Open tasks due by week:");
+        LocalDate week = today.minusDays(today.getDayOfWeek().getValue() - 1);
+        for (int i = 0; i < STATISTICS_WEEKS; i++, week = week.plusWeeks(1)) {
+            System.out.println("  Week of " + week + ": " + stats.countOpenDueInWeek(week));
+        }
+    }
+
     // Allows sorting tasks either by due date or priority.
     private static void sortTasks(Scanner scanner, TaskManager taskManager) {
         System.out.println("\n--- Sort Tasks ---");
@@ -299,22 +420,18 @@ public class TaskBuddy {
             int sortChoice = scanner.nextInt();
             scanner.nextLine(); // Consume newline
 
-            List<Task> sortedTasks = null;
+            TaskOrder order;
             if (sortChoice == 1) {
-                sortedTasks = taskManager.sortTasksByDueDate();
+                order = TaskOrder.DUE_DATE;
             } else if (sortChoice == 2) {
-                sortedTasks = taskManager.sortTasksByPriority();
+                order = TaskOrder.PRIORITY;
             } else {
                 System.out.println("Invalid sort option.");
                 return;
             }
 
-            if (sortedTasks != null && !sortedTasks.isEmpty()) {
-                System.out.println("\nSorted Tasks:");
-                sortedTasks.forEach(System.out::println);
-            } else {
-                System.out.println("No tasks to display for sorting.");
-            }
+            System.out.println("\nSorted Tasks:");
+            printPages(scanner, taskManager, new TaskQuery().orderBy(order), "No tasks to display for sorting.");
         } catch (InputMismatchException e) {
             System.out.println("Invalid input. Please enter a number.");
             scanner.nextLine(); // Consume the invalid input
@@ -335,24 +452,54 @@ public class TaskBuddy {
     }
 
     // Displays all tasks that have been marked as "Completed".
-    private static void viewCompletedTasks(TaskManager taskManager) {
+    private static void viewCompletedTasks(Scanner scanner, TaskManager taskManager) {
         System.out.println("\n--- Completed Tasks ---");
-        List<Task> tasks = taskManager.getCompletedTasks();
-        if (tasks.isEmpty()) {
-            System.out.println("No completed tasks to display.");
-        } else {
-            tasks.forEach(System.out::println);
-        }
+        printPages(scanner, taskManager, new TaskQuery().withStatus(Status.COMPLETED), "No completed tasks to display.");
     }
 
     // Displays all tasks that are NOT marked as "Completed".
-    private static void viewIncompleteTasks(TaskManager taskManager) {
+    private static void viewIncompleteTasks(Scanner scanner, TaskManager taskManager) {
         System.out.println("\n--- Incomplete Tasks ---");
-        List<Task> tasks = taskManager.getIncompleteTasks();
-        if (tasks.isEmpty()) {
-            System.out.println("No incomplete tasks to display.");
-        } else {
-            tasks.forEach(System.out::println);
+        printPages(scanner, taskManager, new TaskQuery().withIncompleteOnly(true), "No incomplete tasks to display.");
+    }
+
+    // Imports tasks from a .csv, .jsonl or todo.txt (.txt) file.
+    private static void importTasks(Scanner scanner, TaskManager taskManager) {
+        System.out.println("\n--- Import Tasks ---");
+        System.out.print("Enter file to import (.csv, .jsonl or .txt): ");
+        Path file = Paths.get(scanner.nextLine().trim());
+        TaskFormat format = TaskFormat.fromFileName(file.toString());
+        if (format == null) {
+            System.out.println("Unknown file type. Please use a .csv, .jsonl or .txt file.");
+            return;
+        }
+        try {
+            ImportReport report = TaskTransfer.importTasks(taskManager, file, format);
+            System.out.println("Imported " + report.getImported() + " tasks, rejected " + report.getRejected() + ".");
+            report.getErrors().forEach(System.out::println);
+            if (report.getRejected() > report.getErrors().size()) {
+                System.out.println("(" + (report.getRejected() - report.getErrors().size()) + " more errors not shown)");
+            }
+        } catch (IOException e) {
+            System.out.println("Error: Could not import " + file + ": " + e.getMessage());
+        }
+    }
+
+    // Exports all tasks to a .csv, .jsonl or todo.txt (.txt) file.
+    private static void exportTasks(Scanner scanner, TaskManager taskManager) {
+        System.out.println("\n--- Export Tasks ---");
+        System.out.print("Enter file to export to (.csv, .jsonl or .txt): ");
+        Path file = Paths.get(scanner.nextLine().trim());
+        TaskFormat format = TaskFormat.fromFileName(file.toString());
+        if (format == null) {
+            System.out.println("Unknown file type. Please use a .csv, .jsonl or .txt file.");
+            return;
+        }
+        try {
+            int count = TaskTransfer.exportTasks(taskManager, file, format);
+            System.out.println("Exported " + count + " tasks to " + file + ".");
+        } catch (IOException e) {
+            System.out.println("Error: Could not export to " + file + ": " + e.getMessage());
         }
     }
 }
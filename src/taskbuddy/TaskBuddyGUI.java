@@ -5,16 +5,19 @@
 package taskbuddy;
 
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import java.awt.BorderLayout;
+import java.awt.Color;
+import java.awt.FlowLayout;
 import java.awt.event.ActionEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.IOException;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
-import java.util.List;
-import java.util.ArrayList;
-import java.util.Map;
-import java.util.HashMap;
-import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Main GUI class for the TaskBuddy application.
@@ -22,16 +25,33 @@ import java.util.UUID;
  */
 public class TaskBuddyGUI extends javax.swing.JFrame {
 
-    // The TaskManager instance to handle all task-related operations
-    private final TaskManager taskManager;
-    
-    // Map to hold categories for easy retrieval by name
-    private final Map<String, Category> categoryMap;
-
-    private DefaultTableModel tableModel;
-    private final String[] columnNames = {"ID", "Title", "Description", "Due Date", "Priority", "Status", "Category"};
+    // Handles all task-related operations; shared with background threads, so the thread-safe wrapper is used
+    private final ConcurrentTaskManager taskManager;
+    // Runs changes off the event dispatch thread; results come back through the change feed
+    private final AsyncTaskManager asyncTasks;
+    private final TaskChangeFeed changeFeed;
+
+    // Shows the TaskManager's tasks and updates row by row as the change feed reports changes
+    private TaskTableModel tableModel;
+    // Task counts under the table, refreshed as the change feed reports changes
+    private TaskStatisticsPanel statisticsPanel;
+    // Version of the task last loaded into the input fields, so Update cannot overwrite a newer edit
+    private int selectedVersion = TaskManager.ANY_VERSION;
     private final DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
 
+    // Search bar; a search starts once typing pauses for SEARCH_DELAY_MS
+    private static final int SEARCH_DELAY_MS = 250;
+    private static final String ANY = "Any";
+    private final JTextField searchField = new JTextField(12);
+    private final JComboBox<String> searchStatusComboBox = new JComboBox<>();
+    private final JComboBox<String> searchCategoryComboBox = new JComboBox<>();
+    private final JTextField dueFromField = new JTextField(7);
+    private final JTextField dueToField = new JTextField(7);
+    private final JLabel searchStatusLabel = new JLabel();
+    private final Timer searchTimer = new Timer(SEARCH_DELAY_MS, e -> runSearch());
+    // The search filling the table, if it has not finished; cancelled when a newer one starts
+    private TaskSearchWorker currentSearch;
+
     /**
      * Creates new form TaskBuddyGUI
      */
@@ -39,43 +59,36 @@ public class TaskBuddyGUI extends javax.swing.JFrame {
         // Initialize GUI components generated by the NetBeans Form Editor
         initComponents();
         
-        // Initialize the TaskManager and Categories
-        this.taskManager = new TaskManager();
-        this.categoryMap = new HashMap<>();
+        // Initialize the TaskManager and register the default categories
+        this.taskManager = new ConcurrentTaskManager();
+        this.asyncTasks = new AsyncTaskManager(taskManager);
+        // Changes are delivered on the event dispatch thread, after the change that caused them
+        this.changeFeed = new TaskChangeFeed(SwingUtilities::invokeLater,
+            TaskChangeFeed.DEFAULT_BUFFER_CAPACITY, TaskChangeFeed.DEFAULT_BUFFER_CAPACITY);
+        CategoryRegistry categories = taskManager.getCategoryRegistry();
+        categories.getOrCreate("Work");
+        categories.getOrCreate("Personal");
+        categories.getOrCreate("Studies");
         
-        // Create and store categories in the map
-        Category workCategory = new Category(taskManager.generateCategoryId(), "Work");
-        Category personalCategory = new Category(taskManager.generateCategoryId(), "Personal");
-        Category studiesCategory = new Category(taskManager.generateCategoryId(), "Studies");
-        categoryMap.put(workCategory.getCategoryName(), workCategory);
-        categoryMap.put(personalCategory.getCategoryName(), personalCategory);
-        categoryMap.put(studiesCategory.getCategoryName(), studiesCategory);
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                // Let changes already started reach the journal before it is closed
+                asyncTasks.close();
+                taskManager.closeJournal();
+            }
+        });
 
         // Set up combo box models with task properties
-        String[] priorities = {"High", "Medium", "Low"};
-        priorityComboBox.setModel(new DefaultComboBoxModel<>(priorities));
-        
-        String[] statuses = {"To Do", "In Progress", "Completed"};
-        statusComboBox.setModel(new DefaultComboBoxModel<>(statuses));
-        
-        // Use the map to get category names for the combo box
-        String[] categoryNames = categoryMap.keySet().toArray(new String[0]);
-        categoryComboBox.setModel(new DefaultComboBoxModel<>(categoryNames));
+        priorityComboBox.setModel(new DefaultComboBoxModel<>(Priority.displayNames()));
+        statusComboBox.setModel(new DefaultComboBoxModel<>(Status.displayNames()));
         
-        // Set up the JTable's model
-        this.tableModel = new DefaultTableModel(columnNames, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false; // Make cells non-editable
-            }
-        };
+        // Set up the JTable's model; its cells are not editable. It starts empty and fills in once loaded.
+        this.tableModel = new TaskTableModel(taskManager, changeFeed, dateFormatter);
         taskTable.setModel(this.tableModel);
-        
-        // Add some sample tasks to the manager
-        loadInitialTasks();
-        
-        // Refresh the table with any initial tasks
-        refreshTable();
+        initSearchBar();
+        this.statisticsPanel = new TaskStatisticsPanel(asyncTasks, changeFeed);
+        jPanel3.add(statisticsPanel, BorderLayout.PAGE_END);
         
         // Add action listeners to the buttons
         AddButton.addActionListener(this::addTask);
@@ -92,6 +105,8 @@ public class TaskBuddyGUI extends javax.swing.JFrame {
                 }
             }
         });
+
+        loadTasksInBackground();
     }
     
     /**
@@ -248,37 +263,209 @@ public class TaskBuddyGUI extends javax.swing.JFrame {
 
   
     // <editor-fold defaultstate="collapsed" desc="Custom Methods">
-       /**
-     * Adds some initial tasks to the TaskManager for demonstration.
+    /**
+     * Adds the search bar above the table: title text, status, category and a due date range.
      */
-    private void loadInitialTasks() {
-        taskManager.addTask("Complete Java GUI project", "Finish the user interface for the To-Do list app.", LocalDate.of(2025, 8, 10), "High", "In Progress", categoryMap.get("Work"));
-        taskManager.addTask("Buy groceries", "Milk, eggs, bread, and fruits.", LocalDate.of(2025, 8, 7), "Medium", "To Do", categoryMap.get("Personal"));
-        taskManager.addTask("Read 'The Great Gatsby'", "Read chapters 1-3 for literature class.", LocalDate.of(2025, 8, 15), "High", "To Do", categoryMap.get("Studies"));
+    private void initSearchBar() {
+        searchStatusComboBox.addItem(ANY);
+        for (String name : Status.displayNames()) {
+            searchStatusComboBox.addItem(name);
+        }
+        fillCategoryChoices();
+        searchTimer.setRepeats(false);
+
+        // Every edit restarts the timer, so only the last of a burst of keystrokes searches
+        DocumentListener restart = new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                searchTimer.restart();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                searchTimer.restart();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                searchTimer.restart();
+            }
+        };
+        searchField.getDocument().addDocumentListener(restart);
+        dueFromField.getDocument().addDocumentListener(restart);
+        dueToField.getDocument().addDocumentListener(restart);
+        searchStatusComboBox.addActionListener(e -> searchTimer.restart());
+        searchCategoryComboBox.addActionListener(e -> searchTimer.restart());
+        searchField.setToolTipText("Words in the title or description");
+        dueFromField.setToolTipText("Due from (YYYY-MM-DD)");
+        dueToField.setToolTipText("Due to (YYYY-MM-DD)");
+
+        JPanel searchPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        searchPanel.setOpaque(false);
+        searchPanel.add(new JLabel("Search"));
+        searchPanel.add(searchField);
+        searchPanel.add(searchStatusComboBox);
+        searchPanel.add(searchCategoryComboBox);
+        searchPanel.add(new JLabel("Due"));
+        searchPanel.add(dueFromField);
+        searchPanel.add(new JLabel("to"));
+        searchPanel.add(dueToField);
+        searchPanel.add(searchStatusLabel);
+
+        jPanel3.setLayout(new BorderLayout());
+        jPanel3.add(searchPanel, BorderLayout.PAGE_START);
+        jPanel3.add(jScrollPane2, BorderLayout.CENTER);
     }
-    
+
     /**
-     * Refreshes the JTable with the current list of tasks from the TaskManager.
+     * Lists the registry's categories in the task form and the search bar, keeping what each
+     * has selected if it is still there.
      */
-    private void refreshTable() {
-        // Clear existing rows from the table model
-        tableModel.setRowCount(0);
-        
-        // Get all tasks and add them to the table
-        List<Task> allTasks = taskManager.listAllTasks();
-        for (Task task : allTasks) {
-            Object[] rowData = {
-                task.getTaskId(),
-                task.getTitle(),
-                task.getDescription(),
-                task.getDueDate().format(dateFormatter), // Format the date for display
-                task.getPriority(),
-                task.getStatus(),
-                task.getCategory().getCategoryName()
-            };
-            tableModel.addRow(rowData);
+    private void fillCategoryChoices() {
+        String[] names = taskManager.getCategoryRegistry().getNames();
+        Object selected = categoryComboBox.getSelectedItem();
+        categoryComboBox.setModel(new DefaultComboBoxModel<>(names));
+        if (selected != null) {
+            categoryComboBox.setSelectedItem(selected);
+        }
+
+        Object searched = searchCategoryComboBox.getSelectedItem();
+        DefaultComboBoxModel<String> searchModel = new DefaultComboBoxModel<>();
+        searchModel.addElement(ANY);
+        for (String name : names) {
+            searchModel.addElement(name);
+        }
+        searchCategoryComboBox.setModel(searchModel);
+        if (searched != null) {
+            searchCategoryComboBox.setSelectedItem(searched);
+        }
+    }
+
+    /**
+     * Reloads saved tasks (adding the samples on first run) on a background thread, so a large
+     * journal does not freeze the window. Changing tasks is disabled until it is done.
+     */
+    private void loadTasksInBackground() {
+        setEditingEnabled(false);
+        searchStatusLabel.setText("Loading tasks...");
+        new SwingWorker<Void, Void>() {
+            private IOException journalError;
+
+            @Override
+            protected Void doInBackground() {
+                // The journal is synced and closed with the window
+                try {
+                    taskManager.attachJournal(new TaskJournal(TaskJournal.defaultDirectory()));
+                } catch (IOException e) {
+                    journalError = e;
+                }
+                if (taskManager.getTaskCount() == 0) {
+                    loadInitialTasks();
+                }
+                // Only changes from now on reach the table, which then searches the loaded tasks
+                taskManager.setEventSink(changeFeed);
+                return null;
+            }
+
+            @Override
+            protected void done() {
+                if (journalError != null) {
+                    JOptionPane.showMessageDialog(TaskBuddyGUI.this, "Could not open the task journal, changes will not be saved.\n" + journalError.getMessage(), "Storage Error", JOptionPane.ERROR_MESSAGE);
+                }
+                // The journal may have brought back categories the combo boxes do not list yet
+                fillCategoryChoices();
+                setEditingEnabled(true);
+                runSearch();
+                statisticsPanel.refresh();
+            }
+        }.execute();
+    }
+
+    private void setEditingEnabled(boolean enabled) {
+        AddButton.setEnabled(enabled);
+        UpdateButton.setEnabled(enabled);
+        DeleteButton.setEnabled(enabled);
+    }
+
+    /**
+     * Shows the tasks matching the search bar, replacing any search still running.
+     */
+    private void runSearch() {
+        searchTimer.stop();
+        if (currentSearch != null) {
+            currentSearch.cancel(true);
+            currentSearch = null;
+        }
+        LocalDate dueFrom = parseSearchDate(dueFromField);
+        LocalDate dueTo = parseSearchDate(dueToField);
+        String statusName = (String) searchStatusComboBox.getSelectedItem();
+        String categoryName = (String) searchCategoryComboBox.getSelectedItem();
+        TaskFilter filter = new TaskFilter(searchField.getText(),
+            ANY.equals(statusName) ? null : Status.parse(statusName),
+            ANY.equals(categoryName) ? null : taskManager.findCategory(categoryName),
+            dueFrom, dueTo);
+
+        // The rows are about to change, so nothing stays selected for Update or Delete
+        taskTable.clearSelection();
+        selectedVersion = TaskManager.ANY_VERSION;
+        if (filter.isEmpty()) {
+            // Every task matches, and the current snapshot already holds them
+            tableModel.showAll();
+            showMatchCount(tableModel.getRowCount());
+            return;
+        }
+        searchStatusLabel.setText("Searching...");
+        currentSearch = new TaskSearchWorker(taskManager, tableModel, filter, this::showMatchCount);
+        currentSearch.start();
+    }
+
+    private void showMatchCount(int count) {
+        currentSearch = null;
+        searchStatusLabel.setText(count == 1 ? "1 task" : count + " tasks");
+    }
+
+    /**
+     * Reads a date bound from the search bar; a blank or invalid date is no bound, and an
+     * invalid one is shown in red.
+     */
+    private LocalDate parseSearchDate(JTextField field) {
+        String text = field.getText().strip();
+        field.setForeground(Color.BLACK);
+        if (text.isEmpty()) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(text, dateFormatter);
+        } catch (DateTimeParseException e) {
+            field.setForeground(Color.RED);
+            return null;
         }
     }
+
+    /**
+     * Shows the outcome of a change once it has finished in the background.
+     */
+    private void showResult(CompletableFuture<TaskResult> change, String errorTitle, String successMessage, String failureMessage) {
+        change.whenComplete((result, error) -> SwingUtilities.invokeLater(() -> {
+            if (error != null) {
+                JOptionPane.showMessageDialog(this, failureMessage, "Error", JOptionPane.ERROR_MESSAGE);
+            } else if (!result.isSuccess()) {
+                JOptionPane.showMessageDialog(this, result.getMessage(), errorTitle, JOptionPane.ERROR_MESSAGE);
+            } else {
+                JOptionPane.showMessageDialog(this, successMessage, "Success", JOptionPane.INFORMATION_MESSAGE);
+                clearInputFields();
+            }
+        }));
+    }
+
+    /**
+     * Adds some initial tasks to the TaskManager for demonstration.
+     */
+    private void loadInitialTasks() {
+        taskManager.addTask("Complete Java GUI project", "Finish the user interface for the To-Do list app.", LocalDate.of(2025, 8, 10), Priority.HIGH, Status.IN_PROGRESS, taskManager.findCategory("Work"));
+        taskManager.addTask("Buy groceries", "Milk, eggs, bread, and fruits.", LocalDate.of(2025, 8, 7), Priority.MEDIUM, Status.TO_DO, taskManager.findCategory("Personal"));
+        taskManager.addTask("Read 'The Great Gatsby'", "Read chapters 1-3 for literature class.", LocalDate.of(2025, 8, 15), Priority.HIGH, Status.TO_DO, taskManager.findCategory("Studies"));
+    }
     
     /**
      * Adds a new task based on the input fields.
@@ -288,8 +475,8 @@ public class TaskBuddyGUI extends javax.swing.JFrame {
             String title = jTextField1.getText();
             String description = jTextArea1.getText();
             String dueDateStr = jTextField2.getText();
-            String priority = (String) priorityComboBox.getSelectedItem();
-            String status = (String) statusComboBox.getSelectedItem();
+            Priority priority = Priority.parse((String) priorityComboBox.getSelectedItem());
+            Status status = Status.parse((String) statusComboBox.getSelectedItem());
             String categoryName = (String) categoryComboBox.getSelectedItem();
 
             if (title.isEmpty() || dueDateStr.isEmpty()) {
@@ -298,13 +485,10 @@ public class TaskBuddyGUI extends javax.swing.JFrame {
             }
 
             LocalDate dueDate = LocalDate.parse(dueDateStr, dateFormatter);
-            Category category = categoryMap.get(categoryName);
-            
-            taskManager.addTask(title, description, dueDate, priority, status, category);
+            Category category = taskManager.findCategory(categoryName);
             
-            JOptionPane.showMessageDialog(this, "Task added successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
-            clearInputFields();
-            refreshTable();
+            showResult(asyncTasks.addTask(title, description, dueDate, priority, status, category),
+                "Input Error", "Task added successfully!", "An error occurred while adding the task.");
 
         } catch (DateTimeParseException ex) {
             JOptionPane.showMessageDialog(this, "Invalid date format. Please use YYYY-MM-DD.", "Input Error", JOptionPane.ERROR_MESSAGE);
@@ -324,12 +508,12 @@ public class TaskBuddyGUI extends javax.swing.JFrame {
         }
 
         try {
-            String taskId = (String) tableModel.getValueAt(selectedRow, 0);
+            CompactId taskId = tableModel.getTaskAt(selectedRow).getId();
             String title = jTextField1.getText();
             String description = jTextArea1.getText();
             String dueDateStr = jTextField2.getText();
-            String priority = (String) priorityComboBox.getSelectedItem();
-            String status = (String) statusComboBox.getSelectedItem();
+            Priority priority = Priority.parse((String) priorityComboBox.getSelectedItem());
+            Status status = Status.parse((String) statusComboBox.getSelectedItem());
             String categoryName = (String) categoryComboBox.getSelectedItem();
             
             if (title.isEmpty() || dueDateStr.isEmpty()) {
@@ -338,13 +522,10 @@ public class TaskBuddyGUI extends javax.swing.JFrame {
             }
             
             LocalDate dueDate = LocalDate.parse(dueDateStr, dateFormatter);
-            Category category = categoryMap.get(categoryName);
+            Category category = taskManager.findCategory(categoryName);
             
-            taskManager.updateTask(taskId, title, description, dueDate, priority, status, category);
-
-            JOptionPane.showMessageDialog(this, "Task updated successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
-            clearInputFields();
-            refreshTable();
+            showResult(asyncTasks.updateTask(taskId, selectedVersion, title, description, dueDate, priority, status, category),
+                "Update Error", "Task updated successfully!", "An error occurred while updating the task.");
 
         } catch (DateTimeParseException ex) {
             JOptionPane.showMessageDialog(this, "Invalid date format. Please use YYYY-MM-DD.", "Input Error", JOptionPane.ERROR_MESSAGE);
@@ -365,34 +546,27 @@ public class TaskBuddyGUI extends javax.swing.JFrame {
 
         int confirm = JOptionPane.showConfirmDialog(this, "Are you sure you want to delete this task?", "Confirm Deletion", JOptionPane.YES_NO_OPTION);
         if (confirm == JOptionPane.YES_OPTION) {
-            String taskId = (String) tableModel.getValueAt(selectedRow, 0);
-            taskManager.removeTask(taskId);
-            
-            JOptionPane.showMessageDialog(this, "Task deleted successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
-            clearInputFields();
-            refreshTable();
+            CompactId taskId = tableModel.getTaskAt(selectedRow).getId();
+            showResult(asyncTasks.removeTask(taskId),
+                "Delete Error", "Task deleted successfully!", "An error occurred while deleting the task.");
         }
     }
     
     /**
-     * Populates the input fields with data from a selected table row.
+     * Populates the input fields from the task shown in a table row.
      * @param row The index of the selected row.
      */
     private void populateFieldsFromTable(int row) {
-        String title = (String) tableModel.getValueAt(row, 1);
-        String description = (String) tableModel.getValueAt(row, 2);
-        String dueDateStr = (String) tableModel.getValueAt(row, 3);
-        String priority = (String) tableModel.getValueAt(row, 4);
-        String status = (String) tableModel.getValueAt(row, 5);
-        String categoryName = (String) tableModel.getValueAt(row, 6);
+        Task task = tableModel.getTaskAt(row);
+        selectedVersion = task.getVersion();
 
         // Populate the fields
-        jTextField1.setText(title);
-        jTextArea1.setText(description);
-        jTextField2.setText(dueDateStr);
-        priorityComboBox.setSelectedItem(priority);
-        statusComboBox.setSelectedItem(status);
-        categoryComboBox.setSelectedItem(categoryName);
+        jTextField1.setText(task.getTitle());
+        jTextArea1.setText(task.getDescription());
+        jTextField2.setText(task.getDueDate().format(dateFormatter));
+        priorityComboBox.setSelectedItem(task.getPriority().getDisplayName());
+        statusComboBox.setSelectedItem(task.getStatus().getDisplayName());
+        categoryComboBox.setSelectedItem(task.getCategory().getCategoryName());
     }
     
     /**
@@ -406,6 +580,7 @@ public class TaskBuddyGUI extends javax.swing.JFrame {
         statusComboBox.setSelectedIndex(0);
         categoryComboBox.setSelectedIndex(0);
         taskTable.clearSelection();
+        selectedVersion = TaskManager.ANY_VERSION;
     }
     
     // </editor-fold>
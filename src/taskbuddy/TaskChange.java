@@ -0,0 +1,83 @@
+package taskbuddy;
+
+/**
+ * One entry in a TaskChangeFeed: what happened to a task, with the task before and after.
+ * Sequence numbers are assigned by the feed and increase by one per change it records.
+ */
+public final class TaskChange {
+
+    public enum Type {
+        ADDED,
+        UPDATED,
+        REMOVED,
+        COMPLETED
+    }
+
+    private final long sequence;
+    private final Type type;
+    private final CompactId taskId;
+    private final Task before;
+    private final Task after;
+
+    TaskChange(long sequence, Type type, CompactId taskId, Task before, Task after) {
+        this.sequence = sequence;
+        this.type = type;
+        this.taskId = taskId;
+        this.before = before;
+        this.after = after;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public CompactId getTaskId() {
+        return taskId;
+    }
+
+    /**
+     * Gets the task before the change, or null for an add.
+     */
+    public Task getBefore() {
+        return before;
+    }
+
+    /**
+     * Gets the task after the change, or null for a remove.
+     */
+    public Task getAfter() {
+        return after;
+    }
+
+    /**
+     * Combines this undelivered change with a later one to the same task into the single change
+     * with the same net effect. It keeps this change's sequence number, so it is delivered
+     * where this one would have been and a subscriber resuming after it still gets the later one.
+     * @return the combined change, or null if the two cancel out (an add, then a remove).
+     */
+    TaskChange followedBy(TaskChange later) {
+        Task first = before;
+        Task last = later.after;
+        if (first == null && last == null) {
+            return null;
+        }
+        Type combined;
+        if (first == null) {
+            combined = Type.ADDED;
+        } else if (last == null) {
+            combined = Type.REMOVED;
+        } else {
+            combined = later.type == Type.COMPLETED ? Type.COMPLETED : Type.UPDATED;
+        }
+        return new TaskChange(sequence, combined, taskId, first, last);
+    }
+
+    @Override
+    public String toString() {
+        return "TaskChange{sequence=" + sequence + ", type=" + type + ", taskId=" + taskId + "}";
+    }
+}
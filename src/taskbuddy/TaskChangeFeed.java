@@ -0,0 +1,319 @@
+package taskbuddy;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * An ordered stream of task changes, published with java.util.concurrent.Flow so views, caches
+ * and exporters can follow a TaskManager incrementally instead of re-reading every task.
+ * Install it as (part of) the TaskManager's event sink:
+ * <pre>
+ *   TaskChangeFeed feed = new TaskChangeFeed();
+ *   taskManager.setEventSink(feed);
+ *   feed.subscribe(subscriber);
+ * </pre>
+ * Every add, update, remove and completion becomes a TaskChange with the task before and after
+ * and a sequence number one higher than the last. Subscribers are called on the feed's executor,
+ * never on the thread making the change, and each one only gets what it has requested.
+ * <p>
+ * <b>Buffering and coalescing.</b> Each subscriber has its own buffer of undelivered changes,
+ * holding at most one change per task: a later change to a task already waiting is merged into
+ * it (so ten edits to one task while a subscriber is busy arrive as one UPDATED, and an add
+ * followed by a remove arrives as nothing). A merged change keeps the place and sequence number
+ * of the first change it absorbed, with the task as the last one left it, so changes are always
+ * delivered in increasing sequence order. If more than bufferCapacity distinct tasks are waiting,
+ * the subscriber is cut off with onError rather than slowing down the writers.
+ * <p>
+ * <b>Resuming.</b> The feed keeps the last historyCapacity changes. A subscriber that was cut off
+ * or restarted can subscribe again from the sequence of the last change it processed and will
+ * get everything after it. Changes that were merged into one it already processed come again;
+ * each carries the task's state after it, so applying them again leaves the same result. If
+ * those changes are no longer kept it gets onError instead, and should re-read a snapshot from
+ * the TaskManager and subscribe from getLastSequence().
+ */
+public class TaskChangeFeed implements Flow.Publisher<TaskChange>, TaskEventSink {
+
+    public static final int DEFAULT_BUFFER_CAPACITY = 4096;
+
+    private final Executor executor;
+    private final int bufferCapacity;
+    private final int historyCapacity;
+
+    // The most recent changes, oldest first; guarded by this
+    private final ArrayDeque<TaskChange> history = new ArrayDeque<>();
+    private long lastSequence;
+    private boolean closed;
+
+    private final List<ChangeSubscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    public TaskChangeFeed() {
+        this(ForkJoinPool.commonPool(), DEFAULT_BUFFER_CAPACITY, DEFAULT_BUFFER_CAPACITY);
+    }
+
+    /**
+     * @param executor runs subscriber callbacks.
+     * @param bufferCapacity the most tasks with undelivered changes a subscriber may have.
+     * @param historyCapacity the number of changes kept for resuming; at most bufferCapacity,
+     *        so a resumed subscriber's backlog always fits in its buffer.
+     */
+    public TaskChangeFeed(Executor executor, int bufferCapacity, int historyCapacity) {
+        if (bufferCapacity < 1 || historyCapacity < 0 || historyCapacity > bufferCapacity) {
+            throw new IllegalArgumentException("Need bufferCapacity >= 1 and 0 <= historyCapacity <= bufferCapacity");
+        }
+        this.executor = Objects.requireNonNull(executor);
+        this.bufferCapacity = bufferCapacity;
+        this.historyCapacity = historyCapacity;
+    }
+
+    /**
+     * Gets the sequence number of the latest change, or 0 if there has been none.
+     */
+    public synchronized long getLastSequence() {
+        return lastSequence;
+    }
+
+    /**
+     * Gets the number of current subscribers.
+     */
+    public int getSubscriberCount() {
+        return subscriptions.size();
+    }
+
+    /**
+     * Records a task change and offers it to every subscriber. Other events are ignored.
+     */
+    @Override
+    public void accept(TaskEvent event) {
+        TaskChange.Type type = switch (event.getType()) {
+            case ADDED -> TaskChange.Type.ADDED;
+            case UPDATED -> TaskChange.Type.UPDATED;
+            case REMOVED -> TaskChange.Type.REMOVED;
+            case COMPLETED -> TaskChange.Type.COMPLETED;
+            default -> null;
+        };
+        if (type == null) {
+            return;
+        }
+        Task before = type == TaskChange.Type.REMOVED ? event.getTask() : event.getPreviousTask();
+        Task after = type == TaskChange.Type.REMOVED ? null : event.getTask();
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            TaskChange change = new TaskChange(++lastSequence, type, event.getTaskId(), before, after);
+            if (historyCapacity > 0) {
+                if (history.size() == historyCapacity) {
+                    history.removeFirst();
+                }
+                history.addLast(change);
+            }
+            for (ChangeSubscription subscription : subscriptions) {
+                subscription.offer(change);
+            }
+        }
+    }
+
+    /**
+     * Subscribes to changes made from now on.
+     */
+    @Override
+    public void subscribe(Flow.Subscriber<? super TaskChange> subscriber) {
+        subscribe(subscriber, Long.MAX_VALUE);
+    }
+
+    /**
+     * Subscribes to every change with a sequence number greater than afterSequence, starting
+     * with the kept history. Pass 0 for every change since the feed was created, if all are still kept.
+     */
+    public void subscribe(Flow.Subscriber<? super TaskChange> subscriber, long afterSequence) {
+        Objects.requireNonNull(subscriber);
+        ChangeSubscription subscription = new ChangeSubscription(subscriber);
+        synchronized (this) {
+            long oldest = history.isEmpty() ? lastSequence + 1 : history.peekFirst().getSequence();
+            if (afterSequence < oldest - 1) {
+                subscription.fail(new IllegalStateException("Changes after sequence " + afterSequence
+                    + " are no longer kept; the oldest kept is " + oldest));
+            } else {
+                for (TaskChange change : history) {
+                    if (change.getSequence() > afterSequence) {
+                        subscription.offer(change);
+                    }
+                }
+                if (closed) {
+                    subscription.complete();
+                } else {
+                    subscriptions.add(subscription);
+                }
+            }
+        }
+        subscriber.onSubscribe(subscription);
+        subscription.start();
+    }
+
+    /**
+     * Stops recording changes. Each subscriber gets onComplete once it has taken its backlog.
+     */
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        for (ChangeSubscription subscription : subscriptions) {
+            subscription.complete();
+        }
+        subscriptions.clear();
+    }
+
+    /**
+     * One subscriber's buffer and demand. Signals are delivered by a single drain task at a
+     * time on the executor, so the subscriber is never called concurrently.
+     */
+    private final class ChangeSubscription implements Flow.Subscription {
+
+        private final Flow.Subscriber<? super TaskChange> subscriber;
+
+        // Guarded by this. Undelivered changes, one per task, in increasing sequence order:
+        // a merged change stays where the task's first undelivered change was, with its sequence.
+        private final LinkedHashMap<CompactId, TaskChange> pending = new LinkedHashMap<>();
+        private long demand;
+        private Throwable error;
+        private boolean completing;
+        private boolean started;
+        private boolean draining;
+        private boolean done;
+
+        ChangeSubscription(Flow.Subscriber<? super TaskChange> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        synchronized void offer(TaskChange change) {
+            if (done || error != null) {
+                return;
+            }
+            TaskChange earlier = pending.get(change.getTaskId());
+            TaskChange merged = earlier == null ? change : earlier.followedBy(change);
+            if (merged == null) {
+                pending.remove(change.getTaskId());
+            } else {
+                // put() on a waiting task's ID keeps its place in the queue
+                pending.put(change.getTaskId(), merged);
+            }
+            if (pending.size() > bufferCapacity) {
+                fail(new IllegalStateException("Subscriber fell more than " + bufferCapacity
+                    + " tasks behind; subscribe again from the last sequence it processed"));
+                return;
+            }
+            scheduleDrain();
+        }
+
+        synchronized void fail(Throwable cause) {
+            if (done || error != null) {
+                return;
+            }
+            error = cause;
+            pending.clear();
+            subscriptions.remove(this);
+            scheduleDrain();
+        }
+
+        synchronized void complete() {
+            completing = true;
+            scheduleDrain();
+        }
+
+        synchronized void start() {
+            started = true;
+            scheduleDrain();
+        }
+
+        @Override
+        public synchronized void request(long n) {
+            if (n <= 0) {
+                fail(new IllegalArgumentException("request(" + n + "): demand must be positive"));
+                return;
+            }
+            demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+            scheduleDrain();
+        }
+
+        @Override
+        public void cancel() {
+            synchronized (this) {
+                done = true;
+                pending.clear();
+            }
+            subscriptions.remove(this);
+        }
+
+        /**
+         * Starts a drain task if there is something the subscriber can be sent. Call with the lock held.
+         */
+        private void scheduleDrain() {
+            if (!started || draining || done) {
+                return;
+            }
+            if (error != null || (completing && pending.isEmpty()) || (demand > 0 && !pending.isEmpty())) {
+                draining = true;
+                try {
+                    executor.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    draining = false;
+                }
+            }
+        }
+
+        private void drain() {
+            while (true) {
+                TaskChange next = null;
+                Throwable failure = null;
+                boolean finished = false;
+                synchronized (this) {
+                    if (done) {
+                        draining = false;
+                        return;
+                    }
+                    if (error != null) {
+                        failure = error;
+                        done = true;
+                    } else if (demand > 0 && !pending.isEmpty()) {
+                        Iterator<TaskChange> oldest = pending.values().iterator();
+                        next = oldest.next();
+                        oldest.remove();
+                        demand--;
+                    } else if (completing && pending.isEmpty()) {
+                        finished = true;
+                        done = true;
+                    } else {
+                        draining = false;
+                        return;
+                    }
+                }
+                if (failure != null) {
+                    subscriber.onError(failure);
+                    return;
+                }
+                if (finished) {
+                    subscriber.onComplete();
+                    return;
+                }
+                try {
+                    subscriber.onNext(next);
+                } catch (RuntimeException e) {
+                    // A subscriber that throws is treated as having cancelled
+                    cancel();
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package taskbuddy;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Counters behind TaskManager.getStatistics(), kept in step with every change in O(1):
+ * the number of tasks for each status, category and priority combination, and the number of
+ * open (not completed) tasks due on each day and in each week.
+ * Not thread-safe; TaskManager owns it.
+ */
+final class TaskCounters {
+
+    private static final int STATUSES = Status.values().length;
+    private static final int PRIORITIES = Priority.values().length;
+    private static final int SLOTS_PER_CATEGORY = STATUSES * PRIORITIES;
+
+    // Task counts indexed by slot(category ID, status, priority); grows with the category IDs seen
+    private int[] counts = new int[4 * SLOTS_PER_CATEGORY];
+    private int total;
+    // Open tasks by due date as epoch day, and by the epoch day of the Monday starting their week
+    private final Map<Long, int[]> openByDay = new HashMap<>();
+    private final Map<Long, int[]> openByWeek = new HashMap<>();
+
+    /**
+     * Counts the given tasks, in O(n).
+     */
+    TaskCounters(Iterable<Task> tasks) {
+        for (Task task : tasks) {
+            add(task);
+        }
+    }
+
+    /**
+     * Counts one change: previous is null for an add, current is null for a removal.
+     */
+    void replace(Task previous, Task current) {
+        if (previous != null) {
+            remove(previous);
+        }
+        if (current != null) {
+            add(current);
+        }
+    }
+
+    void add(Task task) {
+        int slot = slot(task);
+        if (slot >= counts.length) {
+            int[] grown = new int[Math.max(counts.length * 2, slot + SLOTS_PER_CATEGORY)];
+            System.arraycopy(counts, 0, grown, 0, counts.length);
+            counts = grown;
+        }
+        counts[slot]++;
+        total++;
+        if (!task.isCompleted()) {
+            long day = task.getDueDate().toEpochDay();
+            adjust(openByDay, day, 1);
+            adjust(openByWeek, weekOf(day), 1);
+        }
+    }
+
+    void remove(Task task) {
+        counts[slot(task)]--;
+        total--;
+        if (!task.isCompleted()) {
+            long day = task.getDueDate().toEpochDay();
+            adjust(openByDay, day, -1);
+            adjust(openByWeek, weekOf(day), -1);
+        }
+    }
+
+    /**
+     * Copies the counters into an immutable snapshot, in O(categories + due days).
+     * @param categories the registered categories, for reporting counts by category.
+     */
+    TaskStatistics snapshot(List<Category> categories) {
+        return new TaskStatistics(counts.clone(), total, histogram(openByDay), histogram(openByWeek), categories);
+    }
+
+    static int slot(int categoryId, int statusCode, int priorityCode) {
+        return (categoryId * STATUSES + statusCode) * PRIORITIES + priorityCode;
+    }
+
+    private static int slot(Task task) {
+        return slot(task.getCategory().getCategoryId(), task.getStatus().ordinal(), task.getPriorityRank());
+    }
+
+    /**
+     * Gets the epoch day of the Monday of a day's week. Epoch day 0 was a Thursday.
+     */
+    static long weekOf(long epochDay) {
+        return epochDay - Math.floorMod(epochDay + 3, 7);
+    }
+
+    private static void adjust(Map<Long, int[]> histogram, long key, int delta) {
+        int[] count = histogram.computeIfAbsent(key, k -> new int[1]);
+        count[0] += delta;
+        if (count[0] == 0) {
+            histogram.remove(key);
+        }
+    }
+
+    private static TaskStatistics.Histogram histogram(Map<Long, int[]> counts) {
+        long[] keys = new long[counts.size()];
+        int i = 0;
+        for (long key : counts.keySet()) {
+            keys[i++] = key;
+        }
+        Arrays.sort(keys);
+        int[] cumulative = new int[keys.length + 1];
+        for (i = 0; i < keys.length; i++) {
+            cumulative[i + 1] = cumulative[i] + counts.get(keys[i])[0];
+        }
+        return new TaskStatistics.Histogram(keys, cumulative);
+    }
+}
@@ -0,0 +1,111 @@
+package taskbuddy;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Comparator;
+
+/**
+ * A position in a query's sort order: the sort keys of the last task on a page. Callers only
+ * ever see it as an opaque token (see TaskPage), which TaskManager turns back into a cursor to
+ * read the page after it.
+ * <p>
+ * Every order ends in the insertion sequence, so a position is never shared by two tasks and
+ * paging resumes at the same place however many tasks were added or removed in between,
+ * including the last task of the previous page itself.
+ */
+final class TaskCursor {
+
+    private static final String VERSION = "1";
+    private static final Comparator<Task> INSERTION_ORDER = Comparator.comparingLong(Task::getSequence);
+
+    private final TaskOrder order;
+    private final long dueDay;
+    private final int priorityRank;
+    private final long sequence;
+    // A placeholder task at the cursor, and the order to compare it by
+    private final Task position;
+    private final Comparator<Task> comparator;
+
+    private TaskCursor(TaskOrder order, long dueDay, int priorityRank, long sequence) {
+        this.order = order;
+        this.dueDay = dueDay;
+        this.priorityRank = priorityRank;
+        this.sequence = sequence;
+        this.position = Task.probe(dueDay, priorityRank, sequence);
+        this.comparator = order == null ? INSERTION_ORDER : order.comparator();
+    }
+
+    /**
+     * Creates the cursor just after a task.
+     * @param order the order being paged through; null for insertion order.
+     */
+    static TaskCursor after(Task task, TaskOrder order) {
+        return new TaskCursor(order, task.getDueDate().toEpochDay(), task.getPriorityRank(), task.getSequence());
+    }
+
+    /**
+     * Reads a token made by toToken().
+     * @throws IllegalArgumentException if the token is malformed.
+     */
+    static TaskCursor parse(String token) {
+        String[] parts;
+        try {
+            parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.US_ASCII).split(":");
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Not a page cursor: " + token, e);
+        }
+        if (parts.length != 5 || !parts[0].equals(VERSION)) {
+            throw new IllegalArgumentException("Not a page cursor: " + token);
+        }
+        try {
+            TaskOrder order = parts[1].isEmpty() ? null : TaskOrder.valueOf(parts[1]);
+            int priorityRank = Integer.parseInt(parts[3]);
+            if (priorityRank < 0 || priorityRank >= Priority.values().length) {
+                throw new IllegalArgumentException("Not a page cursor: " + token);
+            }
+            return new TaskCursor(order, Long.parseLong(parts[2]), priorityRank, Long.parseLong(parts[4]));
+        } catch (IllegalArgumentException e) {
+            // Also covers NumberFormatException and unknown order names
+            throw new IllegalArgumentException("Not a page cursor: " + token, e);
+        }
+    }
+
+    String toToken() {
+        String position = VERSION + ":" + (order == null ? "" : order.name()) + ":" + dueDay + ":" + priorityRank + ":" + sequence;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Gets the order the cursor was made for, or null for insertion order.
+     */
+    TaskOrder getOrder() {
+        return order;
+    }
+
+    long getDueDay() {
+        return dueDay;
+    }
+
+    long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Gets a placeholder task at the cursor, for seeking in sorted views.
+     */
+    Task position() {
+        return position;
+    }
+
+    /**
+     * Checks if a task comes after the cursor in its order.
+     */
+    boolean isBefore(Task task) {
+        return comparator.compare(task, position) > 0;
+    }
+
+    @Override
+    public String toString() {
+        return toToken();
+    }
+}
@@ -0,0 +1,49 @@
+package taskbuddy;
+
+import java.time.LocalDate;
+
+/**
+ * The fields of a task that has not been added yet, used for bulk adds.
+ * TaskManager assigns the ID when the task is added.
+ */
+public class TaskDraft {
+    private final String title;
+    private final String description;
+    private final LocalDate dueDate;
+    private final Priority priority;
+    private final Status status;
+    private final Category category;
+
+    public TaskDraft(String title, String description, LocalDate dueDate, Priority priority, Status status, Category category) {
+        this.title = title;
+        this.description = description;
+        this.dueDate = dueDate;
+        this.priority = priority;
+        this.status = status;
+        this.category = category;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public LocalDate getDueDate() {
+        return dueDate;
+    }
+
+    public Priority getPriority() {
+        return priority;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public Category getCategory() {
+        return category;
+    }
+}
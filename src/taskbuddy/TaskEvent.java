@@ -0,0 +1,100 @@
+package taskbuddy;
+
+/**
+ * Something that happened in a TaskManager, as delivered to its TaskEventSink.
+ * Console text is only built if getMessage() is called.
+ */
+public final class TaskEvent {
+
+    public enum Type {
+        ADDED,
+        UPDATED,
+        REMOVED,
+        COMPLETED,
+        BATCH_APPLIED,
+        CATEGORY_RENAMED,
+        // A rejected change or an invalid query; the detail says why
+        ERROR
+    }
+
+    private final Type type;
+    private final CompactId taskId;
+    private final Task task;
+    private final Task previousTask;
+    private final String detail;
+    private final boolean partOfBatch;
+
+    TaskEvent(Type type, CompactId taskId, Task task, String detail) {
+        this(type, taskId, task, null, detail, false);
+    }
+
+    TaskEvent(Type type, CompactId taskId, Task task, Task previousTask, String detail, boolean partOfBatch) {
+        this.type = type;
+        this.taskId = taskId;
+        this.task = task;
+        this.previousTask = previousTask;
+        this.detail = detail;
+        this.partOfBatch = partOfBatch;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Gets the ID of the task concerned, or null if the event is not about one task.
+     */
+    public CompactId getTaskId() {
+        return taskId;
+    }
+
+    /**
+     * Gets the task after the change (before it, for a remove), or null.
+     */
+    public Task getTask() {
+        return task;
+    }
+
+    /**
+     * Gets the task as it was before an UPDATED or COMPLETED change, or null for other events.
+     */
+    public Task getPreviousTask() {
+        return previousTask;
+    }
+
+    /**
+     * Checks whether this change was made by addTasks or applyBatch rather than on its own.
+     * The console skips these, printing one line per batch instead of one per task.
+     */
+    public boolean isPartOfBatch() {
+        return partOfBatch;
+    }
+
+    /**
+     * Gets extra detail: the error text for ERROR events, the new name for CATEGORY_RENAMED,
+     * and the operation count for BATCH_APPLIED.
+     */
+    public String getDetail() {
+        return detail;
+    }
+
+    /**
+     * Gets the line TaskManager used to print for this event.
+     */
+    public String getMessage() {
+        return switch (type) {
+            case ADDED -> "Task added: " + task.getTitle();
+            case UPDATED -> "Task with ID " + taskId + " updated.";
+            case REMOVED -> "Task with ID " + taskId + " removed.";
+            case COMPLETED -> "Task with ID " + taskId + " marked as Completed.";
+            case BATCH_APPLIED -> "Batch applied: " + detail + " operations.";
+            case CATEGORY_RENAMED -> "Category renamed to " + detail + ".";
+            case ERROR -> "Error: " + detail;
+        };
+    }
+
+    @Override
+    public String toString() {
+        return "TaskEvent{type=" + type + ", taskId=" + taskId + (detail != null ? ", detail='" + detail + "'" : "") + "}";
+    }
+}
@@ -0,0 +1,54 @@
+package taskbuddy;
+
+/**
+ * Receives the events a TaskManager emits. Sinks are called on the thread making the change,
+ * so they should be quick; RingBufferEventSink hands events to another thread without locking.
+ */
+public interface TaskEventSink {
+
+    /**
+     * A sink that ignores everything. TaskManager does not even create events for it.
+     */
+    TaskEventSink NONE = new TaskEventSink() {
+        @Override
+        public void accept(TaskEvent event) {
+        }
+
+        @Override
+        public boolean isEnabled() {
+            return false;
+        }
+    };
+
+    void accept(TaskEvent event);
+
+    /**
+     * Checks whether this sink wants events at all; if not, TaskManager skips creating them.
+     */
+    default boolean isEnabled() {
+        return true;
+    }
+
+    /**
+     * Returns a sink that passes each event to this sink and then to the next one.
+     */
+    default TaskEventSink andThen(TaskEventSink next) {
+        TaskEventSink first = this;
+        return new TaskEventSink() {
+            @Override
+            public void accept(TaskEvent event) {
+                if (first.isEnabled()) {
+                    first.accept(event);
+                }
+                if (next.isEnabled()) {
+                    next.accept(event);
+                }
+            }
+
+            @Override
+            public boolean isEnabled() {
+                return first.isEnabled() || next.isEnabled();
+            }
+        };
+    }
+}
@@ -0,0 +1,71 @@
+package taskbuddy;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * An immutable search over tasks: words in the title or description, status, category and a
+ * due date range. Words match as TaskManager.search() matches them: each must start a word of
+ * the task, ignoring case. Every criterion left null matches any task, so
+ * new TaskFilter(null, null, null, null, null) matches everything.
+ */
+public final class TaskFilter {
+
+    private final String text;
+    private final List<String> words;
+    private final Status status;
+    private final Category category;
+    private final LocalDate dueFrom;
+    private final LocalDate dueTo;
+
+    /**
+     * @param text words the title or description must contain; null or blank for any.
+     * @param dueFrom the earliest due date, inclusive.
+     * @param dueTo the latest due date, inclusive.
+     */
+    public TaskFilter(String text, Status status, Category category, LocalDate dueFrom, LocalDate dueTo) {
+        this.words = TaskTextIndex.tokenize(text);
+        this.text = words.isEmpty() ? null : text.strip();
+        this.status = status;
+        this.category = category;
+        this.dueFrom = dueFrom;
+        this.dueTo = dueTo;
+    }
+
+    /**
+     * Gets the words to search for, or null if any text matches.
+     */
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * Checks if the filter matches every task.
+     */
+    public boolean isEmpty() {
+        return text == null && status == null && category == null && dueFrom == null && dueTo == null;
+    }
+
+    public boolean matches(Task task) {
+        if (status != null && task.getStatus() != status) {
+            return false;
+        }
+        if (category != null && !category.equals(task.getCategory())) {
+            return false;
+        }
+        LocalDate dueDate = task.getDueDate();
+        if (dueFrom != null && dueDate.isBefore(dueFrom)) {
+            return false;
+        }
+        if (dueTo != null && dueDate.isAfter(dueTo)) {
+            return false;
+        }
+        return TaskTextIndex.matches(task, words);
+    }
+
+    @Override
+    public String toString() {
+        return "TaskFilter{text=" + text + ", status=" + status + ", category=" + category
+            + ", dueFrom=" + dueFrom + ", dueTo=" + dueTo + "}";
+    }
+}
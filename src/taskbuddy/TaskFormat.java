@@ -0,0 +1,37 @@
+package taskbuddy;
+
+import java.util.Locale;
+
+/**
+ * The file formats TaskTransfer can import and export.
+ */
+public enum TaskFormat {
+    /** Comma-separated values with a header row (RFC 4180 quoting). */
+    CSV,
+    /** One JSON object per line. */
+    JSON_LINES,
+    /**
+     * The todo.txt format; descriptions are not kept. A category becomes a +project tag with
+     * underscores for spaces, and every underscore in a tag is read back as a space, so
+     * "Home Office" survives a round trip but "Home_Office" comes back as "Home Office".
+     */
+    TODO_TXT;
+
+    /**
+     * Picks a format from a file name's extension: .csv, .jsonl/.ndjson, or .txt.
+     * @return the format, or null if the extension is not recognized.
+     */
+    public static TaskFormat fromFileName(String fileName) {
+        String name = fileName.toLowerCase(Locale.ROOT);
+        if (name.endsWith(".csv")) {
+            return CSV;
+        }
+        if (name.endsWith(".jsonl") || name.endsWith(".ndjson")) {
+            return JSON_LINES;
+        }
+        if (name.endsWith(".txt")) {
+            return TODO_TXT;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,477 @@
+package taskbuddy;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only write-ahead journal of TaskManager mutations, with group commit and snapshots.
+ * <p>
+ * Every add, update, remove and complete is appended as a small binary record
+ * ({@code [length][crc32][op][payload]}) to {@code tasks.journal}. Records are buffered and
+ * forced to disk together once {@code syncEveryRecords} have been written or
+ * {@code syncIntervalMillis} has passed, so a GUI click does not pay for an fsync. A crash can
+ * therefore lose at most the last unsynced batch; {@link #close()} always syncs.
+ * <p>
+ * After {@code snapshotEveryRecords} records, TaskManager writes every task to
+ * {@code tasks.snapshot} (a memory-mapped {@link TaskSnapshot}, written to a temporary file,
+ * synced, then atomically renamed) and the journal is truncated. On startup the snapshot is
+ * mapped and loaded, and then the journal replayed on top.
+ * Replay is idempotent (adding an existing task overwrites it, removing a missing one does
+ * nothing), so a crash between writing a snapshot and truncating the journal is harmless.
+ * A torn record at the end of the journal is detected by its checksum and cut off.
+ * <p>
+ * A journal holds an exclusive lock on its file while open, so opening a directory that another
+ * process (or another TaskJournal) is using fails with an IOException.
+ */
+public class TaskJournal implements Closeable {
+
+    static final String JOURNAL_FILE = "tasks.journal";
+    static final String SNAPSHOT_FILE = "tasks.snapshot";
+
+    private static final byte OP_ADD = 1;
+    private static final byte OP_UPDATE = 2;
+    private static final byte OP_REMOVE = 3;
+    private static final byte OP_COMPLETE = 4;
+    private static final byte OP_RENAME_CATEGORY = 5;
+    // A whole TaskManager.applyBatch; one checksum covers every operation, so replay is all-or-nothing
+    private static final byte OP_BATCH = 6;
+
+    // Records are encoded here before being written; flushed to the channel when full or on sync
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path directory;
+    private final int syncEveryRecords;
+    private final int snapshotEveryRecords;
+    private final FileChannel channel;
+    private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private final CRC32 crc = new CRC32();
+    private final ScheduledExecutorService syncTimer;
+    private int lastRecordStart;
+    private int unsyncedRecords;
+    private int recordsSinceSnapshot;
+    private boolean closed;
+    // A failed background sync, not yet reported
+    private IOException syncFailure;
+
+    /**
+     * Opens (or creates) a journal in the given directory with default settings:
+     * sync every 64 records or 200 ms, snapshot every 10,000 records.
+     */
+    public TaskJournal(Path directory) throws IOException {
+        this(directory, 64, 200, 10_000);
+    }
+
+    /**
+     * Opens (or creates) a journal in the given directory.
+     * @param syncEveryRecords force the journal to disk after this many records (1 = every record).
+     * @param syncIntervalMillis also force it after this many milliseconds; 0 disables the timer.
+     * @param snapshotEveryRecords take a snapshot and truncate the journal after this many records.
+     */
+    public TaskJournal(Path directory, int syncEveryRecords, long syncIntervalMillis, int snapshotEveryRecords) throws IOException {
+        this.directory = directory;
+        this.syncEveryRecords = Math.max(1, syncEveryRecords);
+        this.snapshotEveryRecords = Math.max(1, snapshotEveryRecords);
+        Files.createDirectories(directory);
+        this.channel = FileChannel.open(directory.resolve(JOURNAL_FILE),
+            StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        lockExclusively();
+        if (syncIntervalMillis > 0) {
+            this.syncTimer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "TaskJournal-sync");
+                thread.setDaemon(true);
+                return thread;
+            });
+            syncTimer.scheduleWithFixedDelay(this::syncQuietly, syncIntervalMillis, syncIntervalMillis, TimeUnit.MILLISECONDS);
+        } else {
+            this.syncTimer = null;
+        }
+    }
+
+    /**
+     * Takes an exclusive lock on the journal file, held until the channel is closed, so two
+     * processes (say the CLI and the GUI) never append to and truncate the same journal.
+     */
+    private void lockExclusively() throws IOException {
+        FileLock lock;
+        try {
+            lock = channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            // Already locked by another journal in this JVM
+            lock = null;
+        }
+        if (lock == null) {
+            channel.close();
+            throw new IOException("The task journal in " + directory + " is already in use by another TaskBuddy");
+        }
+    }
+
+    /**
+     * Gets the default data directory: the {@code taskbuddy.data.dir} system property,
+     * or {@code .taskbuddy} in the user's home directory.
+     */
+    public static Path defaultDirectory() {
+        String configured = System.getProperty("taskbuddy.data.dir");
+        if (configured != null && !configured.isBlank()) {
+            return Paths.get(configured);
+        }
+        return Paths.get(System.getProperty("user.home"), ".taskbuddy");
+    }
+
+    // --- Appending ---------------------------------------------------------------------------
+
+    synchronized void appendAdd(Task task) throws IOException {
+        appendRecord(OP_ADD, () -> writeTask(task));
+    }
+
+    synchronized void appendUpdate(Task task) throws IOException {
+        appendRecord(OP_UPDATE, () -> writeTask(task));
+    }
+
+    synchronized void appendRemove(CompactId id) throws IOException {
+        appendRecord(OP_REMOVE, () -> writeId(id));
+    }
+
+    synchronized void appendComplete(CompactId id) throws IOException {
+        appendRecord(OP_COMPLETE, () -> writeId(id));
+    }
+
+    synchronized void appendRenameCategory(String oldName, String newName) throws IOException {
+        appendRecord(OP_RENAME_CATEGORY, () -> {
+            writeString(oldName);
+            writeString(newName);
+        });
+    }
+
+    /**
+     * Appends a whole batch as one record.
+     * @param results the task each operation produced (the new or updated task), or null.
+     */
+    synchronized void appendBatch(List<TaskOperation> operations, List<Task> results) throws IOException {
+        appendRecord(OP_BATCH, () -> {
+            ensureRoom(4);
+            buffer.putInt(operations.size());
+            for (int i = 0; i < operations.size(); i++) {
+                TaskOperation operation = operations.get(i);
+                ensureRoom(1);
+                switch (operation.getKind()) {
+                    case ADD -> {
+                        buffer.put(OP_ADD);
+                        writeTask(results.get(i));
+                    }
+                    case UPDATE -> {
+                        buffer.put(OP_UPDATE);
+                        writeTask(results.get(i));
+                    }
+                    case REMOVE -> {
+                        buffer.put(OP_REMOVE);
+                        writeId(operation.getTaskId());
+                    }
+                    case COMPLETE -> {
+                        buffer.put(OP_COMPLETE);
+                        writeId(operation.getTaskId());
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Gets and clears the failure of the last background sync, or null if there was none.
+     */
+    synchronized IOException takeSyncFailure() {
+        IOException failure = syncFailure;
+        syncFailure = null;
+        return failure;
+    }
+
+    /**
+     * Checks whether enough records have been written that a snapshot is due.
+     */
+    synchronized boolean needsSnapshot() {
+        return recordsSinceSnapshot >= snapshotEveryRecords;
+    }
+
+    /**
+     * Writes every task to a new snapshot, then truncates the journal.
+     * @param tasks the tasks to save, in insertion order.
+     */
+    synchronized void writeSnapshot(Iterable<Task> tasks, int count) throws IOException {
+        sync();
+        Path temporary = directory.resolve(SNAPSHOT_FILE + ".tmp");
+        TaskSnapshot.write(temporary, tasks, count);
+        Files.move(temporary, directory.resolve(SNAPSHOT_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel.truncate(0);
+        channel.force(true);
+        recordsSinceSnapshot = 0;
+    }
+
+    /**
+     * Writes any buffered records and forces the journal to disk.
+     */
+    public synchronized void sync() throws IOException {
+        if (closed) {
+            return;
+        }
+        channel.position(channel.size());
+        drain(channel);
+        if (unsyncedRecords > 0) {
+            channel.force(false);
+            unsyncedRecords = 0;
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        if (syncTimer != null) {
+            syncTimer.shutdown();
+        }
+        sync();
+        closed = true;
+        channel.close();
+    }
+
+    /**
+     * Syncs from the timer thread. A failure is kept until TaskManager collects it with
+     * takeSyncFailure(), so it is reported on the thread making changes.
+     */
+    private synchronized void syncQuietly() {
+        try {
+            sync();
+        } catch (IOException e) {
+            syncFailure = e;
+        }
+    }
+
+    /**
+     * Encodes one record into the buffer. If encoding fails, the partial record is dropped so
+     * the records around it stay intact, and the failure is reported as an IOException.
+     */
+    private void appendRecord(byte op, Runnable payload) throws IOException {
+        beginRecord(op);
+        try {
+            payload.run();
+        } catch (RuntimeException e) {
+            buffer.position(lastRecordStart);
+            throw new IOException("Could not encode journal record: " + e, e);
+        }
+        endRecord();
+    }
+
+    private void beginRecord(byte op) throws IOException {
+        if (closed) {
+            throw new IOException("Task journal is closed");
+        }
+        // The length and checksum are filled in by sealRecord()
+        ensureRoom(9);
+        lastRecordStart = buffer.position();
+        buffer.putInt(0);
+        buffer.putInt(0);
+        buffer.put(op);
+    }
+
+    private void endRecord() throws IOException {
+        sealRecord();
+        unsyncedRecords++;
+        recordsSinceSnapshot++;
+        if (unsyncedRecords >= syncEveryRecords) {
+            sync();
+        } else if (buffer.position() > BUFFER_SIZE / 2) {
+            channel.position(channel.size());
+            drain(channel);
+        }
+    }
+
+    /**
+     * Fills in the length and checksum of the record most recently started in the buffer.
+     */
+    private void sealRecord() {
+        int end = buffer.position();
+        int start = lastRecordStart;
+        int payloadLength = end - start - 8;
+        crc.reset();
+        crc.update(buffer.array(), start + 8, payloadLength);
+        buffer.putInt(start, payloadLength);
+        buffer.putInt(start + 4, (int) crc.getValue());
+    }
+
+    private void drain(FileChannel out) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Grows the buffer if the next write would not fit, so a record is never split
+     * (long titles and large batches).
+     */
+    private void ensureRoom(int bytes) {
+        if (buffer.remaining() < bytes) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+            buffer.flip();
+            larger.put(buffer);
+            buffer = larger;
+        }
+    }
+
+    private void writeTask(Task task) {
+        writeId(task.getId());
+        writeString(task.getTitle());
+        writeString(task.getDescription());
+        ensureRoom(10);
+        buffer.putLong(task.getDueDate().toEpochDay());
+        buffer.put((byte) task.getPriority().ordinal());
+        buffer.put((byte) task.getStatus().ordinal());
+        writeString(task.getCategory().getCategoryName());
+    }
+
+    private void writeId(CompactId id) {
+        ensureRoom(16);
+        buffer.putLong(id.getHigh());
+        buffer.putLong(id.getLow());
+    }
+
+    private void writeString(String value) {
+        if (value == null) {
+            ensureRoom(4);
+            buffer.putInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        ensureRoom(4 + bytes.length);
+        buffer.putInt(bytes.length);
+        buffer.put(bytes);
+    }
+
+    // --- Replay ------------------------------------------------------------------------------
+
+    /**
+     * Loads the snapshot (if any) and replays the journal into the given TaskManager.
+     * A torn or corrupt record at the end of the journal is truncated away.
+     * @return the number of records applied.
+     */
+    synchronized int replayInto(TaskManager manager) throws IOException {
+        int applied = 0;
+        Path snapshot = directory.resolve(SNAPSHOT_FILE);
+        if (Files.exists(snapshot)) {
+            try (TaskSnapshot tasks = TaskSnapshot.open(snapshot)) {
+                manager.restoreSnapshot(tasks);
+                applied += tasks.size();
+            }
+        }
+        long size = channel.size();
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("The task journal is too large to replay: " + size + " bytes");
+        }
+        ByteBuffer log = ByteBuffer.allocate((int) size);
+        // A read may return fewer bytes than asked for; a short log would look torn and be cut off
+        while (log.hasRemaining()) {
+            if (channel.read(log, log.position()) < 0) {
+                break;
+            }
+        }
+        log.flip();
+        int logRecords = applyRecords(log, manager);
+        applied += logRecords;
+        recordsSinceSnapshot = logRecords;
+        if (log.position() < size) {
+            channel.truncate(log.position());
+            channel.force(true);
+        }
+        return applied;
+    }
+
+    /**
+     * Applies records until the data runs out or a record fails its checksum.
+     * Leaves the buffer positioned after the last good record.
+     */
+    private int applyRecords(ByteBuffer data, TaskManager manager) {
+        int applied = 0;
+        CRC32 check = new CRC32();
+        while (data.remaining() >= 8) {
+            int start = data.position();
+            int length = data.getInt();
+            int checksum = data.getInt();
+            if (length <= 0 || length > data.remaining()) {
+                data.position(start);
+                break;
+            }
+            check.reset();
+            check.update(data.array(), data.position(), length);
+            if ((int) check.getValue() != checksum) {
+                data.position(start);
+                break;
+            }
+            ByteBuffer record = data.slice(data.position(), length);
+            data.position(data.position() + length);
+            applyRecord(record, manager);
+            applied++;
+        }
+        return applied;
+    }
+
+    private static void applyRecord(ByteBuffer record, TaskManager manager) {
+        byte op = record.get();
+        if (op == OP_BATCH) {
+            int count = record.getInt();
+            for (int i = 0; i < count; i++) {
+                applyOperation(record.get(), record, manager);
+            }
+        } else {
+            applyOperation(op, record, manager);
+        }
+    }
+
+    private static void applyOperation(byte op, ByteBuffer record, TaskManager manager) {
+        switch (op) {
+            case OP_ADD, OP_UPDATE -> {
+                CompactId id = readId(record);
+                String title = readString(record);
+                String description = readString(record);
+                LocalDate dueDate = LocalDate.ofEpochDay(record.getLong());
+                Priority priority = Priority.fromCode(record.get());
+                Status status = Status.fromCode(record.get());
+                String categoryName = readString(record);
+                manager.restoreTask(id, title, description, dueDate, priority, status, categoryName);
+            }
+            case OP_REMOVE -> manager.restoreRemove(readId(record));
+            case OP_COMPLETE -> manager.restoreComplete(readId(record));
+            case OP_RENAME_CATEGORY -> manager.restoreRenameCategory(readString(record), readString(record));
+            default -> manager.restoreSkipped("Skipping unknown journal record type " + op);
+        }
+    }
+
+    private static CompactId readId(ByteBuffer record) {
+        return new CompactId(record.getLong(), record.getLong());
+    }
+
+    private static String readString(ByteBuffer record) {
+        int length = record.getInt();
+        if (length < 0) {
+            return null;
+        }
+        String value = new String(record.array(), record.arrayOffset() + record.position(), length, StandardCharsets.UTF_8);
+        record.position(record.position() + length);
+        return value;
+    }
+}
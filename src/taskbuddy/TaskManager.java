@@ -4,128 +4,725 @@
  */
 package taskbuddy;
 
+import java.io.IOException;
 import java.time.LocalDate;
 import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
-import java.util.UUID;
-import java.util.stream.Collectors;
+import java.util.Set;
 
 public class TaskManager {
-    private List<Task> tasks;
+    
+    /**
+     * Passed as the expected version to skip the version check. Real versions start at 1.
+     */
+    public static final int ANY_VERSION = 0;
+    
+    private final IdGenerator idGenerator;
+    
+    // The single owner of every Category used with this TaskManager
+    private final CategoryRegistry categories;
+    
+    // Holds the tasks and answers every lookup; see HeapTaskStore and ColumnarTaskStore
+    private final TaskStore store;
+    private long nextSequence;
+    
+    // The latest published point-in-time list of tasks, or null until getSnapshot() is first
+    // called, so a TaskManager nobody takes snapshots of pays nothing extra per change.
+    // Volatile so a published version can be read without locking.
+    private volatile ImmutableTaskList published;
+    // Counts changes; each published version carries the count it was taken at
+    private long version;
+    
+    // Word index over titles and descriptions, or null until search() is first called;
+    // like the published snapshot, it is then kept up to date by every change
+    private TaskTextIndex textIndex;
+    // Counts behind getStatistics(); built on first use, then kept current by every change
+    private TaskCounters counters;
+    
+    // Where mutations are recorded for durability; null until attachJournal() is called
+    private TaskJournal journal;
+    
+    // Receives an event for every change and error; nothing is printed unless a sink does it
+    private TaskEventSink events = TaskEventSink.NONE;
 
     public TaskManager() {
-        this.tasks = new ArrayList<>();
+        this(new HeapTaskStore(), new SequentialIdGenerator());
+    }
+    
+    /**
+     * Creates a TaskManager that takes task and category IDs from the given generator.
+     */
+    public TaskManager(IdGenerator idGenerator) {
+        this(new HeapTaskStore(), idGenerator);
+    }
+    
+    /**
+     * Creates a TaskManager backed by the given store.
+     */
+    public TaskManager(TaskStore store) {
+        this(store, new SequentialIdGenerator());
+    }
+    
+    /**
+     * Creates a TaskManager backed by the given store, taking IDs from the given generator.
+     */
+    public TaskManager(TaskStore store, IdGenerator idGenerator) {
+        this.store = store;
+        this.idGenerator = idGenerator;
+        this.categories = new CategoryRegistry();
     }
 
     /**
-     * Generates a unique String ID for a new task.
-     * @return a unique String ID.
+     * Generates a unique ID for a new task.
+     * @return a unique ID.
      */
-    private String generateTaskId() {
-        return UUID.randomUUID().toString();
+    private CompactId generateTaskId() {
+        return idGenerator.nextId();
     }
 
     /**
-     * Generates a unique String ID for a new category.
-     * @return a unique String ID.
+     * Sets where this TaskManager's events go. The default, TaskEventSink.NONE, drops them
+     * without creating them; the console app installs a sink that prints each one.
      */
-    public String generateCategoryId() {
-        return UUID.randomUUID().toString();
+    public void setEventSink(TaskEventSink sink) {
+        this.events = sink == null ? TaskEventSink.NONE : sink;
+    }
+    
+    public TaskEventSink getEventSink() {
+        return events;
+    }
+    
+    /**
+     * Gets the registry that owns this TaskManager's categories.
+     * Use it to create, look up and rename categories.
+     */
+    public CategoryRegistry getCategoryRegistry() {
+        return categories;
+    }
+    
+    /**
+     * Finds a category by its ID.
+     * @return the category, or null if no category has that ID.
+     */
+    public Category findCategory(int categoryId) {
+        return categories.find(categoryId);
+    }
+    
+    /**
+     * Finds a category by name (case-insensitive).
+     * @return the category, or null if no category has that name.
+     */
+    public Category findCategory(String categoryName) {
+        return categories.find(categoryName);
+    }
+
+    /**
+     * Renames a category, recording the change in the journal if one is attached.
+     * @return true if the category was renamed.
+     */
+    public boolean renameCategory(Category category, String newName) {
+        if (category == null || categories.find(category.getCategoryId()) != category) {
+            emitError("Category is not registered with this TaskManager");
+            return false;
+        }
+        String oldName = category.getCategoryName();
+        if (!categories.rename(category, newName)) {
+            emitError("Category name is empty or already in use");
+            return false;
+        }
+        writeJournal(j -> j.appendRenameCategory(oldName, category.getCategoryName()));
+        if (events.isEnabled()) {
+            events.accept(new TaskEvent(TaskEvent.Type.CATEGORY_RENAMED, null, null, category.getCategoryName()));
+        }
+        return true;
     }
 
     /**
-     * Adds a new task to the list.
+     * Adds a new task to the list. The task is journalled before it is added.
+     * @return the new task, a validation error, or not saved if the journal could not be written.
      */
-    public void addTask(String title, String description, LocalDate dueDate, String priority, String status, Category category) {
+    public TaskResult addTask(String title, String description, LocalDate dueDate, Priority priority, Status status, Category category) {
+        String error = validateNewTask(title, dueDate, priority, status, category);
+        if (error != null) {
+            emitError(error);
+            return TaskResult.invalid(error);
+        }
+
+        Task newTask = new Task(generateTaskId(), title, description, dueDate, priority, status, category, nextSequence++);
+        String journalError = appendJournal(j -> j.appendAdd(newTask));
+        if (journalError != null) {
+            return TaskResult.notSaved(null, journalError);
+        }
+        store.add(newTask);
+        publish(newTask, null);
+        snapshotIfDue();
+        emit(TaskEvent.Type.ADDED, newTask);
+        return TaskResult.success(newTask);
+    }
+    
+    /**
+     * Adds many tasks in one pass. Each added task is reported as an ADDED event marked as part
+     * of a batch, which the console does not print.
+     * Each draft is checked with the same rules as addTask; rejected drafts are skipped. The
+     * accepted ones are journalled as one batch record before any is added, so if the journal
+     * cannot be written none of them is added.
+     * @return one entry per draft, in order: null if it was added, otherwise why it was rejected.
+     */
+    public List<String> addTasks(List<TaskDraft> drafts) {
+        List<String> errors = new ArrayList<>(drafts.size());
+        List<TaskOperation> operations = new ArrayList<>(drafts.size());
+        List<Task> added = new ArrayList<>(drafts.size());
+        for (TaskDraft draft : drafts) {
+            String error = validateNewTask(draft.getTitle(), draft.getDueDate(), draft.getPriority(), draft.getStatus(), draft.getCategory());
+            errors.add(error);
+            if (error != null) {
+                continue;
+            }
+            operations.add(TaskOperation.add(draft));
+            added.add(new Task(generateTaskId(), draft.getTitle(), draft.getDescription(), draft.getDueDate(),
+                draft.getPriority(), draft.getStatus(), draft.getCategory(), nextSequence++));
+        }
+        if (added.isEmpty()) {
+            return errors;
+        }
+        String journalError = appendJournal(j -> j.appendBatch(operations, added));
+        if (journalError != null) {
+            for (int i = 0; i < errors.size(); i++) {
+                if (errors.get(i) == null) {
+                    errors.set(i, journalError);
+                }
+            }
+            return errors;
+        }
+
+        ImmutableTaskList next = nextVersion();
+        for (Task newTask : added) {
+            store.add(newTask);
+            next = next == null ? null : next.withTask(newTask, version);
+            indexText(newTask);
+            track(null, newTask);
+        }
+        // The whole call becomes visible to snapshot readers at once, before anyone is told of it
+        published = next;
+        snapshotIfDue();
+        if (events.isEnabled()) {
+            for (Task task : added) {
+                events.accept(new TaskEvent(TaskEvent.Type.ADDED, task.getId(), task, null, null, true));
+            }
+        }
+        return errors;
+    }
+    
+    /**
+     * Applies a batch of operations all-or-nothing.
+     * The whole batch is validated first, against the tasks as they will be when each operation
+     * runs (so a task removed earlier in the batch cannot be updated later in it). If any operation
+     * is invalid nothing is changed. Otherwise the journal gets one record for the whole batch,
+     * written before anything is changed so that a failed write leaves the batch unapplied; then
+     * every operation is applied and each change is reported as an event marked as part of a
+     * batch, followed by one BATCH_APPLIED event.
+     */
+    public BatchResult applyBatch(List<TaskOperation> operations) {
+        List<String> errors = new ArrayList<>();
+        Set<CompactId> removedInBatch = new HashSet<>();
+        for (int i = 0; i < operations.size(); i++) {
+            String error = validateOperation(operations.get(i), removedInBatch);
+            if (error != null) {
+                errors.add("Operation " + (i + 1) + ": " + error);
+            }
+        }
+        if (!errors.isEmpty()) {
+            if (events.isEnabled()) {
+                emitError("Batch rejected, nothing was changed. " + errors.get(0)
+                    + (errors.size() > 1 ? " (and " + (errors.size() - 1) + " more)" : ""));
+            }
+            return new BatchResult(errors, new ArrayList<>());
+        }
+
+        // The fields each add or update will leave behind, for the journal record; new tasks
+        // get their IDs here so the record and the store agree
+        List<Task> planned = new ArrayList<>(operations.size());
+        for (TaskOperation operation : operations) {
+            TaskDraft fields = operation.getFields();
+            switch (operation.getKind()) {
+                case ADD -> planned.add(new Task(generateTaskId(), fields.getTitle(), fields.getDescription(), fields.getDueDate(),
+                    fields.getPriority(), fields.getStatus(), fields.getCategory(), nextSequence++));
+                case UPDATE -> planned.add(new Task(operation.getTaskId(), fields.getTitle(), fields.getDescription(),
+                    fields.getDueDate(), fields.getPriority(), fields.getStatus(), fields.getCategory()));
+                default -> planned.add(null);
+            }
+        }
+        String journalError = appendJournal(j -> j.appendBatch(operations, planned));
+        if (journalError != null) {
+            errors.add(journalError);
+            return new BatchResult(errors, new ArrayList<>());
+        }
+
+        List<Task> added = new ArrayList<>();
+        ImmutableTaskList next = nextVersion();
+        // Events are sent once the whole batch is in the store, so no listener sees it half done
+        List<TaskEvent> changes = events.isEnabled() ? new ArrayList<>(operations.size()) : null;
+        for (int i = 0; i < operations.size(); i++) {
+            TaskOperation operation = operations.get(i);
+            CompactId taskId = operation.getTaskId();
+            TaskDraft fields = operation.getFields();
+            Task result = null;
+            Task previous = null;
+            switch (operation.getKind()) {
+                case ADD -> {
+                    result = planned.get(i);
+                    store.add(result);
+                    added.add(result);
+                    if (changes != null) {
+                        changes.add(new TaskEvent(TaskEvent.Type.ADDED, result.getId(), result, null, null, true));
+                    }
+                }
+                case UPDATE -> {
+                    previous = store.get(taskId);
+                    result = store.update(taskId, fields.getTitle(), fields.getDescription(), fields.getDueDate(),
+                        fields.getPriority(), fields.getStatus(), fields.getCategory());
+                    if (changes != null) {
+                        changes.add(new TaskEvent(TaskEvent.Type.UPDATED, taskId, result, previous, null, true));
+                    }
+                }
+                case REMOVE -> {
+                    Task removed = store.remove(taskId);
+                    next = next == null ? null : next.without(removed, version);
+                    unindexText(removed);
+                    track(removed, null);
+                    if (changes != null) {
+                        changes.add(new TaskEvent(TaskEvent.Type.REMOVED, taskId, removed, null, null, true));
+                    }
+                }
+                case COMPLETE -> {
+                    previous = store.get(taskId);
+                    result = store.update(taskId, previous.getTitle(), previous.getDescription(), previous.getDueDate(),
+                        previous.getPriority(), Status.COMPLETED, previous.getCategory());
+                    if (changes != null) {
+                        changes.add(new TaskEvent(TaskEvent.Type.COMPLETED, taskId, result, previous, null, true));
+                    }
+                }
+            }
+            if (result != null) {
+                next = next == null ? null : next.withTask(result, version);
+                indexText(result);
+                track(previous, result);
+            }
+        }
+        // Snapshot readers see the batch all at once, never part of it
+        published = next;
+        snapshotIfDue();
+        if (changes != null) {
+            for (TaskEvent change : changes) {
+                events.accept(change);
+            }
+            events.accept(new TaskEvent(TaskEvent.Type.BATCH_APPLIED, null, null, String.valueOf(operations.size())));
+        }
+        return new BatchResult(errors, added);
+    }
+    
+    /**
+     * Checks one operation of a batch.
+     * @param removedInBatch IDs removed by earlier operations; a valid remove adds its ID.
+     * @return null if the operation is valid, otherwise why it is not.
+     */
+    private String validateOperation(TaskOperation operation, Set<CompactId> removedInBatch) {
+        if (operation == null) {
+            return "Operation cannot be null";
+        }
+        if (operation.getKind() == TaskOperation.Kind.ADD || operation.getKind() == TaskOperation.Kind.UPDATE) {
+            TaskDraft fields = operation.getFields();
+            if (fields == null) {
+                return "Task fields cannot be null";
+            }
+            String error = validateNewTask(fields.getTitle(), fields.getDueDate(), fields.getPriority(), fields.getStatus(), fields.getCategory());
+            if (error != null || operation.getKind() == TaskOperation.Kind.ADD) {
+                return error;
+            }
+        }
+        CompactId taskId = operation.getTaskId();
+        if (taskId == null || removedInBatch.contains(taskId) || store.get(taskId) == null) {
+            return "Task with ID " + taskId + " not found.";
+        }
+        if (operation.getKind() == TaskOperation.Kind.REMOVE) {
+            removedInBatch.add(taskId);
+        }
+        return null;
+    }
+    
+    /**
+     * Checks the fields of a new task other than its category, so an importer can reject a row
+     * before creating the category it names.
+     * @return null if they are valid, otherwise a message saying what is wrong.
+     */
+    String validateFields(String title, LocalDate dueDate, Priority priority, Status status) {
         if (title == null || title.trim().isEmpty()) {
-            System.out.println("Error: Task title cannot be empty.");
-            return;
+            return "Task title cannot be empty.";
         }
         if (dueDate == null) {
-            System.out.println("Error: Due date cannot be null.");
-            return;
+            return "Due date cannot be null.";
         }
-        if (status == null || status.trim().isEmpty()) {
-            System.out.println("Error: Status cannot be empty");
-            return;
+        if (status == null) {
+            return "Status cannot be empty";
         }
-        if (priority == null || priority.trim().isEmpty()) {
-            System.out.println("Error: Priority cannot be empty");
-            return;
+        if (priority == null) {
+            return "Priority cannot be empty";
+        }
+        return null;
+    }
+
+    /**
+     * Checks the fields of a new task.
+     * @return null if they are valid, otherwise a message saying what is wrong.
+     */
+    private String validateNewTask(String title, LocalDate dueDate, Priority priority, Status status, Category category) {
+        String error = validateFields(title, dueDate, priority, status);
+        if (error != null) {
+            return error;
         }
         if (category == null) {
-            System.out.println("Error: Category cannot be null");
-            return;
+            return "Category cannot be null";
         }
-
-        Task newTask = new Task(generateTaskId(), title, description, dueDate, priority, status, category);
-        tasks.add(newTask);
-        System.out.println("Task added: " + newTask.getTitle());
+        if (categories.find(category.getCategoryId()) != category) {
+            return "Category " + category.getCategoryName() + " is not registered with this TaskManager";
+        }
+        return null;
     }
     
     /**
      * Removes a task by its String ID.
+     * @return the removed task, or not found.
      */
-    public void removeTask(String taskId) {
-        boolean removed = tasks.removeIf(task -> task.getTaskId().equals(taskId));
-        if (removed) {
-            System.out.println("Task with ID " + taskId + " removed.");
-        } else {
-            System.out.println("Error: Task with ID " + taskId + " not found.");
+    public TaskResult removeTask(String taskId) {
+        CompactId id = CompactId.parse(taskId);
+        if (id == null) {
+            return notFound(null, "Task with ID " + taskId + " not found.");
         }
+        return removeTask(id);
+    }
+    
+    /**
+     * Removes a task by its ID.
+     * @return the removed task, or not found.
+     */
+    public TaskResult removeTask(CompactId taskId) {
+        if (findTask(taskId) == null) {
+            return notFound(taskId, "Task with ID " + taskId + " not found.");
+        }
+        String journalError = appendJournal(j -> j.appendRemove(taskId));
+        if (journalError != null) {
+            return TaskResult.notSaved(taskId, journalError);
+        }
+        Task removed = store.remove(taskId);
+        publishRemoval(removed);
+        snapshotIfDue();
+        emit(TaskEvent.Type.REMOVED, removed);
+        return TaskResult.success(removed);
     }
 
     /**
      * Updates an existing task by its String ID.
+     * @return the updated task, not found, or a validation error.
      */
-    public void updateTask(String taskId, String title, String description, LocalDate dueDate, String priority, String status, Category category) {
-        if (title == null || title.trim().isEmpty()) {
-            System.out.println("Error: Task title cannot be empty during update.");
-            return;
+    public TaskResult updateTask(String taskId, String title, String description, LocalDate dueDate, Priority priority, Status status, Category category) {
+        CompactId id = CompactId.parse(taskId);
+        if (id == null) {
+            return notFound(null, "Task with ID " + taskId + " not found for update.");
         }
-        if (dueDate == null) {
-            System.out.println("Error: Due date cannot be null during update.");
-            return;
+        return updateTask(id, title, description, dueDate, priority, status, category);
+    }
+    
+    /**
+     * Updates an existing task by its ID.
+     * The fields are checked with the same rules as addTask.
+     * @return the updated task, not found, or a validation error.
+     */
+    public TaskResult updateTask(CompactId taskId, String title, String description, LocalDate dueDate, Priority priority, Status status, Category category) {
+        return updateTask(taskId, ANY_VERSION, title, description, dueDate, priority, status, category);
+    }
+    
+    /**
+     * Updates an existing task only if it is still at the expected version, so an edit based on
+     * an old read cannot overwrite someone else's change.
+     * @param expectedVersion the version the caller last read, or ANY_VERSION.
+     * @return the updated task, not found, a validation error, or a conflict carrying the current task.
+     */
+    public TaskResult updateTask(CompactId taskId, int expectedVersion, String title, String description, LocalDate dueDate, Priority priority, Status status, Category category) {
+        String error = validateNewTask(title, dueDate, priority, status, category);
+        if (error != null) {
+            emitError(error);
+            return TaskResult.invalid(error);
         }
-        if (priority == null || priority.trim().isEmpty()) {
-            System.out.println("Error: Priority cannot be empty during update.");
-            return;
+        
+        Task current = findTask(taskId);
+        if (current == null) {
+            return notFound(taskId, "Task with ID " + taskId + " not found for update.");
         }
-        if (status == null || status.trim().isEmpty()) {
-            System.out.println("Error: Status cannot be empty during update");
-            return;
+        if (expectedVersion != ANY_VERSION && current.getVersion() != expectedVersion) {
+            return conflict(current, expectedVersion);
         }
-        if (category == null) {
-            System.out.println("Error: Category cannot be null during update");
-            return;
+        return replaceTask(current, title, description, dueDate, priority, status, category);
+    }
+    
+    /**
+     * Changes only the fields set on the patch.
+     * @return the updated task, not found, or a validation error.
+     */
+    public TaskResult patchTask(CompactId taskId, TaskPatch patch) {
+        return patchTask(taskId, ANY_VERSION, patch);
+    }
+    
+    /**
+     * Changes only the fields set on the patch, if the task is still at the expected version.
+     * The patched task is checked with the same rules as addTask.
+     * @param expectedVersion the version the caller last read, or ANY_VERSION.
+     * @return the updated task, not found, a validation error, or a conflict carrying the current task.
+     */
+    public TaskResult patchTask(CompactId taskId, int expectedVersion, TaskPatch patch) {
+        if (patch == null) {
+            emitError("Patch cannot be null");
+            return TaskResult.invalid("Patch cannot be null");
         }
-        
-        for (Task task : tasks) {
-            if (task.getTaskId().equals(taskId)) {
-                task.setTitle(title);
-                task.setDescription(description);
-                task.setDueDate(dueDate);
-                task.setPriority(priority);
-                task.setStatus(status);
-                task.setCategory(category);
-                System.out.println("Task with ID " + taskId + " updated.");
-                return;
-            }
+        Task current = findTask(taskId);
+        if (current == null) {
+            return notFound(taskId, "Task with ID " + taskId + " not found for update.");
+        }
+        if (expectedVersion != ANY_VERSION && current.getVersion() != expectedVersion) {
+            return conflict(current, expectedVersion);
+        }
+        TaskDraft fields = patch.applyTo(current);
+        String error = validateNewTask(fields.getTitle(), fields.getDueDate(), fields.getPriority(), fields.getStatus(), fields.getCategory());
+        if (error != null) {
+            emitError(error);
+            return TaskResult.invalid(error);
+        }
+        return replaceTask(current, fields.getTitle(), fields.getDescription(), fields.getDueDate(),
+            fields.getPriority(), fields.getStatus(), fields.getCategory());
+    }
+    
+    /**
+     * Journals validated new fields for an existing task, then stores and reports the change.
+     */
+    private TaskResult replaceTask(Task current, String title, String description, LocalDate dueDate, Priority priority, Status status, Category category) {
+        Task fields = new Task(current.getId(), title, description, dueDate, priority, status, category);
+        String journalError = appendJournal(j -> j.appendUpdate(fields));
+        if (journalError != null) {
+            return TaskResult.notSaved(current.getId(), journalError);
         }
-        System.out.println("Error: Task with ID " + taskId + " not found for update.");
+        Task task = store.update(current.getId(), title, description, dueDate, priority, status, category);
+        publish(task, current);
+        snapshotIfDue();
+        emit(TaskEvent.Type.UPDATED, task, current);
+        return TaskResult.success(task);
     }
     
     /**
-     * Get all tasks.
+     * Finds a task by its String ID.
+     * @param taskId the ID of the task to look up.
+     * @return the matching task, or null if no task has that ID.
+     */
+    public Task findTask(String taskId) {
+        return findTask(CompactId.parse(taskId));
+    }
+    
+    /**
+     * Finds a task by its ID.
+     * @param taskId the ID of the task to look up.
+     * @return the matching task, or null if no task has that ID.
+     */
+    public Task findTask(CompactId taskId) {
+        if (taskId == null) {
+            return null;
+        }
+        return store.get(taskId);
+    }
+    
+    /**
+     * Get all tasks, in insertion order.
+     * Returns the current snapshot, so the list is read-only and does not change afterwards.
      */
     public List<Task> getAllTasks() {
-        return new ArrayList<>(tasks);
+        return getSnapshot();
+    }
+    
+    /**
+     * Gets a read-only, point-in-time list of every task, in O(1) once snapshots are in use.
+     * The first call builds the list from the store in O(n log n); from then on each change
+     * publishes a new version in O(log n) that shares structure with the one before, and this
+     * method just returns the latest. A ColumnarTaskStore keeps a Task object per task alive
+     * once this has been called, so only ask for snapshots where that memory is acceptable.
+     */
+    public ImmutableTaskList getSnapshot() {
+        ImmutableTaskList current = published;
+        if (current == null) {
+            current = ImmutableTaskList.of(store, store.size(), version);
+            published = current;
+        }
+        return current;
+    }
+    
+    /**
+     * Finds tasks by words in their title or description, best match first.
+     * Every word of the query must start a word of the task, ignoring case, so "gro milk"
+     * finds "Buy groceries" described as "Milk, eggs...". Title matches rank above description
+     * matches, whole words above prefixes, and rare words above common ones.
+     * The first call builds a word index in O(n); from then on each change keeps it current
+     * and a search costs time in proportion to the tasks matching its rarest word.
+     * @param limit the most tasks to return.
+     */
+    public List<Task> search(String query, int limit) {
+        if (query == null) {
+            emitError("Search text cannot be null.");
+            return new ArrayList<>();
+        }
+        if (textIndex == null) {
+            textIndex = new TaskTextIndex(store);
+        }
+        return textIndex.search(query, limit);
+    }
+    
+    /**
+     * Finds the tasks matching a query, in its order, one page at a time.
+     * The query is driven from whichever index should visit the fewest tasks: the status or
+     * category counts, the due date index, the word index, or a sorted view that can stop at
+     * the limit. The other criteria are checked on each task visited.
+     * A query with words builds the search() index if it is not built yet.
+     */
+    public List<Task> query(TaskQuery query) {
+        if (query == null) {
+            emitError("Query cannot be null.");
+            return new ArrayList<>();
+        }
+        return planner(query).execute(query);
+    }
+
+    /**
+     * Gets one page of the tasks matching a query. Pages are found by seeking to the sort
+     * position after the previous page's last task rather than by counting rows, so a page deep
+     * into a listing costs no more than the first, and adding or removing tasks between pages
+     * never shows a task twice or skips one. (A task whose due date or priority is changed
+     * can still move from one side of the cursor to the other.)
+     * @param query the criteria and order; its limit is the page size, and its offset only
+     *     applies to the first page.
+     * @param cursor getNextCursor() of the previous page, or null for the first page.
+     */
+    public TaskPage queryPage(TaskQuery query, String cursor) {
+        if (query == null) {
+            emitError("Query cannot be null.");
+            return new TaskPage(new ArrayList<>(), null);
+        }
+        if (query.getLimit() == 0) {
+            emitError("Page size must be at least 1.");
+            return new TaskPage(new ArrayList<>(), null);
+        }
+        TaskCursor after = null;
+        if (cursor != null) {
+            try {
+                after = TaskCursor.parse(cursor);
+            } catch (IllegalArgumentException e) {
+                emitError("Invalid page cursor.");
+                return new TaskPage(new ArrayList<>(), null);
+            }
+            if (after.getOrder() != query.getOrder()) {
+                emitError("Page cursor belongs to a listing in a different order.");
+                return new TaskPage(new ArrayList<>(), null);
+            }
+        }
+        int pageSize = query.getLimit();
+        // One task more than a page tells whether another page follows
+        TaskQuery withNext = query.withLimit(pageSize == TaskQuery.NO_LIMIT ? pageSize : pageSize + 1);
+        TaskQueryPlanner planner = planner(withNext);
+        List<Task> tasks = planner.execute(withNext, planner.plan(withNext), after);
+        if (tasks.size() <= pageSize) {
+            return new TaskPage(tasks, null);
+        }
+        tasks.remove(pageSize);
+        return new TaskPage(tasks, TaskCursor.after(tasks.get(pageSize - 1), query.getOrder()).toToken());
+    }
+
+    /**
+     * Gets the plan query() would follow, for diagnostics.
+     */
+    TaskQueryPlanner.Plan explain(TaskQuery query) {
+        return planner(query).plan(query);
+    }
+
+    private TaskQueryPlanner planner(TaskQuery query) {
+        if (query.getText() != null && textIndex == null) {
+            textIndex = new TaskTextIndex(store);
+        }
+        return new TaskQueryPlanner(store, textIndex);
+    }
+    
+    /**
+     * Gets a snapshot of task counts: by status, category and priority, completion rate,
+     * overdue tasks and open tasks by due day and week. The first call counts every task in
+     * O(n); from then on each change updates the counts in O(1), and a snapshot costs
+     * O(categories + days with open tasks due), however many tasks there are.
+     */
+    public TaskStatistics getStatistics() {
+        if (counters == null) {
+            counters = new TaskCounters(store);
+        }
+        return counters.snapshot(categories.getAll());
+    }
+    
+    /**
+     * Checks if getStatistics() has built its counters, so it will not change this TaskManager's state.
+     */
+    boolean isStatisticsTracked() {
+        return counters != null;
+    }
+    
+    /**
+     * Checks if search() has built its index, so it will not change this TaskManager's state.
+     */
+    boolean isSearchIndexed() {
+        return textIndex != null;
+    }
+    
+    /**
+     * Checks if query() and queryPage() can run a query without building the search() index first.
+     */
+    boolean isIndexedFor(TaskQuery query) {
+        return query == null || query.getText() == null || textIndex != null;
+    }
+    
+    /**
+     * Checks if every read (not counting those that build an index or counters on first use)
+     * can run on several threads at once while nothing is being changed.
+     */
+    boolean isSharedReadSafe() {
+        return store.isSharedReadSafe();
+    }
+    
+    /**
+     * Gets the store's view of all tasks in an order.
+     */
+    SortedTaskView view(TaskOrder order) {
+        return store.view(order);
+    }
+    
+    /**
+     * Gets the latest published snapshot without building one, or null if snapshots are not in use.
+     * Safe to call from any thread.
+     */
+    ImmutableTaskList publishedSnapshot() {
+        return published;
+    }
+    
+    /**
+     * Gets the tasks in insertion order without copying them into a list, for streaming exports.
+     */
+    Iterable<Task> tasks() {
+        return store;
     }
     
     /**
      * A utility method to get a list of all tasks.
      * This is an alias for getAllTasks() for better clarity in the GUI.
+     * Like getAllTasks(), it returns the current read-only snapshot.
      */
     public List<Task> listAllTasks() {
         return getAllTasks();
@@ -133,35 +730,87 @@ public class TaskManager {
     
     /**
      * Sort tasks by due date.
+     * Copies the store's due-date view, which is not re-sorted per call.
      */
     public List<Task> sortTasksByDueDate() {
-        return tasks.stream()
-            .sorted(Comparator.comparing(Task::getDueDate, Comparator.nullsLast(LocalDate::compareTo)))
-            .collect(Collectors.toList());
+        return store.view(TaskOrder.DUE_DATE).toList();
+    }
+    
+    /**
+     * Get tasks due strictly before the given date, earliest first.
+     */
+    public List<Task> getTasksDueBefore(LocalDate date) {
+        if (date == null) {
+            emitError("Date for filtering cannot be null.");
+            return new ArrayList<>();
+        }
+        return store.findDueBetween(Long.MIN_VALUE, date.toEpochDay() - 1);
+    }
+    
+    /**
+     * Get tasks due between two dates (both inclusive), earliest first.
+     */
+    public List<Task> getTasksDueBetween(LocalDate from, LocalDate to) {
+        if (from == null || to == null) {
+            emitError("Dates for filtering cannot be null.");
+            return new ArrayList<>();
+        }
+        if (from.isAfter(to)) {
+            return new ArrayList<>();
+        }
+        return store.findDueBetween(from.toEpochDay(), to.toEpochDay());
+    }
+    
+    /**
+     * Get tasks that are not completed and were due before the given date, earliest first.
+     */
+    public List<Task> getOverdueTasks(LocalDate asOf) {
+        if (asOf == null) {
+            emitError("Date for overdue check cannot be null.");
+            return new ArrayList<>();
+        }
+        return store.findOverdue(asOf.toEpochDay());
     }
 
     /**
      * Sort tasks by priority (e.g., High, Medium, Low).
+     * Copies the store's priority view, which is not re-sorted per call.
      */
     public List<Task> sortTasksByPriority() {
-        Comparator<Task> priorityComparator = (task1, task2) -> {
-            int p1 = getPriorityOrder(task1.getPriority());
-            int p2 = getPriorityOrder(task2.getPriority());
-            return Integer.compare(p1, p2);
-        };
-        return tasks.stream()
-            .sorted(priorityComparator)
-            .collect(Collectors.toList());
+        return store.view(TaskOrder.PRIORITY).toList();
     }
-
-    private int getPriorityOrder(String priority) {
-        if (priority == null) return Integer.MAX_VALUE;
-        return switch (priority.toLowerCase()) {
-            case "high" -> 1;
-            case "medium" -> 2;
-            case "low" -> 3;
-            default -> Integer.MAX_VALUE;
-        };
+    
+    /**
+     * Get the K most urgent incomplete tasks: highest priority first, then earliest due date.
+     * With the default HeapTaskStore this reads the head of a maintained urgency index,
+     * so the cost is O(log n + k) rather than a full sort.
+     * @param k the maximum number of tasks to return.
+     */
+    public List<Task> getNextTasks(int k) {
+        return store.findMostUrgent(k);
+    }
+    
+    /**
+     * Get a live view of all tasks ordered by due date (earliest first).
+     * The view can be iterated or paged without copying; it must not be
+     * used while TaskManager is being modified.
+     */
+    public SortedTaskView getTasksByDueDateView() {
+        return store.view(TaskOrder.DUE_DATE);
+    }
+    
+    /**
+     * Get a live view of all tasks ordered by priority (High first).
+     */
+    public SortedTaskView getTasksByPriorityView() {
+        return store.view(TaskOrder.PRIORITY);
+    }
+    
+    /**
+     * Get a live view of all tasks ordered by priority, then by due date.
+     */
+    public SortedTaskView getTasksByPriorityThenDueDateView() {
+        return store.view(TaskOrder.PRIORITY_THEN_DUE_DATE);
     }
     
     /**
@@ -169,54 +818,358 @@ public class TaskManager {
      */
     public List<Task> filterTasksByCategory(Category category) {
         if (category == null) {
-            System.out.println("Error: Category for filtering cannot be null");
+            emitError("Category for filtering cannot be null");
             return new ArrayList<>();
         }
-        return tasks.stream()
-            .filter(task -> task.getCategory() != null && task.getCategory().getCategoryId().equals(category.getCategoryId()))
-            .collect(Collectors.toList());
+        return store.findByCategory(category);
     }
     
     /**
      * Filter tasks by completion status.
      */
-    public List<Task> filterTasksByStatus(String status) {
-        if (status == null || status.trim().isEmpty()) {
-            System.out.println("Error: Status for filtering cannot be empty.");
+    public List<Task> filterTasksByStatus(Status status) {
+        if (status == null) {
+            emitError("Status for filtering cannot be empty.");
             return new ArrayList<>();
         }
-        return tasks.stream()
-            .filter(task -> task.getStatus() != null && task.getStatus().equalsIgnoreCase(status))
-            .collect(Collectors.toList());
+        return store.findByStatus(status);
     }
     
     /**
      * Mark a task as completed by its String ID.
+     * @return the completed task, or not found.
      */
-    public void markTaskAsCompleted(String taskId) {
-        for (Task task : tasks) {
-            if (task.getTaskId().equals(taskId)) {
-                task.setStatus("Completed");
-                System.out.println("Task with ID " + taskId + " marked as Completed.");
-                return;
-            }
+    public TaskResult markTaskAsCompleted(String taskId) {
+        CompactId id = CompactId.parse(taskId);
+        if (id == null) {
+            return notFound(null, "Task with ID " + taskId + " not found to mark as completed.");
+        }
+        return markTaskAsCompleted(id);
+    }
+    
+    /**
+     * Mark a task as completed by its ID.
+     * @return the completed task, or not found.
+     */
+    public TaskResult markTaskAsCompleted(CompactId taskId) {
+        return markTaskAsCompleted(taskId, ANY_VERSION);
+    }
+    
+    /**
+     * Mark a task as completed, if it is still at the expected version.
+     * @param expectedVersion the version the caller last read, or ANY_VERSION.
+     * @return the completed task, not found, or a conflict carrying the current task.
+     */
+    public TaskResult markTaskAsCompleted(CompactId taskId, int expectedVersion) {
+        Task task = findTask(taskId);
+        if (task == null) {
+            return notFound(taskId, "Task with ID " + taskId + " not found to mark as completed.");
+        }
+        if (expectedVersion != ANY_VERSION && task.getVersion() != expectedVersion) {
+            return conflict(task, expectedVersion);
         }
-        System.out.println("Error: Task with ID " + taskId + " not found to mark as completed.");
+        String journalError = appendJournal(j -> j.appendComplete(taskId));
+        if (journalError != null) {
+            return TaskResult.notSaved(taskId, journalError);
+        }
+        Task completed = store.update(taskId, task.getTitle(), task.getDescription(), task.getDueDate(), task.getPriority(), Status.COMPLETED, task.getCategory());
+        publish(completed, task);
+        snapshotIfDue();
+        emit(TaskEvent.Type.COMPLETED, completed, task);
+        return TaskResult.success(completed);
     }
     
     /**
      * View completed tasks separately.
      */
     public List<Task> getCompletedTasks() {
-        return filterTasksByStatus("Completed");
+        return filterTasksByStatus(Status.COMPLETED);
     }
     
     /**
      * View incomplete tasks.
      */
     public List<Task> getIncompleteTasks() {
-        return tasks.stream()
-            .filter(task -> task.getStatus() != null && !task.getStatus().equalsIgnoreCase("Completed"))
-            .collect(Collectors.toList());
+        return store.findIncomplete();
+    }
+    
+    /**
+     * Get the total number of tasks.
+     */
+    public int getTaskCount() {
+        return store.size();
+    }
+    
+    /**
+     * Count tasks with the given status without building a list.
+     */
+    public int countTasksByStatus(Status status) {
+        if (status == null) {
+            return 0;
+        }
+        return store.countByStatus(status);
+    }
+    
+    /**
+     * Count tasks in the given category without building a list.
+     */
+    public int countTasksByCategory(Category category) {
+        if (category == null) {
+            return 0;
+        }
+        return store.countByCategory(category);
+    }
+    
+    /**
+     * Loads the journal's snapshot and replays its log into this TaskManager, then records
+     * every later change in it. Call this once, before adding tasks.
+     * @return the number of journal records replayed.
+     */
+    public int attachJournal(TaskJournal journal) throws IOException {
+        if (this.journal != null) {
+            throw new IllegalStateException("A journal is already attached");
+        }
+        // Replay is one change as far as snapshot readers are concerned
+        discardPublished();
+        int replayed = journal.replayInto(this);
+        this.journal = journal;
+        return replayed;
+    }
+    
+    /**
+     * Syncs and closes the attached journal, if any. Later changes are no longer recorded.
+     */
+    public void closeJournal() {
+        if (journal == null) {
+            return;
+        }
+        try {
+            journal.close();
+        } catch (IOException e) {
+            emitError("Could not close task journal: " + e.getMessage());
+        }
+        journal = null;
+    }
+    
+    /**
+     * Loads the tasks in a snapshot. Into an empty store they are loaded in bulk, letting the
+     * store read the mapped snapshot lazily; otherwise each is restored like a journalled add.
+     */
+    void restoreSnapshot(TaskSnapshot snapshot) {
+        String[] names = snapshot.getCategoryNames();
+        Category[] dictionary = new Category[names.length];
+        for (int i = 0; i < names.length; i++) {
+            dictionary[i] = categories.getOrCreate(names[i]);
+        }
+        for (int i = 0; i < snapshot.size(); i++) {
+            idGenerator.observe(snapshot.getId(i));
+        }
+        if (store.size() == 0) {
+            store.load(snapshot, dictionary, nextSequence);
+            nextSequence += snapshot.size();
+            discardPublished();
+            return;
+        }
+        for (int i = 0; i < snapshot.size(); i++) {
+            Task task = snapshot.getTask(i, dictionary, 0L);
+            restoreTask(task.getId(), task.getTitle(), task.getDescription(), task.getDueDate(), task.getPriority(), task.getStatus(), task.getCategory().getCategoryName());
+        }
+    }
+    
+    /**
+     * Re-applies a journalled add or update. An existing task with the same ID is overwritten,
+     * which keeps replay idempotent.
+     */
+    void restoreTask(CompactId taskId, String title, String description, LocalDate dueDate, Priority priority, Status status, String categoryName) {
+        Category category = categories.getOrCreate(categoryName);
+        idGenerator.observe(taskId);
+        Task previous = store.get(taskId);
+        Task task = store.update(taskId, title, description, dueDate, priority, status, category);
+        if (task == null) {
+            task = new Task(taskId, title, description, dueDate, priority, status, category, nextSequence++);
+            store.add(task);
+        }
+        publish(task, previous);
+    }
+    
+    void restoreRemove(CompactId taskId) {
+        Task removed = store.remove(taskId);
+        if (removed != null) {
+            publishRemoval(removed);
+        }
+    }
+    
+    void restoreComplete(CompactId taskId) {
+        Task task = store.get(taskId);
+        if (task != null) {
+            publish(store.update(taskId, task.getTitle(), task.getDescription(), task.getDueDate(), task.getPriority(), Status.COMPLETED, task.getCategory()), task);
+        }
+    }
+    
+    void restoreRenameCategory(String oldName, String newName) {
+        Category category = categories.find(oldName);
+        if (category != null) {
+            categories.rename(category, newName);
+        }
+    }
+    
+    /**
+     * Reports a journal record that replay had to skip.
+     */
+    void restoreSkipped(String message) {
+        emitError(message);
+    }
+    
+    /**
+     * Starts a new version, returning the published snapshot to build it from (null if none).
+     */
+    private ImmutableTaskList nextVersion() {
+        version++;
+        return published;
+    }
+    
+    /**
+     * Publishes a version with a task added or replaced, if snapshots are in use.
+     * @param previous the task's state before the change, or null if it was just added.
+     */
+    private void publish(Task task, Task previous) {
+        ImmutableTaskList current = nextVersion();
+        if (current != null) {
+            published = current.withTask(task, version);
+        }
+        indexText(task);
+        track(previous, task);
+    }
+    
+    private void publishRemoval(Task task) {
+        ImmutableTaskList current = nextVersion();
+        if (current != null) {
+            published = current.without(task, version);
+        }
+        unindexText(task);
+        track(task, null);
+    }
+    
+    /**
+     * Drops the published snapshot, the word index and the statistics counters after a bulk
+     * change; each is rebuilt when next needed.
+     */
+    private void discardPublished() {
+        version++;
+        published = null;
+        textIndex = null;
+        counters = null;
+    }
+    
+    /**
+     * Counts one change in the statistics, if they are being kept: previous is null for an
+     * add, current is null for a removal.
+     */
+    private void track(Task previous, Task current) {
+        if (counters != null) {
+            counters.replace(previous, current);
+        }
+    }
+    
+    private void indexText(Task task) {
+        if (textIndex != null) {
+            textIndex.put(task);
+        }
+    }
+    
+    private void unindexText(Task task) {
+        if (textIndex != null) {
+            textIndex.remove(task.getId());
+        }
+    }
+    
+    /**
+     * Sends an event about a task to the sink, if it wants events.
+     */
+    private void emit(TaskEvent.Type type, Task task) {
+        emit(type, task, null);
+    }
+    
+    /**
+     * Sends an event about a changed task, with the task as it was before the change.
+     */
+    private void emit(TaskEvent.Type type, Task task, Task previous) {
+        if (events.isEnabled()) {
+            events.accept(new TaskEvent(type, task.getId(), task, previous, null, false));
+        }
+    }
+    
+    private void emitError(String message) {
+        if (events.isEnabled()) {
+            events.accept(new TaskEvent(TaskEvent.Type.ERROR, null, null, message));
+        }
+    }
+    
+    private TaskResult notFound(CompactId taskId, String message) {
+        if (events.isEnabled()) {
+            events.accept(new TaskEvent(TaskEvent.Type.ERROR, taskId, null, message));
+        }
+        return TaskResult.notFound(taskId, message);
+    }
+    
+    private TaskResult conflict(Task current, int expectedVersion) {
+        String message = "Task with ID " + current.getId() + " was changed by someone else (expected version "
+            + expectedVersion + ", found " + current.getVersion() + ").";
+        if (events.isEnabled()) {
+            events.accept(new TaskEvent(TaskEvent.Type.ERROR, current.getId(), current, message));
+        }
+        return TaskResult.conflict(current, message);
+    }
+    
+    private interface JournalWrite {
+        void writeTo(TaskJournal journal) throws IOException;
+    }
+    
+    /**
+     * Records a change in the journal (if attached), snapshotting when the journal asks for it.
+     * A failed write is reported but does not undo the in-memory change.
+     */
+    private void writeJournal(JournalWrite write) {
+        if (appendJournal(write) == null) {
+            snapshotIfDue();
+        }
+    }
+
+    /**
+     * Appends a record to the journal, if one is attached, without snapshotting; for changes
+     * that are journalled before they are applied, so a failed write leaves the store untouched.
+     * @return null if the record was written (or there is no journal), otherwise why not.
+     */
+    private String appendJournal(JournalWrite write) {
+        if (journal == null) {
+            return null;
+        }
+        try {
+            write.writeTo(journal);
+            IOException syncFailure = journal.takeSyncFailure();
+            if (syncFailure != null) {
+                emitError("Could not sync task journal: " + syncFailure.getMessage());
+            }
+            return null;
+        } catch (IOException e) {
+            String message = "Could not write to task journal: " + e.getMessage();
+            emitError(message);
+            return message;
+        }
+    }
+
+    /**
+     * Writes a snapshot if the journal asks for one. Called once a journalled change is in the
+     * store, so the snapshot includes it.
+     */
+    private void snapshotIfDue() {
+        if (journal == null || !journal.needsSnapshot()) {
+            return;
+        }
+        try {
+            journal.writeSnapshot(store, store.size());
+        } catch (IOException e) {
+            emitError("Could not write task snapshot: " + e.getMessage());
+        }
     }
 }
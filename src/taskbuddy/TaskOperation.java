@@ -0,0 +1,69 @@
+package taskbuddy;
+
+/**
+ * One change in a batch passed to TaskManager.applyBatch.
+ */
+public class TaskOperation {
+
+    public enum Kind {
+        ADD,
+        UPDATE,
+        REMOVE,
+        COMPLETE
+    }
+
+    private final Kind kind;
+    private final CompactId taskId;
+    private final TaskDraft fields;
+
+    private TaskOperation(Kind kind, CompactId taskId, TaskDraft fields) {
+        this.kind = kind;
+        this.taskId = taskId;
+        this.fields = fields;
+    }
+
+    /**
+     * Adds a new task with the given fields.
+     */
+    public static TaskOperation add(TaskDraft fields) {
+        return new TaskOperation(Kind.ADD, null, fields);
+    }
+
+    /**
+     * Replaces every field of an existing task.
+     */
+    public static TaskOperation update(CompactId taskId, TaskDraft fields) {
+        return new TaskOperation(Kind.UPDATE, taskId, fields);
+    }
+
+    public static TaskOperation remove(CompactId taskId) {
+        return new TaskOperation(Kind.REMOVE, taskId, null);
+    }
+
+    public static TaskOperation complete(CompactId taskId) {
+        return new TaskOperation(Kind.COMPLETE, taskId, null);
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * Gets the ID of the task changed, or null for an add.
+     */
+    public CompactId getTaskId() {
+        return taskId;
+    }
+
+    /**
+     * Gets the new fields for an add or update, or null otherwise.
+     */
+    public TaskDraft getFields() {
+        return fields;
+    }
+
+    @Override
+    public String toString() {
+        return "TaskOperation{kind=" + kind + ", taskId=" + taskId + "}";
+    }
+}
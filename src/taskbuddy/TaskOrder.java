@@ -0,0 +1,30 @@
+package taskbuddy;
+
+import java.util.Comparator;
+
+/**
+ * The sort orders TaskManager keeps views for.
+ * Ties are always broken by insertion sequence, so every order is total and stable.
+ */
+public enum TaskOrder {
+    DUE_DATE(Comparator
+        .comparingLong((Task task) -> task.getDueDate().toEpochDay())
+        .thenComparingLong(Task::getSequence)),
+    PRIORITY(Comparator
+        .comparingInt(Task::getPriorityRank)
+        .thenComparingLong(Task::getSequence)),
+    PRIORITY_THEN_DUE_DATE(Comparator
+        .comparingInt(Task::getPriorityRank)
+        .thenComparingLong((Task task) -> task.getDueDate().toEpochDay())
+        .thenComparingLong(Task::getSequence));
+
+    private final Comparator<Task> comparator;
+
+    TaskOrder(Comparator<Task> comparator) {
+        this.comparator = comparator;
+    }
+
+    public Comparator<Task> comparator() {
+        return comparator;
+    }
+}
@@ -0,0 +1,37 @@
+package taskbuddy;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One page of tasks from TaskManager.queryPage(), with the cursor for the next page.
+ */
+public final class TaskPage {
+
+    private final List<Task> tasks;
+    private final String nextCursor;
+
+    TaskPage(List<Task> tasks, String nextCursor) {
+        this.tasks = Collections.unmodifiableList(tasks);
+        this.nextCursor = nextCursor;
+    }
+
+    public List<Task> getTasks() {
+        return tasks;
+    }
+
+    /**
+     * Gets the opaque token to pass to queryPage() for the next page, or null if this is the last.
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+
+    public boolean isEmpty() {
+        return tasks.isEmpty();
+    }
+}
@@ -0,0 +1,93 @@
+package taskbuddy;
+
+import java.time.LocalDate;
+
+/**
+ * A partial update for TaskManager.patchTask: only the fields set on the patch are changed,
+ * the rest keep their current values. Patches are immutable; each with* method returns a new one.
+ * <pre>
+ *   taskManager.patchTask(id, task.getVersion(), new TaskPatch().withStatus(Status.IN_PROGRESS));
+ * </pre>
+ */
+public final class TaskPatch {
+
+    // Bits of the fields this patch sets
+    private static final int TITLE = 1;
+    private static final int DESCRIPTION = 1 << 1;
+    private static final int DUE_DATE = 1 << 2;
+    private static final int PRIORITY = 1 << 3;
+    private static final int STATUS = 1 << 4;
+    private static final int CATEGORY = 1 << 5;
+
+    private final int fields;
+    private final String title;
+    private final String description;
+    private final LocalDate dueDate;
+    private final Priority priority;
+    private final Status status;
+    private final Category category;
+
+    /**
+     * Creates a patch that changes nothing.
+     */
+    public TaskPatch() {
+        this(0, null, null, null, null, null, null);
+    }
+
+    private TaskPatch(int fields, String title, String description, LocalDate dueDate, Priority priority, Status status, Category category) {
+        this.fields = fields;
+        this.title = title;
+        this.description = description;
+        this.dueDate = dueDate;
+        this.priority = priority;
+        this.status = status;
+        this.category = category;
+    }
+
+    public TaskPatch withTitle(String title) {
+        return new TaskPatch(fields | TITLE, title, description, dueDate, priority, status, category);
+    }
+
+    /**
+     * Sets the description; null clears it.
+     */
+    public TaskPatch withDescription(String description) {
+        return new TaskPatch(fields | DESCRIPTION, title, description, dueDate, priority, status, category);
+    }
+
+    public TaskPatch withDueDate(LocalDate dueDate) {
+        return new TaskPatch(fields | DUE_DATE, title, description, dueDate, priority, status, category);
+    }
+
+    public TaskPatch withPriority(Priority priority) {
+        return new TaskPatch(fields | PRIORITY, title, description, dueDate, priority, status, category);
+    }
+
+    public TaskPatch withStatus(Status status) {
+        return new TaskPatch(fields | STATUS, title, description, dueDate, priority, status, category);
+    }
+
+    public TaskPatch withCategory(Category category) {
+        return new TaskPatch(fields | CATEGORY, title, description, dueDate, priority, status, category);
+    }
+
+    /**
+     * Checks whether the patch changes no fields.
+     */
+    public boolean isEmpty() {
+        return fields == 0;
+    }
+
+    /**
+     * Gets the fields a task will have after this patch is applied to it.
+     */
+    TaskDraft applyTo(Task task) {
+        return new TaskDraft(
+            (fields & TITLE) != 0 ? title : task.getTitle(),
+            (fields & DESCRIPTION) != 0 ? description : task.getDescription(),
+            (fields & DUE_DATE) != 0 ? dueDate : task.getDueDate(),
+            (fields & PRIORITY) != 0 ? priority : task.getPriority(),
+            (fields & STATUS) != 0 ? status : task.getStatus(),
+            (fields & CATEGORY) != 0 ? category : task.getCategory());
+    }
+}
@@ -0,0 +1,212 @@
+package taskbuddy;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * A query for TaskManager.query: any combination of status, category, priority, completion,
+ * due date range and search words, an optional sort order, and a page (offset and limit).
+ * Queries are immutable; each with* method returns a new one.
+ * <pre>
+ *   taskManager.query(new TaskQuery()
+ *       .withStatus(Status.TO_DO)
+ *       .withDueBetween(today, today.plusDays(7))
+ *       .orderBy(TaskOrder.PRIORITY_THEN_DUE_DATE)
+ *       .withLimit(20));
+ * </pre>
+ * Criteria left unset match every task. Without orderBy() tasks come in insertion order.
+ * Words match as in TaskManager.search(): each must start a word of the title or description.
+ */
+public final class TaskQuery {
+
+    public static final int NO_LIMIT = Integer.MAX_VALUE;
+
+    private final Status status;
+    private final Category category;
+    private final Priority priority;
+    private final boolean incompleteOnly;
+    private final LocalDate dueFrom;
+    private final LocalDate dueTo;
+    private final String text;
+    private final List<String> words;
+    private final TaskOrder order;
+    private final int offset;
+    private final int limit;
+
+    /**
+     * Creates a query for every task, in insertion order.
+     */
+    public TaskQuery() {
+        this(null, null, null, false, null, null, null, null, 0, NO_LIMIT);
+    }
+
+    private TaskQuery(Status status, Category category, Priority priority, boolean incompleteOnly, LocalDate dueFrom,
+                      LocalDate dueTo, String text, TaskOrder order, int offset, int limit) {
+        this.status = status;
+        this.category = category;
+        this.priority = priority;
+        this.incompleteOnly = incompleteOnly;
+        this.dueFrom = dueFrom;
+        this.dueTo = dueTo;
+        this.words = TaskTextIndex.tokenize(text);
+        this.text = words.isEmpty() ? null : text.strip();
+        this.order = order;
+        this.offset = offset;
+        this.limit = limit;
+    }
+
+    public TaskQuery withStatus(Status status) {
+        return new TaskQuery(status, category, priority, incompleteOnly, dueFrom, dueTo, text, order, offset, limit);
+    }
+
+    public TaskQuery withCategory(Category category) {
+        return new TaskQuery(status, category, priority, incompleteOnly, dueFrom, dueTo, text, order, offset, limit);
+    }
+
+    public TaskQuery withPriority(Priority priority) {
+        return new TaskQuery(status, category, priority, incompleteOnly, dueFrom, dueTo, text, order, offset, limit);
+    }
+
+    /**
+     * Keeps only tasks that are not completed.
+     */
+    public TaskQuery withIncompleteOnly(boolean incompleteOnly) {
+        return new TaskQuery(status, category, priority, incompleteOnly, dueFrom, dueTo, text, order, offset, limit);
+    }
+
+    /**
+     * Keeps tasks due between two dates, both inclusive; either may be null for no bound.
+     */
+    public TaskQuery withDueBetween(LocalDate from, LocalDate to) {
+        return new TaskQuery(status, category, priority, incompleteOnly, from, to, text, order, offset, limit);
+    }
+
+    /**
+     * Keeps tasks whose title or description contains every word; null or blank for any.
+     */
+    public TaskQuery withText(String text) {
+        return new TaskQuery(status, category, priority, incompleteOnly, dueFrom, dueTo, text, order, offset, limit);
+    }
+
+    /**
+     * Sorts the results; null for insertion order.
+     */
+    public TaskQuery orderBy(TaskOrder order) {
+        return new TaskQuery(status, category, priority, incompleteOnly, dueFrom, dueTo, text, order, offset, limit);
+    }
+
+    /**
+     * Skips the first matches, for paging.
+     */
+    public TaskQuery withOffset(int offset) {
+        if (offset < 0) {
+            throw new IllegalArgumentException("Offset cannot be negative: " + offset);
+        }
+        return new TaskQuery(status, category, priority, incompleteOnly, dueFrom, dueTo, text, order, offset, limit);
+    }
+
+    /**
+     * Returns at most this many tasks; NO_LIMIT for all.
+     */
+    public TaskQuery withLimit(int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Limit cannot be negative: " + limit);
+        }
+        return new TaskQuery(status, category, priority, incompleteOnly, dueFrom, dueTo, text, order, offset, limit);
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public Category getCategory() {
+        return category;
+    }
+
+    public Priority getPriority() {
+        return priority;
+    }
+
+    public boolean isIncompleteOnly() {
+        return incompleteOnly;
+    }
+
+    public LocalDate getDueFrom() {
+        return dueFrom;
+    }
+
+    public LocalDate getDueTo() {
+        return dueTo;
+    }
+
+    /**
+     * Gets the words to search for, or null if any text matches.
+     */
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * Gets the sort order, or null for insertion order.
+     */
+    public TaskOrder getOrder() {
+        return order;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Checks the query's criteria other than its words, which are costly to check one task at a time.
+     */
+    boolean matchesFields(Task task) {
+        if (status != null && task.getStatus() != status) {
+            return false;
+        }
+        if (category != null && !category.equals(task.getCategory())) {
+            return false;
+        }
+        if (priority != null && task.getPriority() != priority) {
+            return false;
+        }
+        if (incompleteOnly && task.isCompleted()) {
+            return false;
+        }
+        long dueDay = task.getDueDate().toEpochDay();
+        return dueDay >= dueFromDay() && dueDay <= dueToDay();
+    }
+
+    /**
+     * Checks the query's words against a task by tokenizing its title and description.
+     */
+    boolean matchesText(Task task) {
+        return TaskTextIndex.matches(task, words);
+    }
+
+    /**
+     * Checks every criterion of the query against a task.
+     */
+    public boolean matches(Task task) {
+        return matchesFields(task) && matchesText(task);
+    }
+
+    long dueFromDay() {
+        return dueFrom == null ? Long.MIN_VALUE : dueFrom.toEpochDay();
+    }
+
+    long dueToDay() {
+        return dueTo == null ? Long.MAX_VALUE : dueTo.toEpochDay();
+    }
+
+    @Override
+    public String toString() {
+        return "TaskQuery{status=" + status + ", category=" + category + ", priority=" + priority
+            + ", incompleteOnly=" + incompleteOnly + ", dueFrom=" + dueFrom + ", dueTo=" + dueTo + ", text=" + text
+            + ", order=" + order + ", offset=" + offset + ", limit=" + limit + "}";
+    }
+}
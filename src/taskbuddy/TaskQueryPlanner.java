@@ -0,0 +1,354 @@
+package taskbuddy;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Runs a TaskQuery against a TaskStore and, if the query has words, a TaskTextIndex.
+ * <p>
+ * Every criterion the store or word index can look up is an access path: the status or
+ * category buckets, the due-day index, the word index, or a sorted view. The planner estimates
+ * how many tasks each path would visit from counts the indexes already keep, drives the query
+ * from the cheapest one and checks the remaining criteria on each task it visits. Words that
+ * are not the driver are checked against the set of tasks containing them when that set is
+ * small enough, or else against each visited task.
+ * <p>
+ * A path that yields tasks in the requested order is read as a stream: the offset is skipped,
+ * the scan stops at the limit, and a sorted view also stops once no further task can match its
+ * due date or priority. Any other path keeps the best offset + limit matches in a bounded heap.
+ * When resuming from a page cursor, a path in the requested order seeks straight to it.
+ */
+final class TaskQueryPlanner {
+
+    /**
+     * The index a plan reads tasks from.
+     */
+    enum Access {
+        SCAN, STATUS, CATEGORY, DUE_RANGE, TEXT, ORDERED_VIEW
+    }
+
+    // A word set up to this many times the tasks visited is cheaper to build than to tokenize each task
+    private static final long TEXT_SET_RATIO = 8;
+
+    /**
+     * The chosen access path with the estimates behind it.
+     */
+    static final class Plan {
+
+        final Access access;
+        final boolean ordered;
+        final long estimate;
+        final long visits;
+        final boolean textSet;
+
+        Plan(Access access, boolean ordered, long estimate, long visits, boolean textSet) {
+            this.access = access;
+            this.ordered = ordered;
+            this.estimate = estimate;
+            this.visits = visits;
+            this.textSet = textSet;
+        }
+
+        @Override
+        public String toString() {
+            return "Plan{access=" + access + ", ordered=" + ordered + ", estimate=" + estimate
+                + ", visits=" + visits + ", textSet=" + textSet + "}";
+        }
+    }
+
+    private final TaskStore store;
+    private final TaskTextIndex textIndex;
+
+    /**
+     * @param textIndex the word index, which must be current; may be null for queries without words.
+     */
+    TaskQueryPlanner(TaskStore store, TaskTextIndex textIndex) {
+        this.store = store;
+        this.textIndex = textIndex;
+    }
+
+    /**
+     * Picks the access path expected to visit the fewest tasks.
+     */
+    Plan plan(TaskQuery query) {
+        long size = store.size();
+        long statusCount = query.getStatus() == null ? size : store.countByStatus(query.getStatus());
+        long categoryCount = query.getCategory() == null ? size : store.countByCategory(query.getCategory());
+        boolean dueBounded = query.getDueFrom() != null || query.getDueTo() != null;
+        long dueCount = dueBounded ? store.estimateDueBetween(query.dueFromDay(), query.dueToDay()) : size;
+        long textCount = query.getText() == null ? size : textIndex.estimateMatches(query.getText());
+        // Assumes the criteria are independent, so their selectivities multiply
+        long incompleteCount = query.isIncompleteOnly() ? size - store.countByStatus(Status.COMPLETED) : size;
+        double selectivity = fraction(statusCount, size) * fraction(categoryCount, size) * fraction(incompleteCount, size)
+            * fraction(dueCount, size) * fraction(textCount, size);
+        long matches = (long) Math.ceil(size * selectivity);
+        long needed = needed(query);
+
+        Plan best = candidate(query, Access.SCAN, size, null, matches, needed);
+        if (query.getStatus() != null) {
+            best = cheaper(best, candidate(query, Access.STATUS, statusCount, null, matches, needed));
+        }
+        if (query.getCategory() != null) {
+            best = cheaper(best, candidate(query, Access.CATEGORY, categoryCount, null, matches, needed));
+        }
+        if (dueBounded) {
+            best = cheaper(best, candidate(query, Access.DUE_RANGE, dueCount, TaskOrder.DUE_DATE, matches, needed));
+        }
+        if (query.getText() != null) {
+            best = cheaper(best, candidate(query, Access.TEXT, textCount, null, matches, needed));
+        }
+        if (query.getOrder() != null) {
+            long sortCost = store.isViewReady(query.getOrder()) ? 0 : size;
+            Plan view = candidate(query, Access.ORDERED_VIEW, size, query.getOrder(), matches, needed);
+            best = cheaper(best, new Plan(view.access, view.ordered, view.estimate, view.visits + sortCost, false));
+        }
+        boolean textSet = query.getText() != null && best.access != Access.TEXT
+            && textCount <= TEXT_SET_RATIO * best.visits;
+        return new Plan(best.access, best.ordered, best.estimate, best.visits, textSet);
+    }
+
+    /**
+     * Costs one path. A path in the requested order stops after about needed / matches of its
+     * tasks; any other must visit all of them and sort what matches.
+     * @param matches the estimated number of tasks matching the whole query.
+     * @param pathOrder the order the path yields tasks in; null for insertion order.
+     */
+    private static Plan candidate(TaskQuery query, Access access, long estimate, TaskOrder pathOrder,
+                                  long matches, long needed) {
+        boolean ordered = access != Access.TEXT && pathOrder == query.getOrder();
+        long visits;
+        if (ordered) {
+            visits = needed >= matches ? estimate : (long) Math.ceil((double) estimate * needed / Math.max(1, matches));
+        } else {
+            visits = estimate + Math.min(estimate, matches);
+        }
+        return new Plan(access, ordered, estimate, visits, false);
+    }
+
+    private static double fraction(long count, long size) {
+        return size == 0 ? 1 : Math.min(1.0, (double) count / size);
+    }
+
+    private static Plan cheaper(Plan best, Plan other) {
+        return other.visits < best.visits ? other : best;
+    }
+
+    /**
+     * Runs a query along the cheapest plan.
+     */
+    List<Task> execute(TaskQuery query) {
+        return execute(query, plan(query), null);
+    }
+
+    /**
+     * Runs a query from a cursor. Paths in the query's order seek straight to the cursor; any
+     * other path skips the tasks before it. The query's offset only applies without a cursor.
+     * @param after the cursor to resume after, in the query's order; null to start at the beginning.
+     */
+    List<Task> execute(TaskQuery query, Plan plan, TaskCursor after) {
+        List<Task> results = new ArrayList<>();
+        if (query.getLimit() == 0) {
+            return results;
+        }
+        Predicate<Task> residual = residual(query, plan);
+        if (after != null) {
+            residual = residual.and(after::isBefore);
+            query = query.withOffset(0);
+        }
+        Iterable<Task> source = source(query, plan.access, after);
+
+        if (plan.ordered) {
+            Predicate<Task> pastEnd = pastEnd(query, plan.access);
+            int skipped = 0;
+            for (Task task : source) {
+                if (pastEnd.test(task)) {
+                    break;
+                }
+                if (!residual.test(task)) {
+                    continue;
+                }
+                if (skipped < query.getOffset()) {
+                    skipped++;
+                    continue;
+                }
+                results.add(task);
+                if (results.size() == query.getLimit()) {
+                    break;
+                }
+            }
+            return results;
+        }
+
+        Comparator<Task> order = query.getOrder() == null
+            ? Comparator.comparingLong(Task::getSequence)
+            : query.getOrder().comparator();
+        long needed = needed(query);
+        if (needed >= plan.estimate) {
+            for (Task task : source) {
+                if (residual.test(task)) {
+                    results.add(task);
+                }
+            }
+        } else {
+            // The worst of the best matches so far is at the head
+            PriorityQueue<Task> best = new PriorityQueue<>((int) needed + 1, order.reversed());
+            for (Task task : source) {
+                if (!residual.test(task)) {
+                    continue;
+                }
+                if (best.size() < needed) {
+                    best.add(task);
+                } else if (order.compare(task, best.peek()) < 0) {
+                    best.poll();
+                    best.add(task);
+                }
+            }
+            results.addAll(best);
+        }
+        results.sort(order);
+        int from = Math.min(query.getOffset(), results.size());
+        int to = (int) Math.min(needed, results.size());
+        return new ArrayList<>(results.subList(from, to));
+    }
+
+    private Iterable<Task> source(TaskQuery query, Access access, TaskCursor after) {
+        // Insertion-order paths resume after the cursor's sequence only when paging in insertion order
+        long afterSequence = after != null && after.getOrder() == null ? after.getSequence() : -1;
+        switch (access) {
+            case STATUS:
+                return store.scanByStatus(query.getStatus(), afterSequence);
+            case CATEGORY:
+                return store.scanByCategory(query.getCategory(), afterSequence);
+            case DUE_RANGE:
+                long fromDay = query.dueFromDay();
+                if (after != null && after.getOrder() == TaskOrder.DUE_DATE) {
+                    fromDay = Math.max(fromDay, after.getDueDay());
+                }
+                return store.scanDueBetween(fromDay, query.dueToDay());
+            case TEXT:
+                return textIndex.findAll(query.getText());
+            case ORDERED_VIEW:
+                return store.view(query.getOrder()).after(after == null ? null : after.position());
+            default:
+                return store.scanAfter(afterSequence);
+        }
+    }
+
+    /**
+     * Builds the check for the criteria the access path does not already guarantee.
+     */
+    private Predicate<Task> residual(TaskQuery query, Plan plan) {
+        if (query.getText() == null || plan.access == Access.TEXT) {
+            return query::matchesFields;
+        }
+        if (!plan.textSet) {
+            return task -> query.matchesFields(task) && query.matchesText(task);
+        }
+        List<Task> withWords = textIndex.findAll(query.getText());
+        Set<CompactId> ids = new HashSet<>(withWords.size() * 2);
+        for (Task task : withWords) {
+            ids.add(task.getId());
+        }
+        return task -> query.matchesFields(task) && ids.contains(task.getId());
+    }
+
+    /**
+     * Builds the test for the first task of a sorted view after which nothing can match.
+     */
+    private static Predicate<Task> pastEnd(TaskQuery query, Access access) {
+        if (access != Access.ORDERED_VIEW) {
+            return task -> false;
+        }
+        long dueTo = query.dueToDay();
+        Priority priority = query.getPriority();
+        switch (query.getOrder()) {
+            case DUE_DATE:
+                return task -> task.getDueDate().toEpochDay() > dueTo;
+            case PRIORITY:
+                return priority == null ? task -> false : task -> task.getPriorityRank() > priority.ordinal();
+            default:
+                if (priority == null) {
+                    return task -> false;
+                }
+                // Within the requested priority, tasks come in due date order
+                return task -> task.getPriorityRank() > priority.ordinal()
+                    || (task.getPriorityRank() == priority.ordinal() && task.getDueDate().toEpochDay() > dueTo);
+        }
+    }
+
+    private static long needed(TaskQuery query) {
+        return Math.min((long) query.getOffset() + query.getLimit(), Integer.MAX_VALUE);
+    }
+
+    /**
+     * Wraps an iterable so that it yields only the tasks passing a test.
+     */
+    static Iterable<Task> filter(Iterable<Task> tasks, Predicate<Task> keep) {
+        return () -> new Iterator<Task>() {
+            private final Iterator<Task> source = tasks.iterator();
+            private Task next = advance();
+
+            private Task advance() {
+                while (source.hasNext()) {
+                    Task task = source.next();
+                    if (keep.test(task)) {
+                        return task;
+                    }
+                }
+                return null;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public Task next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                Task task = next;
+                next = advance();
+                return task;
+            }
+        };
+    }
+
+    /**
+     * Reads the tasks due between two epoch days from a due-date view, stopping after the last.
+     */
+    static Iterable<Task> dueBetween(SortedTaskView byDueDate, long fromDay, long toDay) {
+        if (fromDay > toDay) {
+            return Collections.emptyList();
+        }
+        Iterable<Task> fromStart = filter(byDueDate, task -> task.getDueDate().toEpochDay() >= fromDay);
+        return () -> new Iterator<Task>() {
+            private final Iterator<Task> source = fromStart.iterator();
+            private Task next = source.hasNext() ? source.next() : null;
+
+            @Override
+            public boolean hasNext() {
+                return next != null && next.getDueDate().toEpochDay() <= toDay;
+            }
+
+            @Override
+            public Task next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Task task = next;
+                next = source.hasNext() ? source.next() : null;
+                return task;
+            }
+        };
+    }
+}
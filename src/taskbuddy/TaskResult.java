@@ -0,0 +1,93 @@
+package taskbuddy;
+
+/**
+ * The outcome of a single TaskManager mutation.
+ */
+public final class TaskResult {
+
+    public enum Outcome {
+        SUCCESS,
+        NOT_FOUND,
+        VALIDATION_ERROR,
+        // The task's version was not the one the caller expected
+        CONFLICT,
+        // The change could not be written to the journal, so it was not made
+        NOT_SAVED
+    }
+
+    private final Outcome outcome;
+    private final Task task;
+    private final CompactId taskId;
+    private final String message;
+
+    private TaskResult(Outcome outcome, Task task, CompactId taskId, String message) {
+        this.outcome = outcome;
+        this.task = task;
+        this.taskId = taskId;
+        this.message = message;
+    }
+
+    static TaskResult success(Task task) {
+        return new TaskResult(Outcome.SUCCESS, task, task.getId(), null);
+    }
+
+    /**
+     * @param taskId the ID that was looked up; null if it could not be parsed.
+     */
+    static TaskResult notFound(CompactId taskId, String message) {
+        return new TaskResult(Outcome.NOT_FOUND, null, taskId, message);
+    }
+
+    static TaskResult invalid(String message) {
+        return new TaskResult(Outcome.VALIDATION_ERROR, null, null, message);
+    }
+
+    /**
+     * @param current the task as it is now, so the caller can merge and retry.
+     */
+    static TaskResult conflict(Task current, String message) {
+        return new TaskResult(Outcome.CONFLICT, current, current.getId(), message);
+    }
+
+    /**
+     * @param taskId the task the change was for, or null for an add.
+     */
+    static TaskResult notSaved(CompactId taskId, String message) {
+        return new TaskResult(Outcome.NOT_SAVED, null, taskId, message);
+    }
+
+    public boolean isSuccess() {
+        return outcome == Outcome.SUCCESS;
+    }
+
+    public Outcome getOutcome() {
+        return outcome;
+    }
+
+    /**
+     * Gets the task as it is after the change (as it was, for a remove), or null if the change failed.
+     * For a conflict, gets the task as it currently is.
+     */
+    public Task getTask() {
+        return task;
+    }
+
+    /**
+     * Gets the ID of the task the change was for, or null for a rejected add.
+     */
+    public CompactId getTaskId() {
+        return taskId;
+    }
+
+    /**
+     * Gets why the change failed, or null if it succeeded.
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    @Override
+    public String toString() {
+        return "TaskResult{outcome=" + outcome + ", taskId=" + taskId + (message != null ? ", message='" + message + "'" : "") + "}";
+    }
+}
@@ -0,0 +1,105 @@
+package taskbuddy;
+
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.IntConsumer;
+import javax.swing.SwingWorker;
+
+/**
+ * Finds the tasks matching a filter on a background thread and streams them into a
+ * TaskTableModel. SwingWorker collects the matches published while the event dispatch thread
+ * is busy and hands them over in chunks, so the table fills in as the scan goes.
+ * <p>
+ * With search words, the candidates come from TaskManager's word index and are put back in
+ * insertion order; without, the scan reads the latest ImmutableTaskList, so it takes no lock
+ * and never blocks writers.
+ * Cancelling the worker (because a newer search superseded it) stops the scan and drops any
+ * chunk not yet added.
+ */
+final class TaskSearchWorker extends SwingWorker<Integer, Task> {
+
+    // How often the scan checks whether it was cancelled
+    private static final int CANCEL_CHECK_INTERVAL = 1024;
+    // Published after the last match; never shown
+    private static final Task END = new Task(CompactId.of(0), "", "", LocalDate.MIN, Priority.LOW, Status.TO_DO, null, 0);
+
+    private final ConcurrentTaskManager taskManager;
+    private final TaskTableModel tableModel;
+    private final TaskFilter filter;
+    private final IntConsumer onFinished;
+    private volatile int matchCount;
+
+    /**
+     * @param onFinished called on the event dispatch thread with the number of matches, unless cancelled.
+     */
+    TaskSearchWorker(ConcurrentTaskManager taskManager, TaskTableModel tableModel, TaskFilter filter, IntConsumer onFinished) {
+        this.taskManager = taskManager;
+        this.tableModel = tableModel;
+        this.filter = filter;
+        this.onFinished = onFinished;
+    }
+
+    /**
+     * Clears the table for the new search and starts it. Call on the event dispatch thread.
+     */
+    void start() {
+        tableModel.startLoad(filter);
+        execute();
+    }
+
+    @Override
+    protected Integer doInBackground() {
+        int matches = 0;
+        int scanned = 0;
+        for (Task task : candidates()) {
+            if (++scanned % CANCEL_CHECK_INTERVAL == 0 && isCancelled()) {
+                return matches;
+            }
+            if (filter.matches(task)) {
+                publish(task);
+                matches++;
+            }
+        }
+        matchCount = matches;
+        // done() may run before the last chunks are processed, so the end travels with them
+        publish(END);
+        return matches;
+    }
+
+    private List<Task> candidates() {
+        if (filter.getText() == null) {
+            return taskManager.getSnapshot();
+        }
+        List<Task> found = taskManager.search(filter.getText(), Integer.MAX_VALUE);
+        found.sort(Comparator.comparingLong(Task::getSequence));
+        return found;
+    }
+
+    @Override
+    protected void process(List<Task> chunk) {
+        if (isCancelled()) {
+            return;
+        }
+        // END is published last, so it can only end the last chunk
+        boolean finished = chunk.get(chunk.size() - 1) == END;
+        tableModel.addLoaded(finished ? chunk.subList(0, chunk.size() - 1) : chunk);
+        if (finished) {
+            tableModel.finishLoad();
+            onFinished.accept(matchCount);
+        }
+    }
+
+    @Override
+    protected void done() {
+        try {
+            get();
+        } catch (Exception e) {
+            // Cancelled, or the scan failed; if it failed, show what was found
+            if (!isCancelled()) {
+                tableModel.finishLoad();
+                onFinished.accept(tableModel.getRowCount());
+            }
+        }
+    }
+}
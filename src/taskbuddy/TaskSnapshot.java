@@ -0,0 +1,289 @@
+package taskbuddy;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A read-only, memory-mapped snapshot of every task, in insertion order.
+ * <p>
+ * The file is laid out so it can be mapped and read in place, without parsing:
+ * <pre>
+ *   header      magic, version, task count, category count, heap offset, dictionary offset
+ *   records     one fixed-width 48-byte record per task (ID, due day, priority, status,
+ *               category index, and the offset/length of its title and description)
+ *   string heap the UTF-8 bytes of every title and description
+ *   dictionary  the category names, referred to by index from the records
+ * </pre>
+ * Fixed-width fields can be read straight from the mapping, so a store can load IDs, dates,
+ * priorities and statuses for every task while decoding titles and descriptions only for the
+ * tasks that are actually shown. All values are little-endian.
+ */
+public final class TaskSnapshot implements AutoCloseable {
+
+    private static final int MAGIC = 0x4e534254; // "TBSN" read little-endian
+    static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 32;
+    private static final int RECORD_SIZE = 48;
+
+    // Offsets of the fields within a record
+    private static final int ID_HIGH = 0;
+    private static final int ID_LOW = 8;
+    private static final int DUE_DAY = 16;
+    private static final int PRIORITY = 24;
+    private static final int STATUS = 25;
+    private static final int CATEGORY = 28;
+    private static final int TITLE_OFFSET = 32;
+    private static final int TITLE_LENGTH = 36;
+    private static final int DESCRIPTION_OFFSET = 40;
+    private static final int DESCRIPTION_LENGTH = 44;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer data;
+    private final int taskCount;
+    private final int heapOffset;
+    private final String[] categoryNames;
+
+    private TaskSnapshot(FileChannel channel, MappedByteBuffer data) throws IOException {
+        this.channel = channel;
+        this.data = data;
+        data.order(ByteOrder.LITTLE_ENDIAN);
+        if (data.limit() < HEADER_SIZE || data.getInt(0) != MAGIC) {
+            throw new IOException("Not a task snapshot");
+        }
+        int version = data.getInt(4);
+        if (version != VERSION) {
+            throw new IOException("Unsupported task snapshot version " + version);
+        }
+        this.taskCount = data.getInt(8);
+        int categoryCount = data.getInt(12);
+        long heap = data.getLong(16);
+        long dictionary = data.getLong(24);
+        if (taskCount < 0 || categoryCount < 0 || heap != HEADER_SIZE + (long) taskCount * RECORD_SIZE
+                || dictionary < heap || dictionary > data.limit()) {
+            throw new IOException("Corrupt task snapshot header");
+        }
+        this.heapOffset = (int) heap;
+        // The dictionary is tiny, so it is decoded up front
+        this.categoryNames = new String[categoryCount];
+        int position = (int) dictionary;
+        for (int i = 0; i < categoryCount; i++) {
+            int length = data.getInt(position);
+            categoryNames[i] = decode(position + 4, length);
+            position += 4 + length;
+        }
+    }
+
+    /**
+     * Maps a snapshot file. The mapping stays valid until the snapshot is garbage collected,
+     * even after the file is replaced.
+     */
+    static TaskSnapshot open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new TaskSnapshot(channel, data);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Writes a snapshot of the given tasks.
+     * @param tasks the tasks, in insertion order.
+     * @param count the number of tasks the iterable will return.
+     */
+    static void write(Path file, Iterable<Task> tasks, int count) throws IOException {
+        try (FileChannel out = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            long heapStart = HEADER_SIZE + (long) count * RECORD_SIZE;
+            // Records and string bytes are buffered separately and written at their own positions
+            ByteBuffer records = ByteBuffer.allocate(RECORD_SIZE * 1024).order(ByteOrder.LITTLE_ENDIAN);
+            ByteBuffer heap = ByteBuffer.allocate(64 * 1024);
+            long recordPosition = HEADER_SIZE;
+            long heapPosition = heapStart;
+            int heapLength = 0;
+            Map<String, Integer> dictionary = new HashMap<>();
+            ByteBuffer names = ByteBuffer.allocate(1024).order(ByteOrder.LITTLE_ENDIAN);
+            int written = 0;
+
+            for (Task task : tasks) {
+                if (written == count) {
+                    throw new IOException("More tasks than expected while writing snapshot");
+                }
+                byte[] title = task.getTitle().getBytes(StandardCharsets.UTF_8);
+                byte[] description = task.getDescription() == null ? null : task.getDescription().getBytes(StandardCharsets.UTF_8);
+                int needed = title.length + (description == null ? 0 : description.length);
+                if (heap.remaining() < needed) {
+                    heapPosition += flush(out, heap, heapPosition);
+                    if (heap.capacity() < needed) {
+                        heap = ByteBuffer.allocate(needed);
+                    }
+                }
+                if (!records.hasRemaining()) {
+                    recordPosition += flush(out, records, recordPosition);
+                }
+                String categoryName = task.getCategory().getCategoryName();
+                Integer categoryIndex = dictionary.get(categoryName);
+                if (categoryIndex == null) {
+                    categoryIndex = dictionary.size();
+                    dictionary.put(categoryName, categoryIndex);
+                    byte[] bytes = categoryName.getBytes(StandardCharsets.UTF_8);
+                    if (names.remaining() < bytes.length + 4) {
+                        names = ByteBuffer.allocate(names.capacity() * 2 + bytes.length).order(ByteOrder.LITTLE_ENDIAN).put(names.flip());
+                    }
+                    names.putInt(bytes.length).put(bytes);
+                }
+
+                CompactId id = task.getId();
+                records.putLong(id.getHigh());
+                records.putLong(id.getLow());
+                records.putLong(task.getDueDate().toEpochDay());
+                records.put((byte) task.getPriority().ordinal());
+                records.put((byte) task.getStatus().ordinal());
+                records.putShort((short) 0);
+                records.putInt(categoryIndex);
+                records.putInt(heapLength);
+                records.putInt(title.length);
+                heap.put(title);
+                heapLength = Math.addExact(heapLength, title.length);
+                records.putInt(heapLength);
+                if (description == null) {
+                    records.putInt(-1);
+                } else {
+                    records.putInt(description.length);
+                    heap.put(description);
+                    heapLength = Math.addExact(heapLength, description.length);
+                }
+                written++;
+            }
+            if (written != count) {
+                throw new IOException("Fewer tasks than expected while writing snapshot");
+            }
+            flush(out, records, recordPosition);
+            flush(out, heap, heapPosition);
+            long dictionaryStart = heapStart + heapLength;
+            flush(out, names, dictionaryStart);
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putInt(count).putInt(dictionary.size());
+            header.putLong(heapStart).putLong(dictionaryStart);
+            flush(out, header, 0);
+            out.force(true);
+        }
+    }
+
+    private static int flush(FileChannel out, ByteBuffer buffer, long position) throws IOException {
+        buffer.flip();
+        int length = buffer.remaining();
+        long at = position;
+        while (buffer.hasRemaining()) {
+            at += out.write(buffer, at);
+        }
+        buffer.clear();
+        return length;
+    }
+
+    /**
+     * Gets the number of tasks in the snapshot.
+     */
+    public int size() {
+        return taskCount;
+    }
+
+    /**
+     * Gets the names of the categories used by the snapshot, indexed as {@link #getCategoryIndex(int)}.
+     */
+    public String[] getCategoryNames() {
+        return categoryNames.clone();
+    }
+
+    long getIdHigh(int index) {
+        return data.getLong(record(index) + ID_HIGH);
+    }
+
+    long getIdLow(int index) {
+        return data.getLong(record(index) + ID_LOW);
+    }
+
+    CompactId getId(int index) {
+        return new CompactId(getIdHigh(index), getIdLow(index));
+    }
+
+    long getDueDay(int index) {
+        return data.getLong(record(index) + DUE_DAY);
+    }
+
+    byte getPriorityCode(int index) {
+        return data.get(record(index) + PRIORITY);
+    }
+
+    byte getStatusCode(int index) {
+        return data.get(record(index) + STATUS);
+    }
+
+    int getCategoryIndex(int index) {
+        return data.getInt(record(index) + CATEGORY);
+    }
+
+    String getTitle(int index) {
+        int record = record(index);
+        return decode(heapOffset + data.getInt(record + TITLE_OFFSET), data.getInt(record + TITLE_LENGTH));
+    }
+
+    String getDescription(int index) {
+        int record = record(index);
+        int length = data.getInt(record + DESCRIPTION_LENGTH);
+        return length < 0 ? null : decode(heapOffset + data.getInt(record + DESCRIPTION_OFFSET), length);
+    }
+
+    /**
+     * Creates a Task for one record.
+     * @param categories the Category for each dictionary index.
+     * @param sequence the insertion sequence to give the task.
+     */
+    Task getTask(int index, Category[] categories, long sequence) {
+        return new Task(getId(index), getTitle(index), getDescription(index), LocalDate.ofEpochDay(getDueDay(index)),
+            Priority.fromCode(getPriorityCode(index)), Status.fromCode(getStatusCode(index)), categories[getCategoryIndex(index)], sequence);
+    }
+
+    /**
+     * Creates a Task for one record whose title and description are only decoded when first read.
+     * The task keeps the mapping reachable until then.
+     */
+    Task getLazyTask(int index, Category[] categories, long sequence) {
+        return new Task(this, index, getId(index), LocalDate.ofEpochDay(getDueDay(index)), Priority.fromCode(getPriorityCode(index)),
+            Status.fromCode(getStatusCode(index)), categories[getCategoryIndex(index)], sequence);
+    }
+
+    /**
+     * Closes the file; the mapping itself stays readable until it is garbage collected.
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private int record(int index) {
+        if (index < 0 || index >= taskCount) {
+            throw new IndexOutOfBoundsException("Snapshot record " + index + " of " + taskCount);
+        }
+        return HEADER_SIZE + index * RECORD_SIZE;
+    }
+
+    private String decode(int offset, int length) {
+        byte[] bytes = new byte[length];
+        data.get(offset, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,176 @@
+package taskbuddy;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * A snapshot of task counts from TaskManager.getStatistics(), for dashboards: tasks by status,
+ * category and priority (alone or combined), completion rate, overdue tasks and open tasks by
+ * due date. It is immutable and does not change as tasks do; ask for a new one to refresh.
+ * Counts by due date cover only open (not completed) tasks.
+ */
+public final class TaskStatistics {
+
+    private final int[] counts;
+    private final int total;
+    private final Histogram openByDay;
+    private final Histogram openByWeek;
+    private final List<Category> categories;
+
+    TaskStatistics(int[] counts, int total, Histogram openByDay, Histogram openByWeek, List<Category> categories) {
+        this.counts = counts;
+        this.total = total;
+        this.openByDay = openByDay;
+        this.openByWeek = openByWeek;
+        this.categories = Collections.unmodifiableList(new ArrayList<>(categories));
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    /**
+     * Counts the tasks with a status, category and priority; null for any.
+     */
+    public int count(Status status, Category category, Priority priority) {
+        int count = 0;
+        int categorySlots = counts.length / (Status.values().length * Priority.values().length);
+        for (int categoryId = 0; categoryId < categorySlots; categoryId++) {
+            if (category != null && category.getCategoryId() != categoryId) {
+                continue;
+            }
+            for (Status s : Status.values()) {
+                if (status != null && s != status) {
+                    continue;
+                }
+                for (Priority p : Priority.values()) {
+                    if (priority == null || p == priority) {
+                        count += counts[TaskCounters.slot(categoryId, s.ordinal(), p.ordinal())];
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    public int countByStatus(Status status) {
+        return count(status, null, null);
+    }
+
+    public int countByCategory(Category category) {
+        return count(null, category, null);
+    }
+
+    public int countByPriority(Priority priority) {
+        return count(null, null, priority);
+    }
+
+    /**
+     * Gets the share of tasks completed, from 0 to 1; 0 when there are no tasks.
+     */
+    public double getCompletionRate() {
+        return total == 0 ? 0 : (double) countByStatus(Status.COMPLETED) / total;
+    }
+
+    /**
+     * Counts the open tasks due before a date, in O(log days).
+     */
+    public int countOverdue(LocalDate asOf) {
+        return openByDay.sumBetween(Long.MIN_VALUE, asOf.toEpochDay() - 1);
+    }
+
+    /**
+     * Counts the open tasks due between two dates, both inclusive, in O(log days).
+     */
+    public int countOpenDueBetween(LocalDate from, LocalDate to) {
+        return openByDay.sumBetween(from.toEpochDay(), to.toEpochDay());
+    }
+
+    /**
+     * Counts the open tasks due in the Monday-to-Sunday week containing a date.
+     */
+    public int countOpenDueInWeek(LocalDate date) {
+        long monday = TaskCounters.weekOf(date.toEpochDay());
+        return openByWeek.sumBetween(monday, monday);
+    }
+
+    /**
+     * Gets the number of open tasks due on each day that has any, earliest first.
+     */
+    public NavigableMap<LocalDate, Integer> getOpenByDueDay() {
+        return openByDay.toMap();
+    }
+
+    /**
+     * Gets the number of open tasks due in each week that has any, keyed by the week's Monday.
+     */
+    public NavigableMap<LocalDate, Integer> getOpenByDueWeek() {
+        return openByWeek.toMap();
+    }
+
+    /**
+     * Gets the categories registered when the snapshot was taken, for listing counts by category.
+     */
+    public List<Category> getCategories() {
+        return categories;
+    }
+
+    /**
+     * Counts by epoch day, as sorted keys with running totals so any range sums in O(log n).
+     */
+    static final class Histogram {
+
+        private final long[] keys;
+        // cumulative[i] is the sum of the counts of the first i keys
+        private final int[] cumulative;
+
+        Histogram(long[] keys, int[] cumulative) {
+            this.keys = keys;
+            this.cumulative = cumulative;
+        }
+
+        int size() {
+            return keys.length;
+        }
+
+        int sumBetween(long from, long to) {
+            if (from > to) {
+                return 0;
+            }
+            int upTo = to == Long.MAX_VALUE ? keys.length : countBelow(to + 1);
+            return cumulative[upTo] - cumulative[countBelow(from)];
+        }
+
+        private int countBelow(long key) {
+            int low = 0;
+            int high = keys.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (keys[mid] < key) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        NavigableMap<LocalDate, Integer> toMap() {
+            NavigableMap<LocalDate, Integer> dates = new TreeMap<>();
+            for (int i = 0; i < keys.length; i++) {
+                dates.put(LocalDate.ofEpochDay(keys[i]), cumulative[i + 1] - cumulative[i]);
+            }
+            return Collections.unmodifiableNavigableMap(dates);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "TaskStatistics{total=" + total + ", completed=" + countByStatus(Status.COMPLETED)
+            + ", openDueDays=" + openByDay.size() + "}";
+    }
+}
@@ -0,0 +1,110 @@
+package taskbuddy;
+
+import java.time.LocalDate;
+import java.util.StringJoiner;
+import java.util.concurrent.Flow;
+import javax.swing.BorderFactory;
+import javax.swing.BoxLayout;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+
+/**
+ * A dashboard of task counts under the table: totals, completion rate, overdue tasks, tasks
+ * by status, priority and category, and open tasks due this week and next.
+ * <p>
+ * It reads TaskManager.getStatistics() off the event dispatch thread, and refreshes when the
+ * change feed reports changes; a burst of changes is coalesced into one refresh.
+ */
+final class TaskStatisticsPanel extends JPanel implements Flow.Subscriber<TaskChange> {
+
+    // How long the panel waits after a change for more before refreshing
+    private static final int REFRESH_DELAY_MS = 200;
+
+    private final AsyncTaskManager tasks;
+    private final TaskChangeFeed feed;
+    private final JLabel summaryLabel = new JLabel();
+    private final JLabel statusLabel = new JLabel();
+    private final JLabel priorityLabel = new JLabel();
+    private final JLabel categoryLabel = new JLabel();
+    private final JLabel dueLabel = new JLabel();
+    private final Timer refreshTimer = new Timer(REFRESH_DELAY_MS, e -> refresh());
+
+    TaskStatisticsPanel(AsyncTaskManager tasks, TaskChangeFeed feed) {
+        this.tasks = tasks;
+        this.feed = feed;
+        refreshTimer.setRepeats(false);
+        setLayout(new BoxLayout(this, BoxLayout.Y_AXIS));
+        setBorder(BorderFactory.createTitledBorder("Statistics"));
+        setOpaque(false);
+        add(summaryLabel);
+        add(statusLabel);
+        add(priorityLabel);
+        add(categoryLabel);
+        add(dueLabel);
+        feed.subscribe(this);
+    }
+
+    /**
+     * Reads fresh statistics in the background and shows them once read.
+     */
+    void refresh() {
+        refreshTimer.stop();
+        tasks.getStatistics().thenAccept(stats -> SwingUtilities.invokeLater(() -> show(stats)));
+    }
+
+    private void show(TaskStatistics stats) {
+        LocalDate today = LocalDate.now();
+        summaryLabel.setText(String.format("%d tasks, %.0f%% completed, %d overdue",
+            stats.getTotal(), stats.getCompletionRate() * 100, stats.countOverdue(today)));
+
+        StringJoiner byStatus = new StringJoiner(", ");
+        for (Status status : Status.values()) {
+            byStatus.add(status.getDisplayName() + " " + stats.countByStatus(status));
+        }
+        statusLabel.setText(byStatus.toString());
+        StringJoiner byPriority = new StringJoiner(", ");
+        for (Priority priority : Priority.values()) {
+            byPriority.add(priority.getDisplayName() + " " + stats.countByPriority(priority));
+        }
+        priorityLabel.setText(byPriority.toString());
+        StringJoiner byCategory = new StringJoiner(", ");
+        for (Category category : stats.getCategories()) {
+            byCategory.add(category.getCategoryName() + " " + stats.countByCategory(category));
+        }
+        categoryLabel.setText(byCategory.toString());
+
+        LocalDate monday = today.minusDays(today.getDayOfWeek().getValue() - 1);
+        dueLabel.setText("Open and due: " + stats.countOpenDueBetween(today, monday.plusDays(6)) + " this week, "
+            + stats.countOpenDueInWeek(monday.plusWeeks(1)) + " next week");
+    }
+
+    // --- Feed ---------------------------------------------------------------------------------
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        subscription.request(Long.MAX_VALUE);
+    }
+
+    @Override
+    public void onNext(TaskChange change) {
+        SwingUtilities.invokeLater(refreshTimer::restart);
+    }
+
+    /**
+     * The feed cut the panel off for falling behind; since it never needs the changes
+     * themselves, it just subscribes again and refreshes.
+     */
+    @Override
+    public void onError(Throwable cause) {
+        SwingUtilities.invokeLater(() -> {
+            feed.subscribe(this);
+            refresh();
+        });
+    }
+
+    @Override
+    public void onComplete() {
+    }
+}
@@ -0,0 +1,144 @@
+package taskbuddy;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Storage for the tasks held by a TaskManager, together with the lookups TaskManager needs.
+ * TaskManager does all validation and reporting; a store only keeps the data and answers queries.
+ * Iterating a store visits tasks in the order they were added.
+ * <p>
+ * Two implementations exist: HeapTaskStore (the default) keeps one Task object per task and
+ * maintains hash and tree indexes for every query; ColumnarTaskStore keeps tasks in primitive
+ * arrays and answers queries by scanning them, trading query time for much less heap.
+ */
+public interface TaskStore extends Iterable<Task> {
+
+    int size();
+
+    /**
+     * Gets a task by ID, or null if there is none.
+     */
+    Task get(CompactId id);
+
+    /**
+     * Adds a new task. The task's ID must not already be in the store.
+     */
+    void add(Task task);
+
+    /**
+     * Adds every task in a snapshot to an empty store, in snapshot order.
+     * The default materializes each task; stores may instead read the snapshot lazily.
+     * @param categories the Category for each of the snapshot's category indexes.
+     * @param firstSequence the insertion sequence of the first task; later tasks follow on.
+     */
+    default void load(TaskSnapshot snapshot, Category[] categories, long firstSequence) {
+        for (int i = 0; i < snapshot.size(); i++) {
+            add(snapshot.getTask(i, categories, firstSequence + i));
+        }
+    }
+
+    /**
+     * Replaces an existing task with a new one holding the given fields, keeping its ID,
+     * insertion sequence and position in insertion order, with a version one higher.
+     * The old Task object is left unchanged.
+     * @return the new task, or null if no task has that ID.
+     */
+    Task update(CompactId id, String title, String description, LocalDate dueDate, Priority priority, Status status, Category category);
+
+    /**
+     * Removes a task by ID.
+     * @return the removed task, or null if no task had that ID.
+     */
+    Task remove(CompactId id);
+
+    List<Task> findByStatus(Status status);
+
+    int countByStatus(Status status);
+
+    /**
+     * Gets every task whose status is not Completed.
+     */
+    List<Task> findIncomplete();
+
+    List<Task> findByCategory(Category category);
+
+    int countByCategory(Category category);
+
+    /**
+     * Gets tasks due between two epoch days (both inclusive), in due-date order.
+     */
+    List<Task> findDueBetween(long fromDay, long toDay);
+
+    /**
+     * Gets incomplete tasks due strictly before the given epoch day, in due-date order.
+     */
+    List<Task> findOverdue(long asOfDay);
+
+    /**
+     * Gets a read-only view of all tasks in the given order.
+     */
+    SortedTaskView view(TaskOrder order);
+
+    /**
+     * Checks if view(order) can be read without sorting first. The default says it can.
+     */
+    default boolean isViewReady(TaskOrder order) {
+        return true;
+    }
+
+    /**
+     * Checks if lookups can run on several threads at once while nothing is being changed.
+     * The default says they cannot, since a store may build caches as it reads.
+     */
+    default boolean isSharedReadSafe() {
+        return false;
+    }
+
+    /**
+     * Streams the tasks added after a sequence number in insertion order, without copying
+     * them, so a query can resume from a page cursor and stop as soon as it has enough.
+     * The default filters a full scan.
+     * @param afterSequence the sequence of the last task already seen, or -1 to start at the beginning.
+     */
+    default Iterable<Task> scanAfter(long afterSequence) {
+        return TaskQueryPlanner.filter(this, task -> task.getSequence() > afterSequence);
+    }
+
+    /**
+     * Streams the tasks with a status added after a sequence number, in insertion order.
+     * The default filters a full scan.
+     */
+    default Iterable<Task> scanByStatus(Status status, long afterSequence) {
+        return TaskQueryPlanner.filter(scanAfter(afterSequence), task -> task.getStatus() == status);
+    }
+
+    /**
+     * Streams the tasks in a category added after a sequence number, in insertion order.
+     * The default filters a full scan.
+     */
+    default Iterable<Task> scanByCategory(Category category, long afterSequence) {
+        return TaskQueryPlanner.filter(scanAfter(afterSequence), task -> category.equals(task.getCategory()));
+    }
+
+    /**
+     * Streams the tasks due between two epoch days (both inclusive) in TaskOrder.DUE_DATE order.
+     * The default walks the due-date view and stops after toDay.
+     */
+    default Iterable<Task> scanDueBetween(long fromDay, long toDay) {
+        return TaskQueryPlanner.dueBetween(view(TaskOrder.DUE_DATE), fromDay, toDay);
+    }
+
+    /**
+     * Estimates how many tasks scanDueBetween() would return, for choosing a query plan.
+     * The default, size(), claims no knowledge.
+     */
+    default long estimateDueBetween(long fromDay, long toDay) {
+        return size();
+    }
+
+    /**
+     * Gets the k most urgent incomplete tasks, in TaskOrder.PRIORITY_THEN_DUE_DATE order.
+     */
+    List<Task> findMostUrgent(int k);
+}
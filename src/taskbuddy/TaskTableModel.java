@@ -0,0 +1,316 @@
+package taskbuddy;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Flow;
+import java.util.function.Supplier;
+import javax.swing.SwingUtilities;
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * A table model that shows a TaskManager's tasks in insertion order and keeps itself current
+ * from a TaskChangeFeed, so a change redraws only the rows it touched.
+ * <p>
+ * The model holds its own ImmutableTaskList and applies each change to it in O(log n), firing
+ * one row-level insert, update or delete event. Nothing is copied or re-formatted per change,
+ * and JTable keeps the selection on the same task as rows are inserted and deleted around it.
+ * Formatted IDs and due dates are cached for recently shown tasks; a cached row is only reused
+ * for the exact Task object it was made from, so an update is never shown stale.
+ * <p>
+ * <b>Filtering.</b> The model can show only the tasks matching a TaskFilter. A search runs off
+ * the event dispatch thread: call startLoad(filter), hand the matches to addLoaded() in chunks as
+ * they are found, then call finishLoad(). Changes keep arriving from the feed meanwhile; a task
+ * changed while loading is shown as the feed last reported it, never as the (older) search saw it.
+ * Changed tasks enter or leave the filtered rows as they start or stop matching.
+ * <p>
+ * All table methods must be called on the event dispatch thread; changes delivered on another
+ * thread are handed over to it. If the feed cuts the model off for falling behind, the model
+ * reloads the TaskManager's current snapshot and resubscribes.
+ */
+public class TaskTableModel extends AbstractTableModel implements Flow.Subscriber<TaskChange> {
+
+    public static final int ID_COLUMN = 0;
+    public static final int TITLE_COLUMN = 1;
+    public static final int DESCRIPTION_COLUMN = 2;
+    public static final int DUE_DATE_COLUMN = 3;
+    public static final int PRIORITY_COLUMN = 4;
+    public static final int STATUS_COLUMN = 5;
+    public static final int CATEGORY_COLUMN = 6;
+
+    private static final String[] COLUMN_NAMES = {"ID", "Title", "Description", "Due Date", "Priority", "Status", "Category"};
+    private static final int CACHED_ROWS = 1024;
+
+    private final Supplier<ImmutableTaskList> snapshots;
+    private final TaskChangeFeed feed;
+    private final DateTimeFormatter dateFormatter;
+
+    // The tasks shown, which are those matching the filter
+    private ImmutableTaskList tasks;
+    private TaskFilter filter;
+    // While a search is loading, the tasks the feed has reported since it started
+    private Set<CompactId> changedWhileLoading;
+
+    // Due dates repeat heavily, so each distinct date is formatted once
+    private final Map<LocalDate, String> formattedDates = new HashMap<>();
+    // Formatted cells of the rows shown most recently, least recently used first
+    private final Map<CompactId, FormattedRow> formattedRows = new LinkedHashMap<>(CACHED_ROWS * 2, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<CompactId, FormattedRow> eldest) {
+            return size() > CACHED_ROWS;
+        }
+    };
+
+    private static final class FormattedRow {
+        final Task task;
+        final String id;
+        final String dueDate;
+
+        FormattedRow(Task task, String id, String dueDate) {
+            this.task = task;
+            this.id = id;
+            this.dueDate = dueDate;
+        }
+    }
+
+    /**
+     * Creates a model showing the TaskManager's current tasks and subscribes it to the feed,
+     * which must be the TaskManager's event sink (or part of it). Call on the event dispatch
+     * thread, with no other thread changing the TaskManager.
+     */
+    public TaskTableModel(TaskManager taskManager, TaskChangeFeed feed, DateTimeFormatter dateFormatter) {
+        this(taskManager::getSnapshot, feed, dateFormatter);
+    }
+
+    /**
+     * Creates a model showing a ConcurrentTaskManager's current tasks and subscribes it to the
+     * feed, which must be the manager's event sink (or part of it). Call on the event dispatch thread.
+     */
+    public TaskTableModel(ConcurrentTaskManager taskManager, TaskChangeFeed feed, DateTimeFormatter dateFormatter) {
+        this(taskManager::getSnapshot, feed, dateFormatter);
+    }
+
+    private TaskTableModel(Supplier<ImmutableTaskList> snapshots, TaskChangeFeed feed, DateTimeFormatter dateFormatter) {
+        this.snapshots = snapshots;
+        this.feed = feed;
+        this.dateFormatter = dateFormatter;
+        this.filter = new TaskFilter(null, null, null, null, null);
+        // Subscribe first so no change is missed; any already in the snapshot is applied harmlessly
+        feed.subscribe(this);
+        this.tasks = snapshots.get();
+    }
+
+    /**
+     * Gets the filter the shown tasks match.
+     */
+    public TaskFilter getFilter() {
+        return filter;
+    }
+
+    /**
+     * Checks if a search is still loading.
+     */
+    public boolean isLoading() {
+        return changedWhileLoading != null;
+    }
+
+    /**
+     * Clears the rows to start loading the tasks matching a filter.
+     */
+    public void startLoad(TaskFilter filter) {
+        this.filter = filter;
+        this.tasks = ImmutableTaskList.of(List.of(), 0, tasks.getVersion());
+        this.changedWhileLoading = new HashSet<>();
+        formattedRows.clear();
+        fireTableDataChanged();
+    }
+
+    /**
+     * Shows every task without searching, since the current snapshot already is the result.
+     */
+    public void showAll() {
+        filter = new TaskFilter(null, null, null, null, null);
+        tasks = snapshots.get();
+        changedWhileLoading = null;
+        formattedRows.clear();
+        fireTableDataChanged();
+    }
+
+    /**
+     * Adds a chunk of matching tasks found by the search, in insertion order, from a snapshot
+     * taken after startLoad(). Tasks the feed has reported on since then are skipped, and the
+     * chunk is ignored if the search has already ended.
+     */
+    public void addLoaded(List<Task> chunk) {
+        if (changedWhileLoading == null) {
+            return;
+        }
+        // Rows found together are usually adjacent, so they are announced as one range
+        int first = -1;
+        int last = -1;
+        for (Task task : chunk) {
+            if (changedWhileLoading.contains(task.getId()) || tasks.find(task.getId()) != null) {
+                continue;
+            }
+            tasks = tasks.withTask(task, tasks.getVersion());
+            int row = tasks.positionOf(task.getId());
+            if (first >= 0 && row == last + 1) {
+                last = row;
+                continue;
+            }
+            if (first >= 0) {
+                fireTableRowsInserted(first, last);
+            }
+            first = row;
+            last = row;
+        }
+        if (first >= 0) {
+            fireTableRowsInserted(first, last);
+        }
+    }
+
+    /**
+     * Ends the current search.
+     */
+    public void finishLoad() {
+        changedWhileLoading = null;
+    }
+
+    /**
+     * Gets the task shown in a row.
+     */
+    public Task getTaskAt(int row) {
+        return tasks.get(row);
+    }
+
+    /**
+     * Gets the row showing a task, or -1 if it is not shown.
+     */
+    public int getRowOf(CompactId taskId) {
+        return tasks.positionOf(taskId);
+    }
+
+    @Override
+    public int getRowCount() {
+        return tasks.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMN_NAMES.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMN_NAMES[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return String.class;
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        Task task = tasks.get(row);
+        return switch (column) {
+            case ID_COLUMN -> format(task).id;
+            case TITLE_COLUMN -> task.getTitle();
+            case DESCRIPTION_COLUMN -> task.getDescription();
+            case DUE_DATE_COLUMN -> format(task).dueDate;
+            case PRIORITY_COLUMN -> task.getPriority().getDisplayName();
+            case STATUS_COLUMN -> task.getStatus().getDisplayName();
+            // Read live, since categories are renamed in place
+            case CATEGORY_COLUMN -> task.getCategory().getCategoryName();
+            default -> throw new IndexOutOfBoundsException("Column " + column);
+        };
+    }
+
+    private FormattedRow format(Task task) {
+        FormattedRow cached = formattedRows.get(task.getId());
+        if (cached == null || cached.task != task) {
+            String dueDate = formattedDates.computeIfAbsent(task.getDueDate(), dateFormatter::format);
+            cached = new FormattedRow(task, task.getTaskId(), dueDate);
+            formattedRows.put(task.getId(), cached);
+        }
+        return cached;
+    }
+
+    // --- Feed ---------------------------------------------------------------------------------
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        subscription.request(Long.MAX_VALUE);
+    }
+
+    @Override
+    public void onNext(TaskChange change) {
+        if (SwingUtilities.isEventDispatchThread()) {
+            apply(change);
+        } else {
+            SwingUtilities.invokeLater(() -> apply(change));
+        }
+    }
+
+    @Override
+    public void onError(Throwable cause) {
+        SwingUtilities.invokeLater(this::reload);
+    }
+
+    @Override
+    public void onComplete() {
+    }
+
+    /**
+     * Applies one change to the shown list and fires the matching row event.
+     */
+    private void apply(TaskChange change) {
+        if (changedWhileLoading != null) {
+            changedWhileLoading.add(change.getTaskId());
+        }
+        int row = tasks.positionOf(change.getTaskId());
+        Task after = change.getAfter();
+        if (after == null || !filter.matches(after)) {
+            if (row >= 0) {
+                tasks = tasks.without(tasks.get(row), change.getSequence());
+                formattedRows.remove(change.getTaskId());
+                fireTableRowsDeleted(row, row);
+            }
+            return;
+        }
+        tasks = tasks.withTask(after, change.getSequence());
+        if (row >= 0) {
+            fireTableRowsUpdated(row, row);
+        } else {
+            row = tasks.positionOf(change.getTaskId());
+            fireTableRowsInserted(row, row);
+        }
+    }
+
+    /**
+     * Starts over from the TaskManager's current tasks after the feed cut the model off.
+     * A search still loading is abandoned in favour of the complete filtered snapshot.
+     */
+    private void reload() {
+        feed.subscribe(this);
+        ImmutableTaskList snapshot = snapshots.get();
+        if (filter.isEmpty()) {
+            tasks = snapshot;
+        } else {
+            tasks = ImmutableTaskList.of(List.of(), 0, snapshot.getVersion());
+            for (Task task : snapshot) {
+                if (filter.matches(task)) {
+                    tasks = tasks.withTask(task, snapshot.getVersion());
+                }
+            }
+        }
+        changedWhileLoading = null;
+        formattedRows.clear();
+        fireTableDataChanged();
+    }
+}
@@ -0,0 +1,527 @@
+package taskbuddy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+
+/**
+ * An inverted index over task titles and descriptions, kept up to date by TaskManager.
+ * <p>
+ * Text is split into words at every character that is not a letter or digit and lower-cased,
+ * so "Buy GROCERIES!" indexes "buy" and "groceries". A query is split the same way and every
+ * query word must be the start of some word in the task's title or description, so "gro buy"
+ * finds it too.
+ * <p>
+ * Each word has a postings array of the dense internal numbers of the tasks containing it,
+ * with a flag byte saying whether it is in the title, the description or both. Words are found
+ * by hash for changes and through a sorted map for prefixes. A search starts from the query
+ * word with the fewest matching tasks, then narrows those candidates with each other word,
+ * either by scanning that word's postings or, if it is far more common, by checking each
+ * candidate's own words. Scoring reads only postings, so the cost grows with the number of
+ * tasks matching the query's words rather than with the number of tasks indexed.
+ * Changes cost O(words in the task); an update that keeps the title and description costs O(1).
+ * <p>
+ * The exception is a very short query word. A one-letter prefix falls back to merging the
+ * postings of every word starting with that letter, often a large share of all tasks, so at a
+ * million tasks a query made only of such words takes far longer than the usual well under a
+ * millisecond. With a longer word in the query, that word picks the candidates and the short
+ * one is mostly checked against their own words, leaving only a walk over its vocabulary.
+ * <p>
+ * Not thread-safe; TaskManager's lock rules apply. Concurrent search() calls are safe as long
+ * as nothing changes the index meanwhile.
+ */
+final class TaskTextIndex {
+
+    // Relative weight of a query word matching a whole word or only the start of one,
+    // in the title or in the description
+    private static final int TITLE_WORD = 4;
+    private static final int TITLE_PREFIX = 3;
+    private static final int DESCRIPTION_WORD = 2;
+    private static final int DESCRIPTION_PREFIX = 1;
+
+    private static final byte IN_TITLE = 1;
+    private static final byte IN_DESCRIPTION = 2;
+
+    // A query word with more than this many postings per remaining candidate is checked
+    // against the candidates' own words instead of being scanned
+    private static final int SCAN_RATIO = 32;
+    // Above this many words, a task's repeated words are found with a hash map
+    private static final int LINEAR_DEDUP_LIMIT = 32;
+
+    /**
+     * One indexed task: its distinct words, where each occurs, and where the task's number
+     * sits in each word's postings (so it can be removed without searching them).
+     */
+    private static final class Doc {
+        final Task task;
+        final String[] words;
+        final byte[] fields;
+        final int[] slots;
+
+        Doc(Task task, String[] words, byte[] fields, int[] slots) {
+            this.task = task;
+            this.words = words;
+            this.fields = fields;
+            this.slots = slots;
+        }
+
+        Doc withTask(Task replacement) {
+            return new Doc(replacement, words, fields, slots);
+        }
+    }
+
+    /**
+     * The tasks containing one word, in no particular order, with where the word occurs in each.
+     */
+    private static final class Postings {
+        int[] docs = new int[4];
+        byte[] fields = new byte[4];
+        int size;
+
+        void add(int doc, byte field) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                fields = Arrays.copyOf(fields, size * 2);
+            }
+            docs[size] = doc;
+            fields[size++] = field;
+        }
+    }
+
+    private final Map<String, Postings> byWord = new HashMap<>();
+    // The same postings, sorted by word for prefix lookups
+    private final NavigableMap<String, Postings> byPrefix = new TreeMap<>();
+    private final Map<CompactId, Integer> docNumbers = new HashMap<>();
+    private Doc[] docs = new Doc[16];
+    // Each task's insertion sequence, by number, so ties are ranked without touching the task
+    private long[] sequences = new long[16];
+    // Numbers of removed tasks, reused before docs grows
+    private int[] freeNumbers = new int[16];
+    private int freeCount;
+    private int used;
+
+    TaskTextIndex(Iterable<Task> tasks) {
+        for (Task task : tasks) {
+            put(task);
+        }
+    }
+
+    int size() {
+        return docNumbers.size();
+    }
+
+    /**
+     * Adds a task, or replaces the indexed task with the same ID.
+     */
+    void put(Task task) {
+        Integer number = docNumbers.get(task.getId());
+        if (number != null) {
+            Doc old = docs[number];
+            if (old.task.getTitle().equals(task.getTitle()) && Objects.equals(old.task.getDescription(), task.getDescription())) {
+                docs[number] = old.withTask(task);
+                return;
+            }
+            remove(task.getId());
+        }
+        add(task);
+    }
+
+    private void add(Task task) {
+        List<String> title = tokenize(task.getTitle());
+        List<String> description = tokenize(task.getDescription());
+        String[] words = new String[title.size() + description.size()];
+        byte[] fields = new byte[words.length];
+        int count = 0;
+        count = collect(title, IN_TITLE, words, fields, count);
+        count = collect(description, IN_DESCRIPTION, words, fields, count);
+        words = Arrays.copyOf(words, count);
+        fields = Arrays.copyOf(fields, count);
+
+        int number;
+        if (freeCount > 0) {
+            number = freeNumbers[--freeCount];
+        } else {
+            if (used == docs.length) {
+                docs = Arrays.copyOf(docs, used * 2);
+                sequences = Arrays.copyOf(sequences, used * 2);
+            }
+            number = used++;
+        }
+        int[] slots = new int[count];
+        for (int i = 0; i < count; i++) {
+            Postings list = byWord.get(words[i]);
+            if (list == null) {
+                list = new Postings();
+                byWord.put(words[i], list);
+                byPrefix.put(words[i], list);
+            }
+            slots[i] = list.size;
+            list.add(number, fields[i]);
+        }
+        docs[number] = new Doc(task, words, fields, slots);
+        sequences[number] = task.getSequence();
+        docNumbers.put(task.getId(), number);
+    }
+
+    /**
+     * Appends words not seen yet and marks repeated ones as also being in this field.
+     * Most tasks have few words, so a linear scan beats a set until there are many.
+     */
+    private static int collect(List<String> found, byte field, String[] words, byte[] fields, int count) {
+        Map<String, Integer> seen = null;
+        if (words.length > LINEAR_DEDUP_LIMIT) {
+            seen = new HashMap<>();
+            for (int i = 0; i < count; i++) {
+                seen.put(words[i], i);
+            }
+        }
+        for (String word : found) {
+            int at = seen != null ? seen.getOrDefault(word, -1) : linearIndexOf(words, count, word);
+            if (at >= 0) {
+                fields[at] |= field;
+                continue;
+            }
+            if (seen != null) {
+                seen.put(word, count);
+            }
+            words[count] = word;
+            fields[count++] = field;
+        }
+        return count;
+    }
+
+    private static int linearIndexOf(String[] words, int count, String word) {
+        for (int i = 0; i < count; i++) {
+            if (words[i].equals(word)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Removes a task by ID, if it is indexed.
+     */
+    void remove(CompactId id) {
+        Integer number = docNumbers.remove(id);
+        if (number == null) {
+            return;
+        }
+        Doc doc = docs[number];
+        for (int i = 0; i < doc.words.length; i++) {
+            Postings list = byWord.get(doc.words[i]);
+            // Fill the hole with the last entry and tell that task where it moved
+            int last = --list.size;
+            int slot = doc.slots[i];
+            if (slot != last) {
+                list.docs[slot] = list.docs[last];
+                list.fields[slot] = list.fields[last];
+                Doc moved = docs[list.docs[slot]];
+                moved.slots[indexOfWord(moved, doc.words[i])] = slot;
+            }
+            if (list.size == 0) {
+                byWord.remove(doc.words[i]);
+                byPrefix.remove(doc.words[i]);
+            }
+        }
+        docs[number] = null;
+        if (freeCount == freeNumbers.length) {
+            freeNumbers = Arrays.copyOf(freeNumbers, freeCount * 2);
+        }
+        freeNumbers[freeCount++] = number;
+    }
+
+    private static int indexOfWord(Doc doc, String word) {
+        for (int i = 0; i < doc.words.length; i++) {
+            if (doc.words[i].equals(word)) {
+                return i;
+            }
+        }
+        throw new IllegalStateException("Word " + word + " missing from its task");
+    }
+
+    /**
+     * Finds the tasks containing every query word (as a whole word or the start of one),
+     * best match first: words in the title outrank words in the description, whole words
+     * outrank prefixes, and rarer words count for more. Ties keep insertion order.
+     */
+    List<Task> search(String query, int limit) {
+        Candidates candidates = limit <= 0 ? null : match(query);
+        if (candidates == null) {
+            return new ArrayList<>();
+        }
+
+        // The lowest-ranked of the best matches so far is at the head
+        PriorityQueue<ScoredTask> best = new PriorityQueue<>(Math.min(limit, 1024) + 1);
+        for (int slot = 0; slot < candidates.keys.length; slot++) {
+            if (candidates.keys[slot] <= 0) {
+                continue;
+            }
+            double score = candidates.scores[slot];
+            // Most candidates cannot beat the worst kept match, so skip them before reading their sequence
+            if (best.size() == limit && score < best.peek().score) {
+                continue;
+            }
+            int doc = candidates.keys[slot] - 1;
+            ScoredTask scored = new ScoredTask(doc, sequences[doc], score);
+            if (best.size() < limit) {
+                best.add(scored);
+            } else if (scored.compareTo(best.peek()) > 0) {
+                best.poll();
+                best.add(scored);
+            }
+        }
+        List<ScoredTask> ranked = new ArrayList<>(best);
+        Collections.sort(ranked, Collections.reverseOrder());
+        List<Task> results = new ArrayList<>(ranked.size());
+        for (ScoredTask scored : ranked) {
+            results.add(docs[scored.doc].task);
+        }
+        return results;
+    }
+
+    /**
+     * Finds the tasks containing every query word, in no particular order.
+     */
+    List<Task> findAll(String query) {
+        Candidates candidates = match(query);
+        List<Task> results = new ArrayList<>(candidates == null ? 0 : candidates.live);
+        if (candidates != null) {
+            for (int key : candidates.keys) {
+                if (key > 0) {
+                    results.add(docs[key - 1].task);
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Gets an upper bound on the number of tasks matching a query, in O(words matching its
+     * prefixes): the matches of its rarest word. Returns 0 for a query without words.
+     */
+    long estimateMatches(String query) {
+        long fewest = Long.MAX_VALUE;
+        for (String word : tokenize(query)) {
+            fewest = Math.min(fewest, countWithPrefix(word));
+        }
+        return fewest == Long.MAX_VALUE ? 0 : fewest;
+    }
+
+    private long countWithPrefix(String word) {
+        long matches = 0;
+        for (Postings list : withPrefix(word).values()) {
+            matches += list.size;
+        }
+        return matches;
+    }
+
+    /**
+     * Scores every task containing all the query words, or returns null if there are none.
+     */
+    private Candidates match(String query) {
+        String[] words = tokenize(query).stream().distinct().toArray(String[]::new);
+        if (words.length == 0) {
+            return null;
+        }
+        long[] matches = new long[words.length];
+        Integer[] order = new Integer[words.length];
+        for (int q = 0; q < words.length; q++) {
+            matches[q] = countWithPrefix(words[q]);
+            if (matches[q] == 0) {
+                return null;
+            }
+            order[q] = q;
+        }
+        // Rarest word first: it picks the candidates, the others only narrow them down
+        Arrays.sort(order, (a, b) -> Long.compare(matches[a], matches[b]));
+
+        Candidates candidates = new Candidates((int) Math.min(matches[order[0]], Integer.MAX_VALUE / 4));
+        for (int k = 0; k < words.length; k++) {
+            int q = order[k];
+            double rarity = Math.log(1.0 + (double) docNumbers.size() / matches[q]);
+            if (k == 0 || matches[q] <= (long) SCAN_RATIO * candidates.live) {
+                for (Map.Entry<String, Postings> entry : withPrefix(words[q]).entrySet()) {
+                    boolean whole = entry.getKey().length() == words[q].length();
+                    Postings list = entry.getValue();
+                    for (int i = 0; i < list.size; i++) {
+                        candidates.offer(list.docs[i], weight(list.fields[i], whole), k == 0);
+                    }
+                }
+            } else {
+                for (int slot = 0; slot < candidates.keys.length; slot++) {
+                    if (candidates.keys[slot] > 0) {
+                        candidates.pending[slot] = bestWeight(docs[candidates.keys[slot] - 1], words[q]);
+                    }
+                }
+            }
+            candidates.settle(rarity);
+            if (candidates.live == 0) {
+                return null;
+            }
+        }
+        return candidates;
+    }
+
+    private NavigableMap<String, Postings> withPrefix(String prefix) {
+        return byPrefix.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+    }
+
+    private static int weight(byte fields, boolean whole) {
+        if ((fields & IN_TITLE) != 0) {
+            return whole ? TITLE_WORD : TITLE_PREFIX;
+        }
+        return whole ? DESCRIPTION_WORD : DESCRIPTION_PREFIX;
+    }
+
+    /**
+     * Gets the weight of the best match for a query word among a task's words, or 0 if none.
+     */
+    private static int bestWeight(Doc doc, String query) {
+        int best = 0;
+        for (int i = 0; i < doc.words.length; i++) {
+            if (doc.words[i].startsWith(query)) {
+                best = Math.max(best, weight(doc.fields[i], doc.words[i].length() == query.length()));
+            }
+        }
+        return best;
+    }
+
+    /**
+     * The tasks still matching every query word seen so far, with their scores: an open
+     * addressing table from task number (plus one, so 0 is free) to score. Each query word's
+     * matches are first collected in pending, then settle() adds them to the scores and drops
+     * the tasks it did not match.
+     */
+    private static final class Candidates {
+        // A dropped task; its slot stays taken so later lookups still probe past it
+        private static final int DROPPED = -1;
+
+        final int[] keys;
+        final double[] scores;
+        final int[] pending;
+        private final int mask;
+        int live;
+
+        Candidates(int expected) {
+            int capacity = Integer.highestOneBit(Math.max(expected, 8) * 2 - 1) * 2;
+            keys = new int[capacity];
+            scores = new double[capacity];
+            pending = new int[capacity];
+            mask = capacity - 1;
+        }
+
+        /**
+         * Records a match of the current word; only the first word may add new candidates.
+         */
+        void offer(int doc, int weight, boolean mayAdd) {
+            int key = doc + 1;
+            int hash = key * 0x9E3779B9;
+            for (int slot = (hash ^ hash >>> 16) & mask; ; slot = (slot + 1) & mask) {
+                if (keys[slot] == key) {
+                    pending[slot] = Math.max(pending[slot], weight);
+                    return;
+                }
+                if (keys[slot] == 0) {
+                    if (mayAdd) {
+                        keys[slot] = key;
+                        pending[slot] = weight;
+                        live++;
+                    }
+                    return;
+                }
+            }
+        }
+
+        void settle(double rarity) {
+            for (int slot = 0; slot < keys.length; slot++) {
+                if (keys[slot] <= 0) {
+                    continue;
+                }
+                if (pending[slot] == 0) {
+                    keys[slot] = DROPPED;
+                    live--;
+                } else {
+                    scores[slot] += pending[slot] * rarity;
+                    pending[slot] = 0;
+                }
+            }
+        }
+    }
+
+    private static final class ScoredTask implements Comparable<ScoredTask> {
+        final int doc;
+        final long sequence;
+        final double score;
+
+        ScoredTask(int doc, long sequence, double score) {
+            this.doc = doc;
+            this.sequence = sequence;
+            this.score = score;
+        }
+
+        // Lower score ranks lower; among equal scores, the later-added task ranks lower
+        @Override
+        public int compareTo(ScoredTask other) {
+            int c = Double.compare(score, other.score);
+            return c != 0 ? c : Long.compare(other.sequence, sequence);
+        }
+    }
+
+    /**
+     * Checks if every query word starts some word of the task's title or description,
+     * exactly as search() decides; for matching single tasks without an index.
+     */
+    static boolean matches(Task task, List<String> queryWords) {
+        if (queryWords.isEmpty()) {
+            return true;
+        }
+        List<String> words = tokenize(task.getTitle());
+        words.addAll(tokenize(task.getDescription()));
+        for (String query : queryWords) {
+            boolean found = false;
+            for (String word : words) {
+                if (word.startsWith(query)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Splits text into lower-case words of letters and digits.
+     */
+    static List<String> tokenize(String text) {
+        List<String> words = new ArrayList<>();
+        if (text == null) {
+            return words;
+        }
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i < text.length(); ) {
+            int c = text.codePointAt(i);
+            i += Character.charCount(c);
+            if (Character.isLetterOrDigit(c)) {
+                word.appendCodePoint(Character.toLowerCase(c));
+            } else if (word.length() > 0) {
+                words.add(word.toString());
+                word.setLength(0);
+            }
+        }
+        if (word.length() > 0) {
+            words.add(word.toString());
+        }
+        return words;
+    }
+}
@@ -0,0 +1,610 @@
+package taskbuddy;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streams tasks between a TaskManager and CSV, JSON lines or todo.txt files.
+ * <p>
+ * Files are read and written one record at a time through buffered channels, so memory use
+ * does not grow with the file. Imported rows are collected into batches of BATCH_SIZE and
+ * added with TaskManager.addTasks, which applies the same rules as addTask without printing
+ * per row. A bad row is recorded in the ImportReport and skipped; it never aborts the import.
+ * Imported tasks get new IDs, so files from other systems cannot clash with existing tasks.
+ */
+public final class TaskTransfer {
+
+    static final int BATCH_SIZE = 1000;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final String[] FIELDS = {"id", "title", "description", "dueDate", "priority", "status", "category"};
+
+    private TaskTransfer() {
+    }
+
+    /**
+     * Imports every task in a file. Categories that do not exist yet are created.
+     * @return which rows were imported and why any others were rejected.
+     * @throws IOException if the file cannot be read, or is not in the given format at all.
+     */
+    public static ImportReport importTasks(TaskManager manager, Path file, TaskFormat format) throws IOException {
+        ImportReport report = new ImportReport();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+             BufferedReader in = new BufferedReader(Channels.newReader(channel,
+                 StandardCharsets.UTF_8.newDecoder().onMalformedInput(CodingErrorAction.REPLACE), BUFFER_SIZE), BUFFER_SIZE)) {
+            RowReader rows = switch (format) {
+                case CSV -> new CsvReader(in);
+                case JSON_LINES -> new JsonLinesReader(in);
+                case TODO_TXT -> new TodoTxtReader(in);
+            };
+            List<TaskDraft> batch = new ArrayList<>(BATCH_SIZE);
+            long[] lines = new long[BATCH_SIZE];
+            for (Row row = rows.next(); row != null; row = rows.next()) {
+                TaskDraft draft = toDraft(row, manager, report);
+                if (draft == null) {
+                    continue;
+                }
+                lines[batch.size()] = row.line;
+                batch.add(draft);
+                if (batch.size() == BATCH_SIZE) {
+                    addBatch(manager, batch, lines, report);
+                }
+            }
+            addBatch(manager, batch, lines, report);
+        }
+        return report;
+    }
+
+    /**
+     * Writes every task to a file, replacing it if it exists.
+     * @return the number of tasks written.
+     */
+    public static int exportTasks(TaskManager manager, Path file, TaskFormat format) throws IOException {
+        int written = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+             Writer out = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(), -1), BUFFER_SIZE)) {
+            if (format == TaskFormat.CSV) {
+                out.write(String.join(",", FIELDS));
+                out.write('\n');
+            }
+            for (Task task : manager.tasks()) {
+                switch (format) {
+                    case CSV -> writeCsv(out, task);
+                    case JSON_LINES -> writeJson(out, task);
+                    case TODO_TXT -> writeTodoTxt(out, task);
+                }
+                out.write('\n');
+                written++;
+            }
+        }
+        return written;
+    }
+
+    private static void addBatch(TaskManager manager, List<TaskDraft> batch, long[] lines, ImportReport report) {
+        List<String> errors = manager.addTasks(batch);
+        for (int i = 0; i < errors.size(); i++) {
+            if (errors.get(i) == null) {
+                report.addImported();
+            } else {
+                report.addError(lines[i], errors.get(i));
+            }
+        }
+        batch.clear();
+    }
+
+    /**
+     * Converts the text fields of a row, recording an error and returning null if one cannot be
+     * parsed or the row would be rejected. The row's category is only created once the rest of
+     * it has passed TaskManager's checks.
+     */
+    private static TaskDraft toDraft(Row row, TaskManager manager, ImportReport report) {
+        if (row.error != null) {
+            report.addError(row.line, row.error);
+            return null;
+        }
+        LocalDate dueDate = null;
+        if (!isBlank(row.dueDate)) {
+            try {
+                dueDate = LocalDate.parse(row.dueDate.trim());
+            } catch (DateTimeParseException e) {
+                report.addError(row.line, "Invalid due date '" + row.dueDate + "'. Please use YYYY-MM-DD.");
+                return null;
+            }
+        }
+        Priority priority = Priority.parse(row.priority);
+        if (priority == null && !isBlank(row.priority)) {
+            report.addError(row.line, "Unknown priority '" + row.priority + "'");
+            return null;
+        }
+        Status status = Status.parse(row.status);
+        if (status == null && !isBlank(row.status)) {
+            report.addError(row.line, "Unknown status '" + row.status + "'");
+            return null;
+        }
+        // A rejected row must not leave a new (and journalled) category behind
+        String error = manager.validateFields(row.title, dueDate, priority, status);
+        if (error != null) {
+            report.addError(row.line, error);
+            return null;
+        }
+        Category category = isBlank(row.category) ? null : manager.getCategoryRegistry().getOrCreate(row.category);
+        String description = isBlank(row.description) ? null : row.description;
+        return new TaskDraft(row.title, description, dueDate, priority, status, category);
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
+    // --- Reading -----------------------------------------------------------------------------
+
+    /**
+     * The text fields of one record, before any parsing.
+     */
+    private static final class Row {
+        long line;
+        String title;
+        String description;
+        String dueDate;
+        String priority;
+        String status;
+        String category;
+        // Set instead of the fields when the record itself is malformed
+        String error;
+
+        /**
+         * Sets a field by name; names compare like Names.normalize, so "Due Date" is dueDate.
+         */
+        void set(String name, String value) {
+            switch (Names.normalize(name)) {
+                case "title" -> title = value;
+                case "description" -> description = value;
+                case "duedate", "due" -> dueDate = value;
+                case "priority" -> priority = value;
+                case "status" -> status = value;
+                case "category" -> category = value;
+                default -> {
+                    // The ID and any unknown columns are ignored
+                }
+            }
+        }
+    }
+
+    private interface RowReader {
+        /**
+         * Reads the next record, skipping blank lines.
+         * @return the record, or null at the end of the file.
+         */
+        Row next() throws IOException;
+    }
+
+    /**
+     * Reads CSV with a header row naming the columns. Quoted fields may contain commas,
+     * doubled quotes and line breaks.
+     */
+    private static final class CsvReader implements RowReader {
+        private final BufferedReader in;
+        private final String[] header;
+        private final StringBuilder field = new StringBuilder();
+        private long line = 1;
+
+        CsvReader(BufferedReader in) throws IOException {
+            this.in = in;
+            List<String> names = readRecord();
+            if (names == null) {
+                throw new IOException("The CSV file is empty");
+            }
+            this.header = names.toArray(new String[0]);
+            boolean hasTitle = false;
+            for (String name : header) {
+                hasTitle |= Names.normalize(name).equals("title");
+            }
+            if (!hasTitle) {
+                throw new IOException("The CSV header has no title column");
+            }
+        }
+
+        @Override
+        public Row next() throws IOException {
+            while (true) {
+                long start = line;
+                List<String> values = readRecord();
+                if (values == null) {
+                    return null;
+                }
+                if (values.size() == 1 && values.get(0).isBlank()) {
+                    continue;
+                }
+                Row row = new Row();
+                row.line = start;
+                if (values.size() > header.length) {
+                    row.error = "Expected " + header.length + " columns but found " + values.size();
+                    return row;
+                }
+                for (int i = 0; i < values.size(); i++) {
+                    row.set(header[i], values.get(i));
+                }
+                return row;
+            }
+        }
+
+        /**
+         * Reads one record's fields.
+         * @return the fields, or null at the end of the file.
+         */
+        private List<String> readRecord() throws IOException {
+            int c = in.read();
+            if (c < 0) {
+                return null;
+            }
+            List<String> values = new ArrayList<>(FIELDS.length);
+            boolean quoted = false;
+            field.setLength(0);
+            while (c >= 0) {
+                if (quoted) {
+                    if (c == '"') {
+                        in.mark(1);
+                        int following = in.read();
+                        if (following == '"') {
+                            field.append('"');
+                        } else {
+                            quoted = false;
+                            in.reset();
+                        }
+                    } else {
+                        if (c == '\n') {
+                            line++;
+                        }
+                        field.append((char) c);
+                    }
+                } else if (c == '"' && field.isEmpty()) {
+                    quoted = true;
+                } else if (c == ',') {
+                    values.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '\n') {
+                    line++;
+                    break;
+                } else if (c != '\r') {
+                    field.append((char) c);
+                }
+                c = in.read();
+            }
+            values.add(field.toString());
+            return values;
+        }
+    }
+
+    /**
+     * Reads one flat JSON object per line. Values may be strings, numbers, booleans or null.
+     */
+    private static final class JsonLinesReader implements RowReader {
+        private final BufferedReader in;
+        private long line;
+
+        JsonLinesReader(BufferedReader in) {
+            this.in = in;
+        }
+
+        @Override
+        public Row next() throws IOException {
+            String text;
+            do {
+                text = in.readLine();
+                line++;
+                if (text == null) {
+                    return null;
+                }
+            } while (text.isBlank());
+            Row row = new Row();
+            row.line = line;
+            try {
+                new JsonObjectParser(text, row).parse();
+            } catch (IllegalArgumentException e) {
+                row.error = "Invalid JSON: " + e.getMessage();
+            }
+            return row;
+        }
+    }
+
+    /**
+     * A minimal parser for one flat JSON object, setting each member on a Row.
+     */
+    private static final class JsonObjectParser {
+        private final String text;
+        private final Row row;
+        private int position;
+
+        JsonObjectParser(String text, Row row) {
+            this.text = text;
+            this.row = row;
+        }
+
+        void parse() {
+            skipSpace();
+            expect('{');
+            skipSpace();
+            if (peek() == '}') {
+                position++;
+            } else {
+                while (true) {
+                    skipSpace();
+                    String name = readString();
+                    skipSpace();
+                    expect(':');
+                    skipSpace();
+                    row.set(name, readValue());
+                    skipSpace();
+                    if (peek() == ',') {
+                        position++;
+                    } else {
+                        expect('}');
+                        break;
+                    }
+                }
+            }
+            skipSpace();
+            if (position < text.length()) {
+                throw new IllegalArgumentException("unexpected text after the object");
+            }
+        }
+
+        private String readValue() {
+            char c = peek();
+            if (c == '"') {
+                return readString();
+            }
+            if (c == '{' || c == '[') {
+                throw new IllegalArgumentException("nested values are not supported");
+            }
+            int start = position;
+            while (position < text.length() && ",} \t".indexOf(text.charAt(position)) < 0) {
+                position++;
+            }
+            String token = text.substring(start, position);
+            if (token.isEmpty()) {
+                throw new IllegalArgumentException("missing value at column " + (start + 1));
+            }
+            return token.equals("null") ? null : token;
+        }
+
+        private String readString() {
+            expect('"');
+            StringBuilder value = new StringBuilder();
+            while (true) {
+                if (position >= text.length()) {
+                    throw new IllegalArgumentException("unterminated string");
+                }
+                char c = text.charAt(position++);
+                if (c == '"') {
+                    return value.toString();
+                }
+                if (c != '\\') {
+                    value.append(c);
+                    continue;
+                }
+                char escape = position < text.length() ? text.charAt(position++) : '?';
+                switch (escape) {
+                    case '"', '\\', '/' -> value.append(escape);
+                    case 'b' -> value.append('\b');
+                    case 'f' -> value.append('\f');
+                    case 'n' -> value.append('\n');
+                    case 'r' -> value.append('\r');
+                    case 't' -> value.append('\t');
+                    case 'u' -> {
+                        if (position + 4 > text.length()) {
+                            throw new IllegalArgumentException("bad \\u escape");
+                        }
+                        value.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+                        position += 4;
+                    }
+                    default -> throw new IllegalArgumentException("bad escape \\" + escape);
+                }
+            }
+        }
+
+        private char peek() {
+            if (position >= text.length()) {
+                throw new IllegalArgumentException("unexpected end of line");
+            }
+            return text.charAt(position);
+        }
+
+        private void expect(char c) {
+            if (peek() != c) {
+                throw new IllegalArgumentException("expected '" + c + "' at column " + (position + 1));
+            }
+            position++;
+        }
+
+        private void skipSpace() {
+            while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+                position++;
+            }
+        }
+    }
+
+    /**
+     * Reads todo.txt lines: an optional "x " completion mark, an optional "(A) " priority and
+     * dates, then the title words. The first +project is the category, and due:, status: and
+     * pri: tags set those fields. Priority A is High, B is Medium, anything else Low.
+     */
+    private static final class TodoTxtReader implements RowReader {
+        private final BufferedReader in;
+        private long line;
+
+        TodoTxtReader(BufferedReader in) {
+            this.in = in;
+        }
+
+        @Override
+        public Row next() throws IOException {
+            String text;
+            do {
+                text = in.readLine();
+                line++;
+                if (text == null) {
+                    return null;
+                }
+            } while (text.isBlank());
+
+            Row row = new Row();
+            row.line = line;
+            String[] tokens = text.trim().split("\\s+");
+            int i = 0;
+            boolean completed = tokens[0].equals("x");
+            if (completed) {
+                i++;
+            }
+            char priorityLetter = 0;
+            if (i < tokens.length && tokens[i].matches("\\([A-Z]\\)")) {
+                priorityLetter = tokens[i++].charAt(1);
+            }
+            // Completion and creation dates are not kept
+            for (int dates = 0; dates < 2 && i < tokens.length && tokens[i].matches("\\d{4}-\\d{2}-\\d{2}"); dates++) {
+                i++;
+            }
+            StringBuilder title = new StringBuilder();
+            for (; i < tokens.length; i++) {
+                String token = tokens[i];
+                if (token.startsWith("+") && token.length() > 1 && row.category == null) {
+                    row.category = token.substring(1).replace('_', ' ');
+                } else if (token.startsWith("due:")) {
+                    row.dueDate = token.substring(4);
+                } else if (token.startsWith("status:")) {
+                    row.status = token.substring(7);
+                } else if (token.startsWith("pri:") && token.length() == 5) {
+                    priorityLetter = token.charAt(4);
+                } else {
+                    if (!title.isEmpty()) {
+                        title.append(' ');
+                    }
+                    title.append(token);
+                }
+            }
+            row.title = title.toString();
+            if (completed) {
+                row.status = Status.COMPLETED.getDisplayName();
+            } else if (row.status == null) {
+                row.status = Status.TO_DO.getDisplayName();
+            }
+            row.priority = switch (Character.toUpperCase(priorityLetter)) {
+                case 'A' -> Priority.HIGH.getDisplayName();
+                case 'B' -> Priority.MEDIUM.getDisplayName();
+                default -> Priority.LOW.getDisplayName();
+            };
+            return row;
+        }
+    }
+
+    // --- Writing -----------------------------------------------------------------------------
+
+    private static void writeCsv(Writer out, Task task) throws IOException {
+        writeCsvField(out, task.getTaskId());
+        out.write(',');
+        writeCsvField(out, task.getTitle());
+        out.write(',');
+        writeCsvField(out, task.getDescription());
+        out.write(',');
+        out.write(task.getDueDate().toString());
+        out.write(',');
+        writeCsvField(out, task.getPriority().getDisplayName());
+        out.write(',');
+        writeCsvField(out, task.getStatus().getDisplayName());
+        out.write(',');
+        writeCsvField(out, task.getCategory().getCategoryName());
+    }
+
+    private static void writeCsvField(Writer out, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        boolean needsQuotes = false;
+        for (int i = 0; i < value.length() && !needsQuotes; i++) {
+            char c = value.charAt(i);
+            needsQuotes = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!needsQuotes) {
+            out.write(value);
+            return;
+        }
+        out.write('"');
+        out.write(value.replace("\"", "\"\""));
+        out.write('"');
+    }
+
+    private static void writeJson(Writer out, Task task) throws IOException {
+        // In the same order as FIELDS
+        String[] values = {task.getTaskId(), task.getTitle(), task.getDescription(), task.getDueDate().toString(),
+            task.getPriority().getDisplayName(), task.getStatus().getDisplayName(), task.getCategory().getCategoryName()};
+        out.write('{');
+        for (int i = 0; i < FIELDS.length; i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            writeJsonString(out, FIELDS[i]);
+            out.write(':');
+            writeJsonString(out, values[i]);
+        }
+        out.write('}');
+    }
+
+    private static void writeJsonString(Writer out, String value) throws IOException {
+        if (value == null) {
+            out.write("null");
+            return;
+        }
+        out.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> out.write("\\\"");
+                case '\\' -> out.write("\\\\");
+                case '\n' -> out.write("\\n");
+                case '\r' -> out.write("\\r");
+                case '\t' -> out.write("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        out.write(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.write(c);
+                    }
+                }
+            }
+        }
+        out.write('"');
+    }
+
+    private static void writeTodoTxt(Writer out, Task task) throws IOException {
+        char priorityLetter = (char) ('A' + task.getPriority().ordinal());
+        boolean completed = task.getStatus() == Status.COMPLETED;
+        if (completed) {
+            out.write("x ");
+        } else {
+            out.write("(" + priorityLetter + ") ");
+        }
+        out.write(task.getTitle().replaceAll("\\s+", " ").trim());
+        // A project tag cannot hold spaces; import turns the underscores back into spaces
+        out.write(" +" + task.getCategory().getCategoryName().trim().replaceAll("\\s+", "_"));
+        out.write(" due:" + task.getDueDate());
+        if (completed) {
+            // Completed todo.txt tasks drop the (A) prefix, so the priority goes in a tag
+            out.write(" pri:" + priorityLetter);
+        } else if (task.getStatus() == Status.IN_PROGRESS) {
+            out.write(" status:in-progress");
+        }
+    }
+}
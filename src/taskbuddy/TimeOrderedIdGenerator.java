@@ -0,0 +1,46 @@
+package taskbuddy;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates time-ordered 128-bit IDs in the UUID version 7 layout: a millisecond
+ * timestamp and a counter in the high bits, random bits in the low bits.
+ * Use it instead of SequentialIdGenerator when IDs must stay unique across
+ * several independent TaskManager instances.
+ */
+public class TimeOrderedIdGenerator implements IdGenerator {
+
+    private static final long VERSION_BITS = 0x7000L;
+    private static final long COUNTER_MASK = 0x0FFFL;
+
+    // Last high word handed out; keeps IDs increasing even within one millisecond
+    private final AtomicLong lastHigh = new AtomicLong();
+
+    @Override
+    public CompactId nextId() {
+        // 48-bit timestamp, 4-bit version, then a 12-bit counter that absorbs clock ties
+        long high = lastHigh.accumulateAndGet(highWord(System.currentTimeMillis()), TimeOrderedIdGenerator::advance);
+        // Variant bits 10 in the top of the low word, as for any RFC 4122 UUID
+        long low = (ThreadLocalRandom.current().nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new CompactId(high, low);
+    }
+
+    private static long highWord(long millis) {
+        return (millis << 16) | VERSION_BITS;
+    }
+
+    /**
+     * Picks the next high word: the current time if the clock moved on, otherwise the last
+     * word plus one, borrowing the next millisecond once the 12-bit counter is used up.
+     */
+    private static long advance(long last, long now) {
+        if (now > last) {
+            return now;
+        }
+        if ((last & COUNTER_MASK) == COUNTER_MASK) {
+            return highWord((last >>> 16) + 1);
+        }
+        return last + 1;
+    }
+}
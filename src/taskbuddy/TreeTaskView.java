@@ -0,0 +1,181 @@
+package taskbuddy;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * A live sorted view backed by a TreeSet.
+ * HeapTaskStore updates the view in O(log n) on every add, update and remove.
+ */
+class TreeTaskView implements SortedTaskView {
+
+    private final Comparator<Task> order;
+    private final NavigableSet<Task> tasks;
+
+    TreeTaskView(Comparator<Task> order) {
+        this.order = order;
+        this.tasks = new TreeSet<>(order);
+    }
+
+    void add(Task task) {
+        tasks.add(task);
+    }
+
+    /**
+     * Adds tasks that are already in this view's order. Into an empty view the tree is built
+     * in one O(n) pass instead of n O(log n) inserts.
+     */
+    void addAllSorted(List<Task> sorted) {
+        tasks.addAll(new SortedRun(sorted, order));
+    }
+
+    /**
+     * Builds a TreeSet from tasks already in the given order, in O(n).
+     */
+    static NavigableSet<Task> treeOf(List<Task> sorted, Comparator<Task> order) {
+        return new TreeSet<>(new SortedRun(sorted, order));
+    }
+
+    /**
+     * Removes a task. Must be called before any field used by the sort order changes,
+     * otherwise the task can no longer be found in the tree.
+     */
+    void remove(Task task) {
+        tasks.remove(task);
+    }
+
+    @Override
+    public int size() {
+        return tasks.size();
+    }
+
+    @Override
+    public Task first() {
+        return tasks.isEmpty() ? null : tasks.first();
+    }
+
+    @Override
+    public Iterator<Task> iterator() {
+        return Collections.unmodifiableSet(tasks).iterator();
+    }
+
+    /**
+     * Walks offset + limit entries.
+     */
+    @Override
+    public List<Task> page(int offset, int limit) {
+        List<Task> page = new ArrayList<>(Math.max(0, Math.min(limit, tasks.size() - offset)));
+        if (offset < 0 || limit <= 0) {
+            return page;
+        }
+        Iterator<Task> it = tasks.iterator();
+        for (int skipped = 0; skipped < offset && it.hasNext(); skipped++) {
+            it.next();
+        }
+        while (page.size() < limit && it.hasNext()) {
+            page.add(it.next());
+        }
+        return page;
+    }
+
+    /**
+     * Seeks in O(log n), then streams straight from the tree.
+     */
+    @Override
+    public Iterable<Task> after(Task last) {
+        return Collections.unmodifiableSet(last == null ? tasks : tasks.tailSet(last, false));
+    }
+
+    /**
+     * Runs in O(log n + limit).
+     */
+    @Override
+    public List<Task> pageAfter(Task last, int limit) {
+        List<Task> page = new ArrayList<>();
+        if (limit <= 0) {
+            return page;
+        }
+        Iterable<Task> rest = last == null ? tasks : tasks.tailSet(last, false);
+        for (Task task : rest) {
+            if (page.size() == limit) {
+                break;
+            }
+            page.add(task);
+        }
+        return page;
+    }
+
+    @Override
+    public List<Task> toList() {
+        return new ArrayList<>(tasks);
+    }
+
+    /**
+     * A sorted list presented as a SortedSet, which is what TreeSet needs to build itself
+     * from sorted input in linear time. Only the parts TreeSet reads are supported.
+     */
+    private static final class SortedRun extends AbstractSet<Task> implements SortedSet<Task> {
+
+        private final List<Task> tasks;
+        private final Comparator<Task> order;
+
+        SortedRun(List<Task> tasks, Comparator<Task> order) {
+            this.tasks = tasks;
+            this.order = order;
+        }
+
+        @Override
+        public Iterator<Task> iterator() {
+            return Collections.unmodifiableList(tasks).iterator();
+        }
+
+        @Override
+        public int size() {
+            return tasks.size();
+        }
+
+        @Override
+        public Comparator<? super Task> comparator() {
+            return order;
+        }
+
+        @Override
+        public Task first() {
+            if (tasks.isEmpty()) {
+                throw new NoSuchElementException();
+            }
+            return tasks.get(0);
+        }
+
+        @Override
+        public Task last() {
+            if (tasks.isEmpty()) {
+                throw new NoSuchElementException();
+            }
+            return tasks.get(tasks.size() - 1);
+        }
+
+        @Override
+        public SortedSet<Task> subSet(Task fromElement, Task toElement) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public SortedSet<Task> headSet(Task toElement) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public SortedSet<Task> tailSet(Task fromElement) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,285 @@
+package taskbuddy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.After;
+import org.junit.Test;
+
+public class ConcurrentTaskManagerTest {
+
+    private static final int BATCH = 10;
+    private static final LocalDate START = LocalDate.of(2025, 1, 1);
+
+    private final ExecutorService helper = Executors.newSingleThreadExecutor();
+
+    @After
+    public void stopHelper() {
+        helper.shutdownNow();
+    }
+
+    @Test(timeout = 120000)
+    public void readersSeeWholeBatchesWhileWritersRun() throws Exception {
+        stress(new HeapTaskStore());
+    }
+
+    @Test(timeout = 120000)
+    public void columnarStoreReadsStayConsistent() throws Exception {
+        stress(new ColumnarTaskStore());
+    }
+
+    @Test(timeout = 10000)
+    public void snapshotReadsDoNotWaitForAWriter() throws Exception {
+        ConcurrentTaskManager manager = new ConcurrentTaskManager();
+        Category work = manager.getCategoryRegistry().getOrCreate("Work");
+        manager.addTask("First", null, START, Priority.LOW, Status.TO_DO, work);
+        AtomicReference<Object> seen = new AtomicReference<>();
+        // The sink runs on the writing thread while it holds the write lock
+        manager.setEventSink(event -> {
+            if (event.getType() == TaskEvent.Type.ADDED) {
+                seen.set(readElsewhere(() -> manager.getSnapshot().size() + manager.getTasksByDueDateView().size()
+                    + (manager.findTask("1") == null ? 0 : 1)));
+            }
+        });
+        manager.addTask("Second", null, START, Priority.HIGH, Status.TO_DO, work);
+        assertEquals(5, seen.get());
+    }
+
+    @Test(timeout = 10000)
+    public void heapStoreFiltersAndSortsDoNotWaitForAWriter() throws Exception {
+        filtersAndSortsDuringAWrite(new HeapTaskStore());
+    }
+
+    @Test(timeout = 10000)
+    public void columnarStoreFiltersAndSortsDoNotWaitForAWriter() throws Exception {
+        filtersAndSortsDuringAWrite(new ColumnarTaskStore());
+    }
+
+    /**
+     * Runs every filter and sort on another thread while a writer holds the write lock, and
+     * checks they finish with the same answers the indexes give once the write is done.
+     */
+    private void filtersAndSortsDuringAWrite(TaskStore store) throws Exception {
+        ConcurrentTaskManager manager = new ConcurrentTaskManager(new TaskManager(store));
+        Category work = manager.getCategoryRegistry().getOrCreate("Work");
+        Category home = manager.getCategoryRegistry().getOrCreate("Home");
+        for (int i = 0; i < 20; i++) {
+            manager.addTask("Task " + i, null, START.plusDays(i % 6), Priority.values()[i % 3], Status.values()[i % 3],
+                i % 2 == 0 ? work : home);
+        }
+        AtomicReference<Object> seen = new AtomicReference<>();
+        // The sink runs on the writing thread while it holds the write lock
+        manager.setEventSink(event -> {
+            if (event.getType() == TaskEvent.Type.ADDED) {
+                seen.set(readElsewhere(() -> filtersAndSorts(manager, work)));
+            }
+        });
+        manager.addTask("Late", null, START.plusDays(2), Priority.HIGH, Status.TO_DO, work);
+        assertEquals(filtersAndSorts(manager, work), seen.get());
+    }
+
+    private static List<String> filtersAndSorts(ConcurrentTaskManager manager, Category category) {
+        List<List<Task>> reads = List.of(manager.filterTasksByCategory(category), manager.filterTasksByStatus(Status.TO_DO),
+            manager.getCompletedTasks(), manager.getIncompleteTasks(), manager.sortTasksByDueDate(),
+            manager.sortTasksByPriority(), manager.getTasksDueBefore(START.plusDays(3)),
+            manager.getTasksDueBetween(START.plusDays(1), START.plusDays(4)), manager.getOverdueTasks(START.plusDays(4)),
+            manager.getNextTasks(7));
+        List<String> titles = new ArrayList<>();
+        for (List<Task> read : reads) {
+            StringBuilder line = new StringBuilder();
+            for (Task task : read) {
+                line.append(task.getTitle()).append(',');
+            }
+            titles.add(line.toString());
+        }
+        return titles;
+    }
+
+    @Test(timeout = 10000)
+    public void indexedReadsDoNotWaitForEachOther() throws Exception {
+        ConcurrentTaskManager manager = new ConcurrentTaskManager();
+        Category work = manager.getCategoryRegistry().getOrCreate("Work");
+        for (int i = 0; i < 20; i++) {
+            manager.addTask("Task " + i, null, START.plusDays(i), Priority.MEDIUM, Status.TO_DO, work);
+        }
+        manager.search("task", 5);
+        manager.getStatistics();
+        AtomicReference<Object> seen = new AtomicReference<>();
+        // An invalid read reports an error while it holds the read lock; others must still get in
+        manager.setEventSink(event -> seen.set(readElsewhere(() -> manager.filterTasksByCategory(work).size()
+            + manager.query(new TaskQuery().withText("task").withLimit(3)).size()
+            + manager.search("task", 2).size()
+            + manager.getStatistics().getTotal())));
+        assertTrue(manager.query(null).isEmpty());
+        assertEquals(20 + 3 + 2 + 20, seen.get());
+    }
+
+    /**
+     * Runs a read on another thread, failing the test if it cannot finish promptly.
+     */
+    private Object readElsewhere(Callable<Object> read) {
+        Future<Object> result = helper.submit(read);
+        try {
+            return result.get(5, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            result.cancel(true);
+            return e;
+        }
+    }
+
+    /**
+     * Writers add tasks in batches and complete or remove them in batches, while readers check
+     * that every read (snapshot or indexed) sees whole batches, no duplicates and sorted orders.
+     */
+    private void stress(TaskStore store) throws Exception {
+        ConcurrentTaskManager manager = new ConcurrentTaskManager(new TaskManager(store));
+        Category batches = manager.getCategoryRegistry().getOrCreate("Batches");
+        AtomicBoolean stop = new AtomicBoolean();
+        AtomicReference<String> failure = new AtomicReference<>();
+        int writers = 3;
+        int rounds = 300;
+
+        List<Thread> threads = new ArrayList<>();
+        for (int w = 0; w < writers; w++) {
+            int writer = w;
+            threads.add(new Thread(() -> {
+                for (int round = 0; round < rounds; round++) {
+                    List<TaskOperation> adds = new ArrayList<>();
+                    for (int i = 0; i < BATCH; i++) {
+                        adds.add(TaskOperation.add(new TaskDraft("Batch " + writer + " " + round, null,
+                            START.plusDays((round + i) % 60), Priority.values()[i % 3], Status.TO_DO, batches)));
+                    }
+                    List<Task> added = manager.applyBatch(adds).getAddedTasks();
+                    List<TaskOperation> next = new ArrayList<>();
+                    for (Task task : added) {
+                        next.add(round % 2 == 0 ? TaskOperation.complete(task.getId()) : TaskOperation.remove(task.getId()));
+                    }
+                    manager.applyBatch(next);
+                }
+            }));
+        }
+        List<Thread> readers = new ArrayList<>();
+        int[] reads = new int[4];
+        for (int r = 0; r < reads.length; r++) {
+            int reader = r;
+            readers.add(new Thread(() -> {
+                while (!stop.get() && failure.get() == null) {
+                    String problem = check(manager, batches);
+                    if (problem != null) {
+                        failure.compareAndSet(null, problem);
+                    }
+                    reads[reader]++;
+                }
+            }));
+        }
+        manager.getStatistics();
+        manager.search("batch", 1);
+        readers.forEach(Thread::start);
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        stop.set(true);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+
+        assertNull(failure.get());
+        for (int count : reads) {
+            assertTrue(count > 0);
+        }
+        assertEquals(writers * rounds / 2 * BATCH, manager.getTaskCount());
+        assertEquals(manager.getTaskCount(), manager.getCompletedTasks().size());
+        assertNull(check(manager, batches));
+    }
+
+    /**
+     * Returns what is wrong with one round of reads, or null if they are all consistent.
+     */
+    private static String check(ConcurrentTaskManager manager, Category batches) {
+        ImmutableTaskList snapshot = manager.getSnapshot();
+        String problem = checkWhole("snapshot", snapshot);
+        if (problem == null) {
+            problem = checkWhole("category filter", manager.filterTasksByCategory(batches));
+        }
+        if (problem == null) {
+            problem = checkWhole("completed", manager.getCompletedTasks());
+        }
+        if (problem == null) {
+            problem = checkWhole("incomplete", manager.getIncompleteTasks());
+        }
+        if (problem == null) {
+            problem = checkWhole("query", manager.query(new TaskQuery().withCategory(batches).orderBy(TaskOrder.PRIORITY)));
+        }
+        if (problem == null) {
+            problem = checkWhole("search", manager.search("batch", TaskQuery.NO_LIMIT));
+        }
+        if (problem == null) {
+            problem = checkSorted("due date sort", manager.sortTasksByDueDate(), TaskOrder.DUE_DATE);
+        }
+        if (problem == null) {
+            problem = checkSorted("priority view", manager.getTasksByPriorityView().toList(), TaskOrder.PRIORITY);
+        }
+        if (problem == null) {
+            problem = checkSorted("due between", manager.getTasksDueBetween(START, START.plusDays(30)), TaskOrder.DUE_DATE);
+        }
+        if (problem == null) {
+            problem = checkSorted("next tasks", manager.getNextTasks(25), TaskOrder.PRIORITY_THEN_DUE_DATE);
+        }
+        if (problem == null) {
+            TaskStatistics statistics = manager.getStatistics();
+            if (statistics.getTotal() % BATCH != 0 || statistics.countByStatus(Status.COMPLETED) % BATCH != 0) {
+                problem = "statistics saw part of a batch: " + statistics;
+            }
+        }
+        if (problem == null && manager.getSnapshot() == snapshot && snapshot.size() > 0
+                && manager.findTask(snapshot.get(0).getId()) == null) {
+            problem = "findTask missed a task in the latest snapshot";
+        }
+        return problem;
+    }
+
+    /**
+     * Checks that tasks come in whole batches (same title and status) with no task twice.
+     */
+    private static String checkWhole(String read, List<Task> tasks) {
+        Set<CompactId> ids = new HashSet<>();
+        Map<String, Integer> perBatch = new HashMap<>();
+        for (Task task : tasks) {
+            if (!ids.add(task.getId())) {
+                return read + " returned " + task.getId() + " twice";
+            }
+            perBatch.merge(task.getTitle() + "/" + task.getStatus(), 1, Integer::sum);
+        }
+        for (Map.Entry<String, Integer> batch : perBatch.entrySet()) {
+            if (batch.getValue() != BATCH) {
+                return read + " saw " + batch.getValue() + " tasks of " + batch.getKey();
+            }
+        }
+        return null;
+    }
+
+    private static String checkSorted(String read, List<Task> tasks, TaskOrder order) {
+        for (int i = 1; i < tasks.size(); i++) {
+            if (order.comparator().compare(tasks.get(i - 1), tasks.get(i)) > 0) {
+                return read + " is out of order at " + i;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,97 @@
+package taskbuddy;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class HeapTaskStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void snapshotLoadMatchesAddingOneByOne() throws Exception {
+        Category[] categories = {new Category(0, "Work"), new Category(1, "Home"), new Category(2, "Errands")};
+        Random random = new Random(7);
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            tasks.add(new Task(CompactId.of(i + 1), "Task " + i, i % 4 == 0 ? null : "Notes " + i,
+                LocalDate.of(2025, 1, 1).plusDays(random.nextInt(60)), Priority.fromCode(random.nextInt(3)),
+                Status.fromCode(random.nextInt(3)), categories[random.nextInt(3)], i));
+        }
+        Path file = folder.getRoot().toPath().resolve("tasks.snapshot");
+        TaskSnapshot.write(file, tasks, tasks.size());
+
+        HeapTaskStore added = new HeapTaskStore();
+        for (Task task : tasks) {
+            added.add(task);
+        }
+        HeapTaskStore loaded = new HeapTaskStore();
+        try (TaskSnapshot snapshot = TaskSnapshot.open(file)) {
+            // The snapshot numbers categories in order of first use; map them back by name
+            String[] names = snapshot.getCategoryNames();
+            Category[] dictionary = new Category[names.length];
+            for (int i = 0; i < names.length; i++) {
+                for (Category category : categories) {
+                    if (category.getCategoryName().equals(names[i])) {
+                        dictionary[i] = category;
+                    }
+                }
+            }
+            loaded.load(snapshot, dictionary, 0);
+        }
+        assertSameAnswers(added, loaded, categories);
+
+        // The bulk-built indexes must keep working as tasks change
+        for (int i = 0; i < 300; i++) {
+            CompactId id = CompactId.of(1 + random.nextInt(tasks.size()));
+            if (random.nextBoolean()) {
+                added.remove(id);
+                loaded.remove(id);
+            } else if (added.get(id) != null) {
+                LocalDate due = LocalDate.of(2025, 3, 1).plusDays(random.nextInt(10));
+                Priority priority = Priority.fromCode(random.nextInt(3));
+                Status status = Status.fromCode(random.nextInt(3));
+                added.update(id, "Changed " + i, null, due, priority, status, categories[0]);
+                loaded.update(id, "Changed " + i, null, due, priority, status, categories[0]);
+            }
+        }
+        assertSameAnswers(added, loaded, categories);
+    }
+
+    private static void assertSameAnswers(TaskStore expected, TaskStore actual, Category[] categories) {
+        assertEquals(describe(expected), describe(actual));
+        for (Status status : Status.values()) {
+            assertEquals(describe(expected.findByStatus(status)), describe(actual.findByStatus(status)));
+            assertEquals(expected.countByStatus(status), actual.countByStatus(status));
+        }
+        for (Category category : categories) {
+            assertEquals(describe(expected.findByCategory(category)), describe(actual.findByCategory(category)));
+        }
+        long from = LocalDate.of(2025, 1, 10).toEpochDay();
+        long to = LocalDate.of(2025, 1, 20).toEpochDay();
+        assertEquals(describe(expected.findDueBetween(from, to)), describe(actual.findDueBetween(from, to)));
+        assertEquals(describe(expected.findOverdue(to)), describe(actual.findOverdue(to)));
+        assertEquals(describe(expected.findIncomplete()), describe(actual.findIncomplete()));
+        assertEquals(describe(expected.findMostUrgent(50)), describe(actual.findMostUrgent(50)));
+        for (TaskOrder order : TaskOrder.values()) {
+            assertEquals(describe(expected.view(order).toList()), describe(actual.view(order).toList()));
+        }
+    }
+
+    private static List<String> describe(Iterable<Task> tasks) {
+        List<String> described = new ArrayList<>();
+        for (Task task : tasks) {
+            described.add(task.getTaskId() + "|" + task.getTitle() + "|" + task.getDescription() + "|" + task.getDueDate()
+                + "|" + task.getPriority() + "|" + task.getStatus() + "|" + task.getCategory().getCategoryName());
+        }
+        return described;
+    }
+}
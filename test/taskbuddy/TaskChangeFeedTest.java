@@ -0,0 +1,150 @@
+package taskbuddy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Flow;
+import org.junit.Test;
+
+public class TaskChangeFeedTest {
+
+    private static final LocalDate DUE = LocalDate.of(2025, 1, 1);
+
+    @Test
+    public void mergedChangeKeepsItsPlaceAndFirstSequence() {
+        TaskManager manager = new TaskManager();
+        TaskChangeFeed feed = new TaskChangeFeed(Runnable::run, 16, 16);
+        manager.setEventSink(feed);
+        Category work = manager.getCategoryRegistry().getOrCreate("Work");
+        Mirror mirror = new Mirror(Integer.MAX_VALUE);
+        feed.subscribe(mirror);
+
+        CompactId x = manager.addTask("X", null, DUE, Priority.LOW, Status.TO_DO, work).getTask().getId();
+        CompactId y = manager.addTask("Y", null, DUE, Priority.LOW, Status.TO_DO, work).getTask().getId();
+        manager.updateTask(x, "X2", null, DUE, Priority.HIGH, Status.TO_DO, work);
+        mirror.subscription.request(Long.MAX_VALUE);
+
+        assertEquals(2, mirror.changes.size());
+        TaskChange first = mirror.changes.get(0);
+        assertEquals(x, first.getTaskId());
+        assertEquals(1, first.getSequence());
+        assertEquals(TaskChange.Type.ADDED, first.getType());
+        assertNull(first.getBefore());
+        assertEquals("X2", first.getAfter().getTitle());
+        assertEquals(y, mirror.changes.get(1).getTaskId());
+        assertEquals(2, mirror.changes.get(1).getSequence());
+    }
+
+    /**
+     * Interleaves changes to several tasks while a subscriber takes nothing, then cuts the
+     * subscriber off after each possible number of deliveries and resumes it from the last
+     * sequence it processed. Every time it must end up with exactly the manager's tasks.
+     */
+    @Test
+    public void resumingAfterAnyCoalescedDeliveryMissesNothing() {
+        // The seven changes coalesce to two deliveries: X (added, then edited twice) and Y
+        for (int cut = 0; cut <= 2; cut++) {
+            TaskManager manager = new TaskManager();
+            TaskChangeFeed feed = new TaskChangeFeed(Runnable::run, 16, 16);
+            manager.setEventSink(feed);
+            Category work = manager.getCategoryRegistry().getOrCreate("Work");
+            Mirror mirror = new Mirror(cut);
+            feed.subscribe(mirror);
+
+            CompactId x = manager.addTask("X", null, DUE, Priority.LOW, Status.TO_DO, work).getTask().getId();
+            CompactId y = manager.addTask("Y", null, DUE, Priority.LOW, Status.TO_DO, work).getTask().getId();
+            manager.updateTask(x, "X2", null, DUE, Priority.HIGH, Status.TO_DO, work);
+            CompactId z = manager.addTask("Z", null, DUE, Priority.LOW, Status.TO_DO, work).getTask().getId();
+            manager.markTaskAsCompleted(y);
+            manager.removeTask(z);
+            manager.updateTask(x, "X3", "Notes", DUE, Priority.HIGH, Status.IN_PROGRESS, work);
+            mirror.subscription.request(Long.MAX_VALUE);
+            mirror.subscription.cancel();
+
+            Mirror resumed = new Mirror(Integer.MAX_VALUE, mirror.tasks);
+            feed.subscribe(resumed, mirror.lastSequence);
+            resumed.subscription.request(Long.MAX_VALUE);
+
+            Map<CompactId, String> expected = new HashMap<>();
+            for (Task task : manager.getAllTasks()) {
+                expected.put(task.getId(), describe(task));
+            }
+            Map<CompactId, String> actual = new HashMap<>();
+            for (Task task : resumed.tasks.values()) {
+                actual.put(task.getId(), describe(task));
+            }
+            assertEquals("cut after " + cut, expected, actual);
+            assertTrue(resumed.lastSequence <= feed.getLastSequence());
+        }
+    }
+
+    private static String describe(Task task) {
+        return task.getTitle() + "/" + task.getDescription() + "/" + task.getStatus() + "/v" + task.getVersion();
+    }
+
+    /**
+     * Keeps a copy of the tasks from the changes it is sent, and cancels (as if it had failed)
+     * after a given number of them. Sequences must increase, and only an add may name a new task.
+     */
+    private static final class Mirror implements Flow.Subscriber<TaskChange> {
+
+        final Map<CompactId, Task> tasks;
+        final List<TaskChange> changes = new ArrayList<>();
+        final int failAfter;
+        Flow.Subscription subscription;
+        long lastSequence;
+        boolean failed;
+
+        Mirror(int failAfter) {
+            this(failAfter, new HashMap<>());
+        }
+
+        Mirror(int failAfter, Map<CompactId, Task> tasks) {
+            this.failAfter = failAfter;
+            this.tasks = tasks;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(TaskChange change) {
+            if (failed) {
+                return;
+            }
+            if (changes.size() == failAfter) {
+                failed = true;
+                subscription.cancel();
+                return;
+            }
+            assertTrue(change.getSequence() > lastSequence);
+            changes.add(change);
+            lastSequence = change.getSequence();
+            // Like a real subscriber, it cannot apply a change to a task it has never been told about
+            boolean known = tasks.containsKey(change.getTaskId());
+            assertEquals(change.toString(), change.getType() != TaskChange.Type.ADDED, known);
+            if (change.getAfter() == null) {
+                tasks.remove(change.getTaskId());
+            } else {
+                tasks.put(change.getTaskId(), change.getAfter());
+            }
+        }
+
+        @Override
+        public void onError(Throwable cause) {
+            throw new AssertionError(cause);
+        }
+
+        @Override
+        public void onComplete() {
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package taskbuddy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static taskbuddy.TaskWorkload.START;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import org.junit.Test;
+
+public class TaskCursorTest {
+
+    @Test
+    public void tokenRoundTripKeepsThePosition() {
+        TaskManager manager = new TaskManager();
+        Category work = manager.getCategoryRegistry().getOrCreate("Work");
+        for (int i = 0; i < 30; i++) {
+            manager.addTask("Task " + i, null, START.plusDays(i % 7), Priority.values()[i % 3], Status.TO_DO, work);
+        }
+        List<TaskOrder> orders = new ArrayList<>();
+        orders.add(null);
+        orders.addAll(List.of(TaskOrder.values()));
+        for (TaskOrder order : orders) {
+            for (Task task : manager.getAllTasks()) {
+                TaskCursor cursor = TaskCursor.after(task, order);
+                TaskCursor parsed = TaskCursor.parse(cursor.toToken());
+                assertEquals(order, parsed.getOrder());
+                assertEquals(cursor.toToken(), parsed.toToken());
+                assertEquals(task.getDueDate().toEpochDay(), parsed.getDueDay());
+                assertEquals(task.getSequence(), parsed.getSequence());
+                Comparator<Task> comparator = order == null ? Comparator.comparingLong(Task::getSequence) : order.comparator();
+                for (Task other : manager.getAllTasks()) {
+                    assertEquals(comparator.compare(other, task) > 0, parsed.isBefore(other));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void malformedTokensAreRejected() {
+        String valid = TaskCursor.after(new Task(CompactId.parse("1"), "Task", null, START, Priority.HIGH, Status.TO_DO,
+            new Category(0, "Work"), 0), TaskOrder.DUE_DATE).toToken();
+        for (String token : new String[] {"garbage!!", "", "MTp4eXo6MTox", valid.substring(0, valid.length() - 2)}) {
+            try {
+                TaskCursor.parse(token);
+                fail("Parsed " + token);
+            } catch (IllegalArgumentException expected) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void foreignTokensAreRejected() {
+        // Well-formed Base64, but not a cursor this version of TaskCursor would write
+        String[] positions = {"2:DUE_DATE:20089:0:5", "1:SIDEWAYS:20089:0:5", "1:DUE_DATE:20089:3:5", "1:DUE_DATE:20089:-1:5",
+            "1:DUE_DATE:soon:0:5", "1:DUE_DATE:20089:0", "1:DUE_DATE:20089:0:5:6", "1:due_date:20089:0:5", "{\"after\":5}"};
+        for (String position : positions) {
+            String token = Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.US_ASCII));
+            try {
+                TaskCursor.parse(token);
+                fail("Parsed " + position);
+            } catch (IllegalArgumentException expected) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void cursorOnlyResumesTheOrderItCameFrom() {
+        TaskManager manager = new TaskManager();
+        List<String> errors = new ArrayList<>();
+        manager.setEventSink(event -> errors.add(event.getDetail()));
+        Category work = manager.getCategoryRegistry().getOrCreate("Work");
+        for (int i = 0; i < 10; i++) {
+            manager.addTask("Task " + i, null, START.plusDays(9 - i), Priority.values()[i % 3], Status.TO_DO, work);
+        }
+        List<TaskOrder> orders = new ArrayList<>();
+        orders.add(null);
+        orders.addAll(List.of(TaskOrder.values()));
+        for (TaskOrder from : orders) {
+            String next = manager.queryPage(new TaskQuery().orderBy(from).withLimit(4), null).getNextCursor();
+            for (TaskOrder to : orders) {
+                errors.clear();
+                TaskPage page = manager.queryPage(new TaskQuery().orderBy(to).withLimit(4), next);
+                if (from == to) {
+                    assertEquals(4, page.getTasks().size());
+                    assertTrue(errors.isEmpty());
+                } else {
+                    assertTrue(from + " cursor on " + to, page.getTasks().isEmpty());
+                    assertNull(page.getNextCursor());
+                    assertEquals(List.of("Page cursor belongs to a listing in a different order."), errors);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void badCursorsAreReportedAsErrors() {
+        TaskManager manager = new TaskManager();
+        List<String> errors = new ArrayList<>();
+        manager.setEventSink(event -> errors.add(event.getDetail()));
+        Category work = manager.getCategoryRegistry().getOrCreate("Work");
+        for (int i = 0; i < 10; i++) {
+            manager.addTask("Task " + i, null, START, Priority.LOW, Status.TO_DO, work);
+        }
+        errors.clear();
+        String next = manager.queryPage(new TaskQuery().withLimit(5), null).getNextCursor();
+
+        assertTrue(manager.queryPage(new TaskQuery().orderBy(TaskOrder.DUE_DATE).withLimit(5), next).getTasks().isEmpty());
+        assertTrue(manager.queryPage(new TaskQuery().withLimit(5), "garbage!!").getTasks().isEmpty());
+        assertEquals(List.of("Page cursor belongs to a listing in a different order.", "Invalid page cursor."), errors);
+    }
+
+    @Test
+    public void heapStorePagesStayStableWhileTasksChange() {
+        pageWhileEditing(TaskWorkload.Store.HEAP.newManager());
+    }
+
+    @Test
+    public void columnarStorePagesStayStableWhileTasksChange() {
+        pageWhileEditing(TaskWorkload.Store.COLUMNAR.newManager());
+    }
+
+    /**
+     * Pages through random queries while adding and removing tasks between pages, and checks
+     * that no task shows up twice or out of order and that every task present throughout shows up.
+     */
+    private static void pageWhileEditing(TaskManager manager) {
+        Random random = new Random(5);
+        Category[] categories = TaskWorkload.categories(manager, 4);
+        List<TaskDraft> drafts = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            drafts.add(TaskWorkload.randomDraft(random, categories, 60));
+        }
+        manager.addTasks(drafts);
+
+        for (int run = 0; run < 100; run++) {
+            TaskQuery query = new TaskQuery().withLimit(1 + random.nextInt(40));
+            if (random.nextInt(3) == 0) {
+                query = query.withStatus(Status.values()[random.nextInt(3)]);
+            }
+            if (random.nextInt(3) == 0) {
+                query = query.withCategory(categories[random.nextInt(categories.length)]);
+            }
+            if (random.nextInt(4) == 0) {
+                query = query.withIncompleteOnly(true);
+            }
+            if (random.nextInt(3) == 0) {
+                int from = random.nextInt(60);
+                query = query.withDueBetween(START.plusDays(from), START.plusDays(from + random.nextInt(20)));
+            }
+            int order = random.nextInt(TaskOrder.values().length + 1);
+            if (order > 0) {
+                query = query.orderBy(TaskOrder.values()[order - 1]);
+            }
+            Comparator<Task> comparator = order == 0 ? Comparator.comparingLong(Task::getSequence) : query.getOrder().comparator();
+
+            Set<CompactId> before = new HashSet<>();
+            for (Task task : manager.getAllTasks()) {
+                before.add(task.getId());
+            }
+            List<Task> seen = new ArrayList<>();
+            String cursor = null;
+            do {
+                TaskPage page = manager.queryPage(query, cursor);
+                cursor = page.getNextCursor();
+                if (cursor != null) {
+                    assertEquals(query.getLimit(), page.getTasks().size());
+                }
+                seen.addAll(page.getTasks());
+                // Adds and removes, but no edits that would move a task across the cursor
+                for (int k = 0; k < 3; k++) {
+                    if (random.nextBoolean()) {
+                        manager.addTasks(List.of(TaskWorkload.randomDraft(random, categories, 60)));
+                    } else {
+                        List<Task> all = manager.getAllTasks();
+                        manager.removeTask(all.get(random.nextInt(all.size())).getId());
+                    }
+                }
+            } while (cursor != null);
+
+            Set<CompactId> ids = new HashSet<>();
+            for (int i = 0; i < seen.size(); i++) {
+                assertTrue(query.matches(seen.get(i)));
+                assertTrue("Seen twice: " + seen.get(i), ids.add(seen.get(i).getId()));
+                if (i > 0) {
+                    assertTrue(query + " out of order at " + i, comparator.compare(seen.get(i - 1), seen.get(i)) < 0);
+                }
+            }
+            for (Task task : manager.getAllTasks()) {
+                if (before.contains(task.getId()) && query.matches(task)) {
+                    assertTrue(query + " skipped " + task, ids.contains(task.getId()));
+                }
+            }
+        }
+        assertNull(manager.queryPage(new TaskQuery().withLimit(TaskQuery.NO_LIMIT), null).getNextCursor());
+        assertFalse(manager.queryPage(new TaskQuery().withLimit(1), null).getTasks().isEmpty());
+    }
+}
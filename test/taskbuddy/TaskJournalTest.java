@@ -0,0 +1,191 @@
+package taskbuddy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TaskJournalTest {
+
+    // A record's header (length, checksum, op), ID and title length come before the title
+    private static final int BYTES_BEFORE_TITLE = 4 + 4 + 1 + 16 + 4;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void replayRestoresEveryKindOfChange() throws Exception {
+        Path dir = folder.getRoot().toPath();
+        TaskManager manager = new TaskManager();
+        manager.attachJournal(new TaskJournal(dir, 8, 0, 1000));
+        Category work = manager.getCategoryRegistry().getOrCreate("Work");
+        for (int i = 0; i < 20; i++) {
+            manager.addTask("Task " + i, i % 2 == 0 ? null : "Notes", LocalDate.of(2025, 1, 1).plusDays(i),
+                Priority.MEDIUM, Status.TO_DO, work);
+        }
+        manager.removeTask("4");
+        manager.markTaskAsCompleted("5");
+        manager.updateTask("6", "Six", null, LocalDate.of(2025, 3, 1), Priority.HIGH, Status.IN_PROGRESS, work);
+        manager.renameCategory(work, "Job");
+        manager.closeJournal();
+
+        assertEquals(describe(manager), describe(replay(dir)));
+    }
+
+    @Test
+    public void nullDescriptionFitsWhenTheBufferIsNearlyFull() throws Exception {
+        Path dir = folder.getRoot().toPath();
+        TaskManager manager = new TaskManager();
+        manager.attachJournal(new TaskJournal(dir, 1000, 0, 1000));
+        Category work = manager.getCategoryRegistry().getOrCreate("Work");
+        // Leaves two bytes in the 64 KB buffer, too few for the null description's length
+        String title = "x".repeat(64 * 1024 - BYTES_BEFORE_TITLE - 2);
+        assertTrue(manager.addTask(title, null, LocalDate.of(2025, 1, 1), Priority.HIGH, Status.TO_DO, work).isSuccess());
+        assertTrue(manager.addTask("Next", null, LocalDate.of(2025, 1, 2), Priority.LOW, Status.TO_DO, work).isSuccess());
+        manager.closeJournal();
+
+        TaskManager replayed = replay(dir);
+        assertEquals(describe(manager), describe(replayed));
+        assertNull(replayed.getAllTasks().get(0).getDescription());
+    }
+
+    @Test
+    public void batchWithNullDescriptionsReplaysAsAWhole() throws Exception {
+        Path dir = folder.getRoot().toPath();
+        TaskManager manager = new TaskManager();
+        manager.attachJournal(new TaskJournal(dir, 1000, 0, 1000));
+        Category work = manager.getCategoryRegistry().getOrCreate("Work");
+        String title = "x".repeat(64 * 1024 - BYTES_BEFORE_TITLE - 2 - 4 - 1);
+        List<TaskOperation> operations = new ArrayList<>();
+        operations.add(TaskOperation.add(new TaskDraft(title, null, LocalDate.of(2025, 1, 1), Priority.HIGH, Status.TO_DO, work)));
+        operations.add(TaskOperation.add(new TaskDraft("Second", null, LocalDate.of(2025, 1, 2), Priority.LOW, Status.TO_DO, work)));
+        assertTrue(manager.applyBatch(operations).isApplied());
+        manager.closeJournal();
+
+        assertEquals(describe(manager), describe(replay(dir)));
+    }
+
+    @Test
+    public void addTasksIsJournalledAsOneRecord() throws Exception {
+        Path dir = folder.getRoot().toPath();
+        TaskManager manager = new TaskManager();
+        manager.attachJournal(new TaskJournal(dir, 1000, 0, 1000));
+        Category work = manager.getCategoryRegistry().getOrCreate("Work");
+        List<TaskDraft> drafts = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            drafts.add(new TaskDraft("Task " + i, null, LocalDate.of(2025, 1, 1).plusDays(i), Priority.LOW, Status.TO_DO, work));
+        }
+        drafts.add(new TaskDraft("", null, LocalDate.of(2025, 1, 1), Priority.LOW, Status.TO_DO, work));
+        manager.addTasks(drafts);
+        manager.closeJournal();
+
+        TaskManager replayed = new TaskManager();
+        assertEquals(1, replayed.attachJournal(new TaskJournal(dir)));
+        replayed.closeJournal();
+        assertEquals(describe(manager), describe(replayed));
+    }
+
+    @Test
+    public void batchIsNotAppliedWhenTheJournalFails() throws Exception {
+        Path dir = folder.getRoot().toPath();
+        TaskManager manager = new TaskManager();
+        TaskJournal journal = new TaskJournal(dir, 1000, 0, 1000);
+        manager.attachJournal(journal);
+        Category work = manager.getCategoryRegistry().getOrCreate("Work");
+        manager.addTask("Keep", null, LocalDate.of(2025, 1, 1), Priority.LOW, Status.TO_DO, work);
+        List<String> errors = new ArrayList<>();
+        manager.setEventSink(event -> {
+            if (event.getType() == TaskEvent.Type.ERROR) {
+                errors.add(event.getDetail());
+            }
+        });
+        // Closing the journal behind the manager's back makes every later append fail
+        journal.close();
+
+        List<TaskOperation> operations = new ArrayList<>();
+        operations.add(TaskOperation.add(new TaskDraft("New", null, LocalDate.of(2025, 1, 2), Priority.HIGH, Status.TO_DO, work)));
+        operations.add(TaskOperation.complete(CompactId.parse("1")));
+        BatchResult result = manager.applyBatch(operations);
+        assertFalse(result.isApplied());
+        assertEquals(1, manager.getTaskCount());
+        assertEquals(Status.TO_DO, manager.findTask("1").getStatus());
+        assertEquals("Could not write to task journal: Task journal is closed", result.getErrors().get(0));
+        assertEquals(result.getErrors(), errors);
+
+        List<TaskDraft> drafts = new ArrayList<>();
+        drafts.add(new TaskDraft("Also new", null, LocalDate.of(2025, 1, 3), Priority.HIGH, Status.TO_DO, work));
+        assertNotNull(manager.addTasks(drafts).get(0));
+        assertEquals(1, manager.getTaskCount());
+    }
+
+    @Test
+    public void singleChangesAreNotMadeWhenTheJournalFails() throws Exception {
+        Path dir = folder.getRoot().toPath();
+        TaskManager manager = new TaskManager();
+        TaskJournal journal = new TaskJournal(dir, 1000, 0, 1000);
+        manager.attachJournal(journal);
+        Category work = manager.getCategoryRegistry().getOrCreate("Work");
+        manager.addTask("Keep", null, LocalDate.of(2025, 1, 1), Priority.LOW, Status.TO_DO, work);
+        List<TaskEvent.Type> events = new ArrayList<>();
+        manager.setEventSink(event -> events.add(event.getType()));
+        List<String> before = describe(manager);
+        journal.close();
+
+        List<TaskResult> results = new ArrayList<>();
+        results.add(manager.addTask("New", null, LocalDate.of(2025, 1, 2), Priority.HIGH, Status.TO_DO, work));
+        results.add(manager.updateTask("1", "Changed", null, LocalDate.of(2025, 1, 2), Priority.HIGH, Status.TO_DO, work));
+        results.add(manager.patchTask(CompactId.parse("1"), new TaskPatch().withTitle("Patched")));
+        results.add(manager.markTaskAsCompleted("1"));
+        results.add(manager.removeTask("1"));
+        for (TaskResult result : results) {
+            assertEquals(TaskResult.Outcome.NOT_SAVED, result.getOutcome());
+            assertEquals("Could not write to task journal: Task journal is closed", result.getMessage());
+        }
+        assertEquals(before, describe(manager));
+        assertEquals(1, manager.getSnapshot().size());
+        // Only the errors were reported, never the changes
+        assertEquals(List.of(TaskEvent.Type.ERROR, TaskEvent.Type.ERROR, TaskEvent.Type.ERROR,
+            TaskEvent.Type.ERROR, TaskEvent.Type.ERROR), events);
+    }
+
+    @Test
+    public void secondJournalOnTheSameDirectoryIsRefused() throws Exception {
+        Path dir = folder.getRoot().toPath();
+        TaskJournal first = new TaskJournal(dir, 1000, 0, 1000);
+        try {
+            new TaskJournal(dir, 1000, 0, 1000);
+            fail("Opened a journal that is already in use");
+        } catch (IOException expected) {
+            assertTrue(expected.getMessage().contains("already in use"));
+        }
+        first.close();
+        new TaskJournal(dir, 1000, 0, 1000).close();
+    }
+
+    private static TaskManager replay(Path dir) throws Exception {
+        TaskManager replayed = new TaskManager();
+        replayed.attachJournal(new TaskJournal(dir));
+        replayed.closeJournal();
+        return replayed;
+    }
+
+    private static List<String> describe(TaskManager manager) {
+        List<String> tasks = new ArrayList<>();
+        for (Task task : manager.getAllTasks()) {
+            tasks.add(task.getTaskId() + "|" + task.getTitle() + "|" + task.getDescription() + "|" + task.getDueDate()
+                + "|" + task.getPriority() + "|" + task.getStatus() + "|" + task.getCategory().getCategoryName());
+        }
+        return tasks;
+    }
+}
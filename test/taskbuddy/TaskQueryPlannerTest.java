@@ -0,0 +1,202 @@
+package taskbuddy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static taskbuddy.TaskWorkload.START;
+import static taskbuddy.TaskWorkload.pick;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import org.junit.Test;
+
+public class TaskQueryPlannerTest {
+
+    private static final int TASKS = 3000;
+
+    @Test
+    public void heapStoreAnswersMatchAFullScan() {
+        checkAgainstFullScan(TaskWorkload.Store.HEAP.newManager());
+    }
+
+    @Test
+    public void columnarStoreAnswersMatchAFullScan() {
+        checkAgainstFullScan(TaskWorkload.Store.COLUMNAR.newManager());
+    }
+
+    @Test
+    public void heapStorePicksTheNarrowestPath() {
+        checkAccessPaths(TaskWorkload.Store.HEAP.newManager());
+    }
+
+    @Test
+    public void columnarStorePicksTheNarrowestPath() {
+        checkAccessPaths(TaskWorkload.Store.COLUMNAR.newManager());
+    }
+
+    /**
+     * Fills a store where each criterion but one is common, and checks that every query shape
+     * is driven from the index its rare criterion narrows down.
+     */
+    private static void checkAccessPaths(TaskManager manager) {
+        Category common = manager.getCategoryRegistry().getOrCreate("Common");
+        Category rare = manager.getCategoryRegistry().getOrCreate("Rare");
+        List<TaskDraft> drafts = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            // 10 tasks in progress, 10 in the rare category, 3 a day over the year, 4 about zebras
+            drafts.add(new TaskDraft(i % 250 == 7 ? "Feed the zebra" : "Routine " + i, null, START.plusDays(i / 3),
+                Priority.values()[i % 3], i % 100 == 1 ? Status.IN_PROGRESS : Status.TO_DO, i % 100 == 2 ? rare : common));
+        }
+        manager.addTasks(drafts);
+
+        assertAccess(manager, TaskQueryPlanner.Access.SCAN, new TaskQuery());
+        // No index on priority
+        assertAccess(manager, TaskQueryPlanner.Access.SCAN, new TaskQuery().withPriority(Priority.HIGH));
+        assertAccess(manager, TaskQueryPlanner.Access.STATUS, new TaskQuery().withStatus(Status.IN_PROGRESS));
+        assertAccess(manager, TaskQueryPlanner.Access.STATUS, new TaskQuery().withStatus(Status.IN_PROGRESS).withCategory(common));
+        assertAccess(manager, TaskQueryPlanner.Access.CATEGORY, new TaskQuery().withCategory(rare).withStatus(Status.TO_DO));
+        assertAccess(manager, TaskQueryPlanner.Access.DUE_RANGE, new TaskQuery().withDueBetween(START.plusDays(40), START.plusDays(41)));
+        assertAccess(manager, TaskQueryPlanner.Access.DUE_RANGE,
+            new TaskQuery().withDueBetween(START.plusDays(40), START.plusDays(50)).orderBy(TaskOrder.DUE_DATE));
+        assertAccess(manager, TaskQueryPlanner.Access.TEXT, new TaskQuery().withText("zebra"));
+        assertAccess(manager, TaskQueryPlanner.Access.TEXT, new TaskQuery().withText("zeb").withStatus(Status.TO_DO));
+        assertAccess(manager, TaskQueryPlanner.Access.ORDERED_VIEW, new TaskQuery().orderBy(TaskOrder.PRIORITY).withLimit(5));
+        assertAccess(manager, TaskQueryPlanner.Access.ORDERED_VIEW,
+            new TaskQuery().withCategory(common).orderBy(TaskOrder.DUE_DATE).withLimit(10));
+        // Read in order, so it stops after the page instead of sorting every task
+        assertTrue(manager.explain(new TaskQuery().orderBy(TaskOrder.PRIORITY).withLimit(5)).ordered);
+    }
+
+    private static void assertAccess(TaskManager manager, TaskQueryPlanner.Access expected, TaskQuery query) {
+        TaskQueryPlanner.Plan plan = manager.explain(query);
+        assertEquals(query + " " + plan, expected, plan.access);
+        assertEquals(query.toString(), ids(fullScan(manager, query)), ids(manager.query(query)));
+    }
+
+    /**
+     * Runs random queries on a store with random tasks and edits, and checks each against
+     * filtering and sorting every task: the same tasks, in the same order, on the same page.
+     */
+    private static void checkAgainstFullScan(TaskManager manager) {
+        Random random = new Random(11);
+        String[] words = words(random);
+        Category[] categories = TaskWorkload.categories(manager, 6);
+        List<TaskDraft> drafts = new ArrayList<>();
+        for (int i = 0; i < TASKS; i++) {
+            drafts.add(new TaskDraft(text(random, words, 3), text(random, words, 6), START.plusDays(random.nextInt(365)),
+                pick(random, Priority.values()), pick(random, Status.values()), pick(random, categories)));
+        }
+        manager.addTasks(drafts);
+        List<Task> added = new ArrayList<>(manager.getAllTasks());
+        for (int i = 0; i < TASKS / 10; i++) {
+            Task task = added.get(random.nextInt(added.size()));
+            if (manager.findTask(task.getId()) == null) {
+                continue;
+            }
+            switch (i % 4) {
+                case 0 -> manager.removeTask(task.getId());
+                case 1 -> manager.patchTask(task.getId(), new TaskPatch().withTitle(text(random, words, 3))
+                    .withDueDate(START.plusDays(random.nextInt(365))));
+                case 2 -> manager.markTaskAsCompleted(task.getId());
+                default -> manager.addTask(text(random, words, 3), null, START.plusDays(random.nextInt(365)),
+                    pick(random, Priority.values()), Status.TO_DO, pick(random, categories));
+            }
+        }
+
+        Set<TaskQueryPlanner.Access> used = EnumSet.noneOf(TaskQueryPlanner.Access.class);
+        for (int i = 0; i < 600; i++) {
+            TaskQuery query = randomQuery(random, words, categories);
+            used.add(manager.explain(query).access);
+            assertEquals(query + " " + manager.explain(query), ids(fullScan(manager, query)), ids(manager.query(query)));
+        }
+        // The random queries should have tried every way of reading the store
+        assertEquals(EnumSet.allOf(TaskQueryPlanner.Access.class), used);
+    }
+
+    private static TaskQuery randomQuery(Random random, String[] words, Category[] categories) {
+        TaskQuery query = new TaskQuery();
+        if (random.nextInt(3) == 0) {
+            query = query.withStatus(pick(random, Status.values()));
+        }
+        if (random.nextInt(3) == 0) {
+            query = query.withCategory(pick(random, categories));
+        }
+        if (random.nextInt(3) == 0) {
+            query = query.withPriority(pick(random, Priority.values()));
+        }
+        if (random.nextInt(3) == 0) {
+            int from = random.nextInt(365);
+            int span = random.nextBoolean() ? random.nextInt(5) : random.nextInt(200);
+            query = query.withDueBetween(random.nextInt(4) == 0 ? null : START.plusDays(from),
+                random.nextInt(4) == 0 ? null : START.plusDays(from + span));
+        }
+        if (random.nextInt(3) == 0) {
+            // Either a whole word, mostly a common one, or a two-letter prefix
+            query = query.withText(random.nextBoolean() ? word(random, words) : words[random.nextInt(50)].substring(0, 2));
+        }
+        int order = random.nextInt(TaskOrder.values().length + 1);
+        if (order > 0) {
+            query = query.orderBy(TaskOrder.values()[order - 1]);
+        }
+        if (random.nextBoolean()) {
+            query = query.withOffset(random.nextInt(30));
+        }
+        if (random.nextInt(4) > 0) {
+            query = query.withLimit(random.nextInt(4) == 0 ? 0 : 1 + random.nextInt(50));
+        }
+        return query;
+    }
+
+    private static List<Task> fullScan(TaskManager manager, TaskQuery query) {
+        List<Task> matches = new ArrayList<>();
+        for (Task task : manager.getAllTasks()) {
+            if (query.matches(task)) {
+                matches.add(task);
+            }
+        }
+        matches.sort(query.getOrder() == null ? Comparator.comparingLong(Task::getSequence) : query.getOrder().comparator());
+        int from = Math.min(query.getOffset(), matches.size());
+        int to = (int) Math.min((long) query.getOffset() + query.getLimit(), matches.size());
+        return matches.subList(from, to);
+    }
+
+    private static List<CompactId> ids(List<Task> tasks) {
+        List<CompactId> ids = new ArrayList<>();
+        for (Task task : tasks) {
+            ids.add(task.getId());
+        }
+        return ids;
+    }
+
+    private static String[] words(Random random) {
+        String[] words = new String[3000];
+        for (int i = 0; i < words.length; i++) {
+            StringBuilder word = new StringBuilder();
+            int length = 3 + random.nextInt(7);
+            for (int j = 0; j < length; j++) {
+                word.append((char) ('a' + random.nextInt(26)));
+            }
+            words[i] = word.toString();
+        }
+        return words;
+    }
+
+    // Skewed towards the first few hundred words, so some words are common and most are rare
+    private static String word(Random random, String[] words) {
+        return words[(int) Math.min(words.length - 1, Math.abs(random.nextGaussian()) * 300)];
+    }
+
+    private static String text(Random random, String[] words, int count) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                text.append(' ');
+            }
+            text.append(word(random, words));
+        }
+        return text.toString();
+    }
+}
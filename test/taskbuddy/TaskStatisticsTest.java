@@ -0,0 +1,218 @@
+package taskbuddy;
+
+import static org.junit.Assert.assertEquals;
+import static taskbuddy.TaskWorkload.START;
+import static taskbuddy.TaskWorkload.pick;
+
+import java.nio.file.Path;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TaskStatisticsTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void heapStoreCountersMatchARecount() throws Exception {
+        checkAgainstRecount(TaskWorkload.Store.HEAP);
+    }
+
+    @Test
+    public void columnarStoreCountersMatchARecount() throws Exception {
+        checkAgainstRecount(TaskWorkload.Store.COLUMNAR);
+    }
+
+    @Test
+    public void weeksRunFromMondayToSunday() {
+        TaskManager manager = new TaskManager();
+        Category work = manager.getCategoryRegistry().getOrCreate("Work");
+        LocalDate sunday = LocalDate.of(2025, 1, 5);
+        LocalDate monday = sunday.plusDays(1);
+        // Monday 30 December 2024 starts the week of 1 January 2025
+        LocalDate lastYear = LocalDate.of(2024, 12, 30);
+        manager.addTask("Sunday", null, sunday, Priority.LOW, Status.TO_DO, work);
+        manager.addTask("Monday", null, monday, Priority.LOW, Status.TO_DO, work);
+        manager.addTask("Also Monday", null, monday, Priority.HIGH, Status.IN_PROGRESS, work);
+        manager.addTask("Last year", null, lastYear, Priority.LOW, Status.TO_DO, work);
+
+        TaskStatistics statistics = manager.getStatistics();
+        assertEquals(2, statistics.countOpenDueInWeek(sunday));
+        assertEquals(2, statistics.countOpenDueInWeek(lastYear));
+        assertEquals(2, statistics.countOpenDueInWeek(START));
+        assertEquals(2, statistics.countOpenDueInWeek(monday));
+        assertEquals(2, statistics.countOpenDueInWeek(monday.plusDays(6)));
+        assertEquals(0, statistics.countOpenDueInWeek(monday.plusDays(7)));
+        assertEquals(0, statistics.countOpenDueInWeek(lastYear.minusDays(1)));
+        assertEquals(Map.of(lastYear, 2, monday, 2), statistics.getOpenByDueWeek());
+        assertEquals(1, statistics.countOpenDueBetween(sunday, sunday));
+        assertEquals(3, statistics.countOpenDueBetween(sunday, monday));
+    }
+
+    @Test
+    public void tasksMoveBetweenOpenAndCompleted() {
+        TaskManager manager = new TaskManager();
+        Category work = manager.getCategoryRegistry().getOrCreate("Work");
+        CompactId first = manager.addTask("First", null, START, Priority.LOW, Status.TO_DO, work).getTask().getId();
+        manager.addTask("Second", null, START, Priority.LOW, Status.TO_DO, work);
+        LocalDate later = START.plusDays(3);
+        TaskStatistics before = manager.getStatistics();
+
+        manager.markTaskAsCompleted(first);
+        TaskStatistics completed = manager.getStatistics();
+        assertEquals(1, completed.countByStatus(Status.COMPLETED));
+        assertEquals(0.5, completed.getCompletionRate(), 0.0);
+        assertEquals(1, completed.countOverdue(later));
+        assertEquals(1, completed.countOpenDueInWeek(START));
+        assertEquals(Map.of(START, 1), completed.getOpenByDueDay());
+        // An earlier read is a snapshot and does not change
+        assertEquals(2, before.countOverdue(later));
+
+        manager.patchTask(first, new TaskPatch().withStatus(Status.IN_PROGRESS));
+        TaskStatistics reopened = manager.getStatistics();
+        assertEquals(0, reopened.countByStatus(Status.COMPLETED));
+        assertEquals(0.0, reopened.getCompletionRate(), 0.0);
+        assertEquals(2, reopened.countOverdue(later));
+        assertEquals(Map.of(START, 2), reopened.getOpenByDueDay());
+
+        // Moving a completed task's due date leaves the open counts alone
+        manager.markTaskAsCompleted(first);
+        manager.patchTask(first, new TaskPatch().withDueDate(later));
+        TaskStatistics moved = manager.getStatistics();
+        assertEquals(Map.of(START, 1), moved.getOpenByDueDay());
+        assertEquals(0, moved.countOpenDueBetween(later, later));
+
+        manager.removeTask(first);
+        TaskStatistics removed = manager.getStatistics();
+        assertEquals(1, removed.getTotal());
+        assertEquals(0, removed.countByStatus(Status.COMPLETED));
+        assertEquals(Map.of(START, 1), removed.getOpenByDueDay());
+    }
+
+    @Test
+    public void emptyManagerHasNoCounts() {
+        TaskStatistics statistics = new TaskManager().getStatistics();
+        assertEquals(0, statistics.getTotal());
+        assertEquals(0.0, statistics.getCompletionRate(), 0.0);
+        assertEquals(0, statistics.countOverdue(START));
+        assertEquals(0, statistics.getOpenByDueDay().size());
+    }
+
+    /**
+     * Applies random changes of every kind after the counters are built, checking them against
+     * a recount of every task as it goes, and again after replaying the journal into another
+     * manager whose counters were built before the replay.
+     */
+    private void checkAgainstRecount(TaskWorkload.Store store) throws Exception {
+        Path dir = folder.getRoot().toPath();
+        Random random = new Random(3);
+        TaskManager manager = store.newManager();
+        manager.attachJournal(new TaskJournal(dir));
+        Category[] categories = TaskWorkload.categories(manager, 5);
+        for (int i = 0; i < 300; i++) {
+            manager.addTasks(List.of(TaskWorkload.randomDraft(random, categories, 90)));
+        }
+        assertMatchesRecount(manager);
+
+        for (int i = 0; i < 3000; i++) {
+            List<Task> all = manager.getAllTasks();
+            Task task = all.get(random.nextInt(all.size()));
+            switch (random.nextInt(7)) {
+                case 0 -> manager.addTask("Added", null, START.plusDays(random.nextInt(90)), pick(random, Priority.values()),
+                    pick(random, Status.values()), pick(random, categories));
+                case 1 -> manager.removeTask(task.getId());
+                case 2 -> manager.markTaskAsCompleted(task.getId());
+                case 3 -> manager.patchTask(task.getId(), new TaskPatch().withStatus(pick(random, Status.values()))
+                    .withDueDate(START.plusDays(random.nextInt(90))));
+                case 4 -> manager.patchTask(task.getId(), new TaskPatch().withCategory(pick(random, categories))
+                    .withPriority(pick(random, Priority.values())));
+                case 5 -> {
+                    List<TaskDraft> drafts = new ArrayList<>();
+                    for (int k = 0; k < 5; k++) {
+                        drafts.add(TaskWorkload.randomDraft(random, categories, 90));
+                    }
+                    manager.addTasks(drafts);
+                }
+                default -> {
+                    if (all.size() > 3) {
+                        List<TaskOperation> operations = new ArrayList<>();
+                        operations.add(TaskOperation.add(TaskWorkload.randomDraft(random, categories, 90)));
+                        operations.add(TaskOperation.update(all.get(0).getId(), TaskWorkload.randomDraft(random, categories, 90)));
+                        operations.add(TaskOperation.complete(all.get(1).getId()));
+                        operations.add(TaskOperation.remove(all.get(2).getId()));
+                        manager.applyBatch(operations);
+                    }
+                }
+            }
+            if (i % 250 == 0) {
+                assertMatchesRecount(manager);
+            }
+        }
+        assertMatchesRecount(manager);
+        manager.closeJournal();
+
+        TaskManager replayed = store.newManager();
+        replayed.getStatistics();
+        replayed.attachJournal(new TaskJournal(dir));
+        assertMatchesRecount(replayed);
+        assertEquals(manager.getStatistics().getTotal(), replayed.getStatistics().getTotal());
+        replayed.closeJournal();
+    }
+
+    private static void assertMatchesRecount(TaskManager manager) {
+        TaskStatistics statistics = manager.getStatistics();
+        List<Task> all = manager.getAllTasks();
+        assertEquals(all.size(), statistics.getTotal());
+
+        List<Category> categories = manager.getCategoryRegistry().getAll();
+        for (Category category : categories) {
+            for (Status status : Status.values()) {
+                for (Priority priority : Priority.values()) {
+                    int expected = 0;
+                    for (Task task : all) {
+                        if (task.getCategory().equals(category) && task.getStatus() == status && task.getPriority() == priority) {
+                            expected++;
+                        }
+                    }
+                    assertEquals(category + " " + status + " " + priority, expected, statistics.count(status, category, priority));
+                }
+            }
+        }
+        for (Status status : Status.values()) {
+            assertEquals(manager.filterTasksByStatus(status).size(), statistics.countByStatus(status));
+        }
+
+        Map<LocalDate, Integer> byDay = new TreeMap<>();
+        Map<LocalDate, Integer> byWeek = new TreeMap<>();
+        for (Task task : all) {
+            if (!task.isCompleted()) {
+                byDay.merge(task.getDueDate(), 1, Integer::sum);
+                byWeek.merge(task.getDueDate().with(DayOfWeek.MONDAY), 1, Integer::sum);
+            }
+        }
+        assertEquals(byDay, statistics.getOpenByDueDay());
+        assertEquals(byWeek, statistics.getOpenByDueWeek());
+
+        for (int day = 0; day < 100; day += 7) {
+            LocalDate asOf = START.plusDays(day);
+            assertEquals(manager.getOverdueTasks(asOf).size(), statistics.countOverdue(asOf));
+            LocalDate to = asOf.plusDays(10);
+            int between = 0;
+            for (Task task : all) {
+                if (!task.isCompleted() && !task.getDueDate().isBefore(asOf) && !task.getDueDate().isAfter(to)) {
+                    between++;
+                }
+            }
+            assertEquals(between, statistics.countOpenDueBetween(asOf, to));
+            assertEquals((int) byWeek.getOrDefault(asOf.with(DayOfWeek.MONDAY), 0), statistics.countOpenDueInWeek(asOf));
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package taskbuddy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+public class TaskTextIndexTest {
+
+    private static final LocalDate DUE = LocalDate.of(2025, 1, 1);
+
+    @Test
+    public void titleMatchRanksAboveDescriptionMatch() {
+        TaskManager manager = new TaskManager();
+        Category work = manager.getCategoryRegistry().getOrCreate("Work");
+        manager.addTask("Errands", "Call the bank", DUE, Priority.LOW, Status.TO_DO, work);
+        manager.addTask("Call plumber", null, DUE, Priority.LOW, Status.TO_DO, work);
+        assertEquals(List.of("Call plumber", "Errands"), titles(manager.search("call", 10)));
+        assertEquals(List.of("Call plumber"), titles(manager.search("call", 1)));
+    }
+
+    @Test
+    public void wholeWordRanksAbovePrefix() {
+        TaskManager manager = new TaskManager();
+        Category work = manager.getCategoryRegistry().getOrCreate("Work");
+        manager.addTask("Paint fence", null, DUE, Priority.LOW, Status.TO_DO, work);
+        manager.addTask("Pain relief", null, DUE, Priority.LOW, Status.TO_DO, work);
+        assertEquals(List.of("Pain relief", "Paint fence"), titles(manager.search("pain", 10)));
+        // Equal matches keep insertion order
+        assertEquals(List.of("Paint fence", "Pain relief"), titles(manager.search("pai", 10)));
+    }
+
+    @Test
+    public void everyQueryWordMustStartSomeWord() {
+        TaskManager manager = new TaskManager();
+        Category work = manager.getCategoryRegistry().getOrCreate("Work");
+        manager.addTask("Buy groceries", "Milk, eggs and bread", DUE, Priority.LOW, Status.TO_DO, work);
+        manager.addTask("Buy a new bike", null, DUE, Priority.LOW, Status.TO_DO, work);
+        assertEquals(List.of("Buy groceries"), titles(manager.search("gro mil", 10)));
+        assertEquals(List.of("Buy groceries"), titles(manager.search("mil gro", 10)));
+        assertEquals(List.of("Buy groceries"), titles(manager.search("bu eg br", 10)));
+        assertEquals(List.of("Buy groceries", "Buy a new bike"), titles(manager.search("b", 10)));
+        assertTrue(manager.search("gro bike", 10).isEmpty());
+        // A query word is matched against the start of a word, never its middle
+        assertTrue(manager.search("roceries", 10).isEmpty());
+    }
+
+    @Test
+    public void wordsAreLowerCasedAndSplitAtPunctuation() {
+        assertEquals(List.of("buy", "groceries", "e", "mail", "café", "s", "2nd"),
+            TaskTextIndex.tokenize("Buy GROCERIES! (e-mail) Café's   2nd..."));
+        assertTrue(TaskTextIndex.tokenize(" -- ").isEmpty());
+
+        TaskManager manager = new TaskManager();
+        Category work = manager.getCategoryRegistry().getOrCreate("Work");
+        manager.addTask("Reply to E-MAIL", "About the CAFÉ", DUE, Priority.LOW, Status.TO_DO, work);
+        assertEquals(1, manager.search("e-mail", 10).size());
+        assertEquals(1, manager.search("MAI", 10).size());
+        assertEquals(1, manager.search("café!", 10).size());
+        assertTrue(manager.search("?!", 10).isEmpty());
+    }
+
+    @Test
+    public void removedAndReplacedWordsLeaveThePostings() {
+        Category work = new Category(0, "Work");
+        Task first = new Task(CompactId.parse("1"), "Water plants", "Balcony", DUE, Priority.LOW, Status.TO_DO, work, 0);
+        Task second = new Task(CompactId.parse("2"), "Water bill", null, DUE, Priority.LOW, Status.TO_DO, work, 1);
+        TaskTextIndex index = new TaskTextIndex(List.of(first, second));
+        assertEquals(2, index.estimateMatches("water"));
+
+        index.put(new Task(first.getId(), "Repot cactus", "Balcony", DUE, Priority.LOW, Status.TO_DO, work));
+        assertEquals(1, index.estimateMatches("water"));
+        assertEquals(0, index.estimateMatches("plants"));
+        assertEquals(1, index.estimateMatches("cactus"));
+        assertEquals(1, index.estimateMatches("balcony"));
+        assertEquals(List.of("Water bill"), titles(index.search("water", 10)));
+
+        index.remove(second.getId());
+        assertEquals(1, index.size());
+        assertEquals(0, index.estimateMatches("water"));
+        assertEquals(0, index.estimateMatches("bill"));
+        assertTrue(index.search("w", 10).isEmpty());
+        assertEquals(List.of("Repot cactus"), titles(index.findAll("repot balc")));
+    }
+
+    @Test
+    public void updatingATaskWithoutDescriptionKeepsItSearchable() {
+        TaskManager manager = new TaskManager();
+        Category work = manager.getCategoryRegistry().getOrCreate("Work");
+        manager.addTask("Buy groceries", null, LocalDate.of(2025, 1, 1), Priority.LOW, Status.TO_DO, work);
+        assertEquals(1, manager.search("gro", 10).size());
+
+        assertTrue(manager.markTaskAsCompleted("1").isSuccess());
+        assertEquals(Status.COMPLETED, manager.search("gro", 10).get(0).getStatus());
+    }
+
+    private static List<String> titles(List<Task> tasks) {
+        List<String> titles = new ArrayList<>();
+        for (Task task : tasks) {
+            titles.add(task.getTitle());
+        }
+        return titles;
+    }
+}
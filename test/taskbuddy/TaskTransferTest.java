@@ -0,0 +1,66 @@
+package taskbuddy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TaskTransferTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void rejectedRowsDoNotCreateCategories() throws Exception {
+        Path file = folder.newFile("tasks.csv").toPath();
+        Files.writeString(file, String.join("\n",
+            "title,dueDate,priority,status,category",
+            ",2025-01-01,High,To Do,Untitled",
+            "No date,,High,To Do,Undated",
+            "Bad date,soon,High,To Do,Misdated",
+            "Kept,2025-01-02,Low,To Do,Kept"), StandardCharsets.UTF_8);
+        Path dir = folder.newFolder("journal").toPath();
+        TaskManager manager = new TaskManager();
+        manager.attachJournal(new TaskJournal(dir));
+
+        ImportReport report = TaskTransfer.importTasks(manager, file, TaskFormat.CSV);
+        assertEquals(1, report.getImported());
+        assertEquals(List.of("Line 2: Task title cannot be empty.", "Line 3: Due date cannot be null.",
+            "Line 4: Invalid due date 'soon'. Please use YYYY-MM-DD."), report.getErrors());
+        assertEquals(List.of("Kept"), List.of(manager.getCategoryRegistry().getNames()));
+        manager.closeJournal();
+
+        TaskManager replayed = new TaskManager();
+        replayed.attachJournal(new TaskJournal(dir));
+        assertEquals(List.of("Kept"), List.of(replayed.getCategoryRegistry().getNames()));
+        replayed.closeJournal();
+    }
+
+    @Test
+    public void todoTxtKeepsSpacesInCategoryNames() throws Exception {
+        TaskManager manager = new TaskManager();
+        Category office = manager.getCategoryRegistry().getOrCreate("Home Office");
+        manager.addTask("Order a desk", null, LocalDate.of(2025, 1, 1), Priority.MEDIUM, Status.IN_PROGRESS, office);
+        Path file = folder.newFile("todo.txt").toPath();
+        TaskTransfer.exportTasks(manager, file, TaskFormat.TODO_TXT);
+        assertEquals("(B) Order a desk +Home_Office due:2025-01-01 status:in-progress",
+            Files.readString(file, StandardCharsets.UTF_8).trim());
+
+        TaskManager imported = new TaskManager();
+        assertEquals(1, TaskTransfer.importTasks(imported, file, TaskFormat.TODO_TXT).getImported());
+        assertNotNull(imported.findCategory("Home Office"));
+        assertNull(imported.findCategory("Home_Office"));
+        Task task = imported.getAllTasks().get(0);
+        assertEquals("Home Office", task.getCategory().getCategoryName());
+        assertEquals(Status.IN_PROGRESS, task.getStatus());
+        assertEquals(Priority.MEDIUM, task.getPriority());
+    }
+}
@@ -0,0 +1,58 @@
+package taskbuddy;
+
+import java.time.LocalDate;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * Random tasks and the stores to run them on, shared by the tests that check an indexed
+ * answer against a recount of every task.
+ */
+final class TaskWorkload {
+
+    static final LocalDate START = LocalDate.of(2025, 1, 1);
+
+    /**
+     * The kinds of store a check should pass on.
+     */
+    enum Store {
+        HEAP(HeapTaskStore::new),
+        COLUMNAR(ColumnarTaskStore::new);
+
+        private final Supplier<TaskStore> factory;
+
+        Store(Supplier<TaskStore> factory) {
+            this.factory = factory;
+        }
+
+        TaskManager newManager() {
+            return new TaskManager(factory.get());
+        }
+    }
+
+    private TaskWorkload() {
+    }
+
+    /**
+     * Registers categories named "Category 0" onwards.
+     */
+    static Category[] categories(TaskManager manager, int count) {
+        Category[] categories = new Category[count];
+        for (int i = 0; i < count; i++) {
+            categories[i] = manager.getCategoryRegistry().getOrCreate("Category " + i);
+        }
+        return categories;
+    }
+
+    /**
+     * A task with a random priority, status and category, due within the given number of days of START.
+     */
+    static TaskDraft randomDraft(Random random, Category[] categories, int days) {
+        return new TaskDraft("Task " + random.nextInt(1000), null, START.plusDays(random.nextInt(days)),
+            pick(random, Priority.values()), pick(random, Status.values()), pick(random, categories));
+    }
+
+    static <T> T pick(Random random, T[] values) {
+        return values[random.nextInt(values.length)];
+    }
+}